@@ -0,0 +1,31 @@
+// AsyncConfig.java
+package com.healthcare.fhir.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class AsyncConfig {
+
+    // Completes responses of the asynchronous WHO ICD API client; no thread waits on a call in flight
+    @Bean(name = "icdHttpExecutor")
+    public ThreadPoolTaskExecutor icdHttpExecutor(@Value("${icd.api.completion-threads:4}") int completionThreads,
+                                                  @Value("${icd.api.completion-queue-capacity:512}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(completionThreads);
+        executor.setMaxPoolSize(completionThreads);
+        // Bounded, and sized well above the few tasks each of the icd.api.max-concurrent-requests calls queues.
+        // Should it still fill up, the submitting thread runs the task: the HttpClient treats a rejection from
+        // its selector thread as fatal
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("icd-http-");
+        executor.setDaemon(true);
+        executor.initialize();
+        return executor;
+    }
+}
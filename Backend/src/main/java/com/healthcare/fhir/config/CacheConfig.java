@@ -36,9 +36,6 @@ public class CacheConfig {
         // ICD search cache - shorter TTL for search results
         cacheConfigurations.put("icdSearch", defaultCacheConfig.entryTtl(Duration.ofMinutes(30)));
 
-        // Token cache - TTL based on token expiry
-        cacheConfigurations.put("icdTokens", defaultCacheConfig.entryTtl(Duration.ofMinutes(50)));
-
         return RedisCacheManager.builder(redisConnectionFactory)
                 .cacheDefaults(defaultCacheConfig)
                 .withInitialCacheConfigurations(cacheConfigurations)
@@ -1,6 +1,8 @@
 // OAuth2Config.java
 package com.healthcare.fhir.config;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.oauth2.client.AuthorizedClientServiceOAuth2AuthorizedClientManager;
@@ -9,13 +11,36 @@ import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProvider
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProviderBuilder;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
-import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
 @Configuration
 public class OAuth2Config {
 
-    @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    // Client for the WHO ICD API; connections are pooled and kept alive, and HTTP/2 multiplexes concurrent calls over one
+    @Bean(name = "icdHttpClient")
+    public HttpClient icdHttpClient(@Value("${icd.api.connect-timeout-ms:2000}") int connectTimeoutMs,
+                                    @Value("${icd.api.connection-pool-size:64}") int connectionPoolSize,
+                                    @Value("${icd.api.keep-alive-seconds:30}") int keepAliveSeconds,
+                                    @Qualifier("icdHttpExecutor") Executor icdHttpExecutor) {
+        // The JDK client reads its pool limits from system properties when its first instance is created;
+        // -D flags on the command line take precedence
+        setIfAbsent("jdk.httpclient.connectionPoolSize", connectionPoolSize);
+        setIfAbsent("jdk.httpclient.keepalive.timeout", keepAliveSeconds);
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(icdHttpExecutor)
+                .build();
+    }
+
+    private static void setIfAbsent(String property, int value) {
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, Integer.toString(value));
+        }
     }
 
     @Bean
@@ -89,6 +89,8 @@ public class SecurityConfig {
                         // Public FHIR read operations
                         .requestMatchers(HttpMethod.GET, "/fhir/ValueSet/$expand").permitAll()
                         .requestMatchers(HttpMethod.GET, "/fhir/CodeSystem/$lookup").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/fhir/CodeSystem/$subsumes").permitAll()
+                        .requestMatchers(HttpMethod.POST, "/fhir/CodeSystem/$lookup", "/fhir/CodeSystem/$validate-code").permitAll()
 
                         // Admin endpoints
                         .requestMatchers("/admin/**").hasRole("ADMIN")
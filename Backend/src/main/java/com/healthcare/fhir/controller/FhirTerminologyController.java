@@ -9,18 +9,25 @@ import com.healthcare.fhir.service.AuditService;
 import com.healthcare.fhir.dto.TranslateRequest;
 import com.healthcare.fhir.dto.FhirValueSet;
 import com.healthcare.fhir.dto.FhirParameters;
+import com.healthcare.fhir.dto.FhirBundle;
+import com.healthcare.fhir.dto.FhirBundleEntry;
+import com.healthcare.fhir.dto.FhirBatchRequest;
+import com.healthcare.fhir.dto.FhirConcept;
 import com.healthcare.fhir.security.UserPrincipal;
 import com.healthcare.fhir.entity.Role;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 // Fixed FhirTerminologyController.java - Translation endpoints
 
@@ -31,6 +38,9 @@ public class FhirTerminologyController {
 
     private static final Logger logger = LoggerFactory.getLogger(FhirTerminologyController.class);
 
+    private static final String DURATION_EXTENSION_URL =
+            "http://terminology.namaste.in/StructureDefinition/batch-entry-duration-ms";
+
     @Autowired
     private TerminologyService terminologyService;
 
@@ -40,6 +50,9 @@ public class FhirTerminologyController {
     @Autowired
     private AuditService auditService;
 
+    @Autowired
+    private ExpansionStreamService expansionStreamService;
+
     // CORRECT: POST mapping for $translate
     @PostMapping("/ConceptMap/$translate")
     public ResponseEntity<FhirParameters> translateConcept(
@@ -70,12 +83,34 @@ public class FhirTerminologyController {
         }
     }
 
+    // Batch $translate: Parameters with one "coding" (system, code) per source concept, or a Bundle of such Parameters
+    @PostMapping(value = "/ConceptMap/$translate", params = "batch=true")
+    public ResponseEntity<FhirBundle> translateConcepts(
+            @RequestBody FhirBatchRequest request,
+            @RequestParam(required = false) String targetSystem,
+            @RequestParam(defaultValue = "false") boolean reverse,
+            @RequestParam(defaultValue = "false") boolean transitive) {
+
+        List<FhirConcept> codings = codingsOf(request);
+        logger.info("Batch ConceptMap $translate request - {} codings, target: {}, reverse: {}, transitive: {}",
+                codings.size(), targetSystem, reverse, transitive);
+
+        try {
+            return toBatchResponse(translationService.translateConcepts(codings, targetSystem, reverse, transitive));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected batch $translate request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     // OPTIONAL: GET mapping for simple translation (non-FHIR compliant but convenient)
     @GetMapping("/ConceptMap/$translate")
     public ResponseEntity<FhirParameters> translateConceptGet(
             @RequestParam String system,
             @RequestParam String code,
             @RequestParam(required = false) String targetSystem,
+            @RequestParam(defaultValue = "false") boolean reverse,
+            @RequestParam(defaultValue = "false") boolean transitive,
             @AuthenticationPrincipal UserPrincipal currentUser) {
 
         // Convert GET parameters to POST request body
@@ -83,6 +118,8 @@ public class FhirTerminologyController {
         request.setSystem(system);
         request.setCode(code);
         request.setTargetSystem(targetSystem);
+        request.setReverse(reverse);
+        request.setTransitive(transitive);
 
         return translateConcept(request, currentUser);
     }
@@ -93,23 +130,61 @@ public class FhirTerminologyController {
             @RequestParam(required = false) String url,
             @RequestParam(required = false) String filter,
             @RequestParam(defaultValue = "10") int count,
-            @RequestParam(defaultValue = "0") int offset) {
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(name = "_total", required = false) String total,
+            @RequestParam(defaultValue = "false") boolean autocomplete,
+            @RequestParam(defaultValue = "false") boolean fuzzy,
+            @RequestParam(defaultValue = "2") int maxEdits,
+            @RequestParam(required = false) String displayLanguage,
+            @RequestParam(required = false) Boolean rank,
+            @RequestParam(required = false) String isA) {
 
         logger.info("ValueSet $expand request - filter: {}, count: {}, offset: {}", filter, count, offset);
 
-        FhirValueSet result = terminologyService.expandValueSet(url, filter, count, offset);
-        return ResponseEntity.ok(result);
+        try {
+            if (fuzzy) {
+                return ResponseEntity.ok(terminologyService.expandFuzzy(url, filter, count, offset, maxEdits, displayLanguage));
+            }
+
+            // Prefix typeahead is routed to the precomputed completion trie
+            if (autocomplete && offset == 0 && cursor == null && isA == null) {
+                return ResponseEntity.ok(terminologyService.autocomplete(url, filter, count, displayLanguage));
+            }
+
+            FhirValueSet result = terminologyService.expandValueSet(url, filter, isA, count, offset, cursor,
+                    TerminologyService.TotalMode.fromParameter(total), displayLanguage, rank);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected ValueSet $expand request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Bulk export of whole code systems, written row by row instead of paged
+    @GetMapping(value = "/ValueSet/$expand", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamValueSet(
+            @RequestParam(required = false) String url,
+            @RequestParam(required = false) String filter) {
+
+        logger.info("Streaming ValueSet $expand request - url: {}, filter: {}", url, filter);
+
+        StreamingResponseBody body = out -> expansionStreamService.writeExpansion(url, filter, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
     }
 
     @GetMapping("/CodeSystem/$lookup")
     public ResponseEntity<FhirParameters> lookupCode(
             @RequestParam String system,
             @RequestParam String code,
-            @RequestParam(required = false) String version) {
+            @RequestParam(required = false) String version,
+            @RequestParam(required = false) String displayLanguage) {
 
         logger.info("CodeSystem $lookup request - system: {}, code: {}, version: {}", system, code, version);
 
-        FhirParameters result = terminologyService.lookupCode(system, code, version);
+        FhirParameters result = terminologyService.lookupCode(system, code, version, displayLanguage);
         if (result != null) {
             return ResponseEntity.ok(result);
         } else {
@@ -117,6 +192,109 @@ public class FhirTerminologyController {
         }
     }
 
+    @GetMapping("/CodeSystem/$subsumes")
+    public ResponseEntity<FhirParameters> subsumes(
+            @RequestParam String system,
+            @RequestParam String codeA,
+            @RequestParam String codeB) {
+
+        logger.info("CodeSystem $subsumes request - system: {}, codeA: {}, codeB: {}", system, codeA, codeB);
+
+        FhirParameters result = terminologyService.subsumes(system, codeA, codeB);
+        if (result != null) {
+            return ResponseEntity.ok(result);
+        } else {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // Batch $lookup: Parameters with one "coding" (system, code, version) per item, or a Bundle of such Parameters
+    @PostMapping("/CodeSystem/$lookup")
+    public ResponseEntity<FhirBundle> lookupCodes(
+            @RequestBody FhirBatchRequest request,
+            @RequestParam(required = false) String displayLanguage) {
+
+        List<FhirConcept> codings = codingsOf(request);
+        logger.info("Batch CodeSystem $lookup request - {} codings", codings.size());
+
+        try {
+            return toBatchResponse(terminologyService.lookupCodes(codings, displayLanguage));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected batch $lookup request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping("/CodeSystem/$validate-code")
+    public ResponseEntity<FhirBundle> validateCodes(
+            @RequestBody FhirBatchRequest request,
+            @RequestParam(required = false) String displayLanguage) {
+
+        List<FhirConcept> codings = codingsOf(request);
+        logger.info("Batch CodeSystem $validate-code request - {} codings", codings.size());
+
+        try {
+            return toBatchResponse(terminologyService.validateCodes(codings, displayLanguage));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rejected batch $validate-code request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Codings in input order, from the Parameters body or from each Parameters entry of a Bundle
+    private static List<FhirConcept> codingsOf(FhirBatchRequest request) {
+        List<FhirConcept> codings = new ArrayList<>();
+        if (request == null) {
+            return codings;
+        }
+        if ("Bundle".equals(request.getResourceType())) {
+            if (request.getEntry() != null) {
+                for (FhirBatchRequest.Entry entry : request.getEntry()) {
+                    if (entry.getResource() != null) {
+                        addCodings(codings, entry.getResource().getParameter());
+                    }
+                }
+            }
+        } else {
+            addCodings(codings, request.getParameter());
+        }
+        return codings;
+    }
+
+    private static void addCodings(List<FhirConcept> codings, List<FhirParameter> parameters) {
+        if (parameters == null) {
+            return;
+        }
+        for (FhirParameter parameter : parameters) {
+            if ("coding".equals(parameter.getName()) && parameter.getValueCoding() != null) {
+                codings.add(parameter.getValueCoding());
+            }
+        }
+    }
+
+    // Entries follow input order; each carries its duration as an extension on entry.response,
+    // and the same durations go to the Server-Timing header
+    private static ResponseEntity<FhirBundle> toBatchResponse(List<TerminologyService.BatchResult> results) {
+        List<FhirBundleEntry> entries = new ArrayList<>();
+        StringBuilder serverTiming = new StringBuilder();
+        double slowestMs = 0;
+        for (int i = 0; i < results.size(); i++) {
+            TerminologyService.BatchResult result = results.get(i);
+            FhirBundleEntry entry = new FhirBundleEntry(result.parameters(), result.status());
+            entry.getResponse().setExtension(List.of(new FhirBundleEntry.Extension(DURATION_EXTENSION_URL,
+                    Math.round(result.durationMs() * 1000) / 1000.0)));
+            entries.add(entry);
+            serverTiming.append("item").append(i).append(";dur=")
+                    .append(String.format(Locale.ROOT, "%.3f", result.durationMs())).append(", ");
+            slowestMs = Math.max(slowestMs, result.durationMs());
+        }
+        serverTiming.append("slowest;dur=").append(String.format(Locale.ROOT, "%.3f", slowestMs));
+
+        return ResponseEntity.ok()
+                .header("Server-Timing", serverTiming.toString())
+                .body(new FhirBundle("batch-response", entries));
+    }
+
     private FhirParameters createErrorResponse(String message) {
         FhirParameters errorResponse = new FhirParameters();
         errorResponse.setResourceType("Parameters");
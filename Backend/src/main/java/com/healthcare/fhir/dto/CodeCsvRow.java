@@ -15,6 +15,14 @@ public class CodeCsvRow {
     @CsvBindByName(column = "definition")
     private String definition;
 
+    // Optional JSON, either a FHIR designation array or a {"language": "value"} map
+    @CsvBindByName(column = "designations")
+    private String designations;
+
+    // Optional parent code(s) in the same system, separated by '|'; blank marks a root concept
+    @CsvBindByName(column = "parent")
+    private String parent;
+
     // Getters and setters
     public String getSystem() {
         return system;
@@ -48,6 +56,22 @@ public class CodeCsvRow {
         this.definition = definition;
     }
 
+    public String getDesignations() {
+        return designations;
+    }
+
+    public void setDesignations(String designations) {
+        this.designations = designations;
+    }
+
+    public String getParent() {
+        return parent;
+    }
+
+    public void setParent(String parent) {
+        this.parent = parent;
+    }
+
     @Override
     public String toString() {
         return "CodeCsvRow{system='" + system + "', code='" + code + "', display='" + display + "'}";
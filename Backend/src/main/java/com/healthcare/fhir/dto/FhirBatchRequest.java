@@ -0,0 +1,50 @@
+package com.healthcare.fhir.dto;
+
+import java.util.List;
+
+/**
+ * Body of the batch $lookup and $validate-code operations: either a Parameters resource with
+ * "coding" parameters, or a batch Bundle whose entries are such Parameters resources.
+ */
+public class FhirBatchRequest {
+    private String resourceType;
+    private List<FhirParameter> parameter;
+    private List<Entry> entry;
+
+    // Getters and setters
+    public String getResourceType() {
+        return resourceType;
+    }
+
+    public void setResourceType(String resourceType) {
+        this.resourceType = resourceType;
+    }
+
+    public List<FhirParameter> getParameter() {
+        return parameter;
+    }
+
+    public void setParameter(List<FhirParameter> parameter) {
+        this.parameter = parameter;
+    }
+
+    public List<Entry> getEntry() {
+        return entry;
+    }
+
+    public void setEntry(List<Entry> entry) {
+        this.entry = entry;
+    }
+
+    public static class Entry {
+        private FhirParameters resource;
+
+        public FhirParameters getResource() {
+            return resource;
+        }
+
+        public void setResource(FhirParameters resource) {
+            this.resource = resource;
+        }
+    }
+}
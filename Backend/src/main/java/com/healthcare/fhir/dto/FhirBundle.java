@@ -0,0 +1,42 @@
+package com.healthcare.fhir.dto;
+
+import java.util.List;
+
+public class FhirBundle {
+    private String resourceType = "Bundle";
+    private String type;
+    private List<FhirBundleEntry> entry;
+
+    public FhirBundle() {
+    }
+
+    public FhirBundle(String type, List<FhirBundleEntry> entry) {
+        this.type = type;
+        this.entry = entry;
+    }
+
+    // Getters and setters
+    public String getResourceType() {
+        return resourceType;
+    }
+
+    public void setResourceType(String resourceType) {
+        this.resourceType = resourceType;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public List<FhirBundleEntry> getEntry() {
+        return entry;
+    }
+
+    public void setEntry(List<FhirBundleEntry> entry) {
+        this.entry = entry;
+    }
+}
@@ -0,0 +1,94 @@
+package com.healthcare.fhir.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+public class FhirBundleEntry {
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Object resource;
+    private Response response;
+
+    public FhirBundleEntry() {
+    }
+
+    public FhirBundleEntry(Object resource, String status) {
+        this.resource = resource;
+        this.response = new Response(status);
+    }
+
+    // Getters and setters
+    public Object getResource() {
+        return resource;
+    }
+
+    public void setResource(Object resource) {
+        this.resource = resource;
+    }
+
+    public Response getResponse() {
+        return response;
+    }
+
+    public void setResponse(Response response) {
+        this.response = response;
+    }
+
+    public static class Response {
+        private String status;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private List<Extension> extension;
+
+        public Response() {
+        }
+
+        public Response(String status) {
+            this.status = status;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public void setStatus(String status) {
+            this.status = status;
+        }
+
+        public List<Extension> getExtension() {
+            return extension;
+        }
+
+        public void setExtension(List<Extension> extension) {
+            this.extension = extension;
+        }
+    }
+
+    public static class Extension {
+        private String url;
+        private Double valueDecimal;
+
+        public Extension() {
+        }
+
+        public Extension(String url, Double valueDecimal) {
+            this.url = url;
+            this.valueDecimal = valueDecimal;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public Double getValueDecimal() {
+            return valueDecimal;
+        }
+
+        public void setValueDecimal(Double valueDecimal) {
+            this.valueDecimal = valueDecimal;
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.healthcare.fhir.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 public class FhirConcept {
     private String system;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String version;
     private String code;
     private String display;
 
@@ -14,6 +18,14 @@ public class FhirConcept {
         this.system = system;
     }
 
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
+    }
+
     public String getCode() {
         return code;
     }
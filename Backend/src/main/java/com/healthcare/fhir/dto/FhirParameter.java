@@ -1,10 +1,14 @@
 package com.healthcare.fhir.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
 public class FhirParameter {
     private String name;
     private String valueString;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String valueCode;
     private FhirConcept valueCoding;
     private List<FhirParameter> part;
 
@@ -33,6 +37,14 @@ public class FhirParameter {
         this.valueString = valueString;
     }
 
+    public String getValueCode() {
+        return valueCode;
+    }
+
+    public void setValueCode(String valueCode) {
+        this.valueCode = valueCode;
+    }
+
     public FhirConcept getValueCoding() {
         return valueCoding;
     }
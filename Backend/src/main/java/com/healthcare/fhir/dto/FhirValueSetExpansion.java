@@ -1,18 +1,26 @@
 package com.healthcare.fhir.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
 public class FhirValueSetExpansion {
-    private int total;
+    // Omitted for keyset pages, which never pay for a count query
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer total;
     private int offset;
     private List<FhirValueSetContains> contains;
 
+    // Opaque continuation token for the next page; absent on the last page
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String next;
+
     // Getters and setters
-    public int getTotal() {
+    public Integer getTotal() {
         return total;
     }
 
-    public void setTotal(int total) {
+    public void setTotal(Integer total) {
         this.total = total;
     }
 
@@ -31,4 +39,12 @@ public class FhirValueSetExpansion {
     public void setContains(List<FhirValueSetContains> contains) {
         this.contains = contains;
     }
+
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
 }
@@ -9,6 +9,8 @@ public class TranslateRequest {
     private String code;
     private String targetSystem;
     private String version;
+    private boolean reverse;
+    private boolean transitive;
 
     // Constructors
     public TranslateRequest() {}
@@ -32,6 +34,12 @@ public class TranslateRequest {
     public String getVersion() { return version; }
     public void setVersion(String version) { this.version = version; }
 
+    public boolean isReverse() { return reverse; }
+    public void setReverse(boolean reverse) { this.reverse = reverse; }
+
+    public boolean isTransitive() { return transitive; }
+    public void setTransitive(boolean transitive) { this.transitive = transitive; }
+
     @Override
     public String toString() {
         return "TranslateRequest{" +
@@ -39,6 +47,8 @@ public class TranslateRequest {
                 ", code='" + code + '\'' +
                 ", targetSystem='" + targetSystem + '\'' +
                 ", version='" + version + '\'' +
+                ", reverse=" + reverse +
+                ", transitive=" + transitive +
                 '}';
     }
 }
\ No newline at end of file
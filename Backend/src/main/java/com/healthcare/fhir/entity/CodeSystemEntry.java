@@ -4,7 +4,9 @@ package com.healthcare.fhir.entity;
 
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
+import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.envers.Audited;
+import org.hibernate.type.SqlTypes;
 import java.time.LocalDateTime;
 
 @Entity
@@ -30,6 +32,8 @@ public class CodeSystemEntry {
     @Column(columnDefinition = "TEXT")
     private String definition;
 
+    // Bound as JSON so Postgres accepts the string for the JSONB column
+    @JdbcTypeCode(SqlTypes.JSON)
     @Column(columnDefinition = "JSONB")
     private String designations;
 
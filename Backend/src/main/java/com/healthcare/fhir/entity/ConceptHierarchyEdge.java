@@ -0,0 +1,56 @@
+// ConceptHierarchyEdge.java
+package com.healthcare.fhir.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+import org.hibernate.envers.Audited;
+import java.time.LocalDateTime;
+
+/**
+ * One is-a link between two concepts of the same code system: childCode is a kind of parentCode.
+ * A concept may have several parents.
+ */
+@Entity
+@Table(name = "concept_hierarchy_edges")
+@Audited
+public class ConceptHierarchyEdge {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotBlank
+    @Column(nullable = false)
+    private String systemUri;
+
+    @NotBlank
+    @Column(nullable = false)
+    private String parentCode;
+
+    @NotBlank
+    @Column(nullable = false)
+    private String childCode;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    // Getters and setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getSystemUri() { return systemUri; }
+    public void setSystemUri(String systemUri) { this.systemUri = systemUri; }
+
+    public String getParentCode() { return parentCode; }
+    public void setParentCode(String parentCode) { this.parentCode = parentCode; }
+
+    public String getChildCode() { return childCode; }
+    public void setChildCode(String childCode) { this.childCode = childCode; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
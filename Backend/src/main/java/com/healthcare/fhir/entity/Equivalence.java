@@ -11,7 +11,62 @@ public enum Equivalence {
     SPECIALIZES,
     INEXACT,
     UNMATCHED,
-    DISJOINT
+    DISJOINT;
+
+    /**
+     * Equivalence of the same mapping read from target to source.
+     */
+    public Equivalence inverse() {
+        return switch (this) {
+            case WIDER -> NARROWER;
+            case NARROWER -> WIDER;
+            case SUBSUMES -> SPECIALIZES;
+            case SPECIALIZES -> SUBSUMES;
+            default -> this;
+        };
+    }
+
+    /**
+     * Equivalence from source to final target when this mapping (source to middle) is followed by
+     * next (middle to target), or null when nothing can be inferred: UNMATCHED and DISJOINT never chain.
+     */
+    public Equivalence compose(Equivalence next) {
+        if (this == UNMATCHED || this == DISJOINT || next == UNMATCHED || next == DISJOINT) {
+            return null;
+        }
+        if (this == EQUAL) {
+            return next;
+        }
+        if (next == EQUAL || next == EQUIVALENT) {
+            return this;
+        }
+        if (this == EQUIVALENT) {
+            return next;
+        }
+        if (this == RELATEDTO || next == RELATEDTO) {
+            return RELATEDTO;
+        }
+        if (isWider() && next.isWider()) {
+            return this == SUBSUMES && next == SUBSUMES ? SUBSUMES : WIDER;
+        }
+        if (isNarrower() && next.isNarrower()) {
+            return this == SPECIALIZES && next == SPECIALIZES ? SPECIALIZES : NARROWER;
+        }
+        // The middle concept lies inside the source and overlaps the target, or overlaps the source and lies inside the target
+        if ((isNarrower() && (next.isWider() || next == INEXACT)) || (this == INEXACT && next.isWider())) {
+            return INEXACT;
+        }
+        return RELATEDTO;
+    }
+
+    // Target broader than source
+    private boolean isWider() {
+        return this == WIDER || this == SUBSUMES;
+    }
+
+    private boolean isNarrower() {
+        return this == NARROWER || this == SPECIALIZES;
+    }
 }
 
 
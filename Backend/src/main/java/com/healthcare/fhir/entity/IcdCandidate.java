@@ -0,0 +1,71 @@
+// IcdCandidate.java
+package com.healthcare.fhir.entity;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+import java.time.LocalDateTime;
+
+/**
+ * A precomputed ICD-11 search candidate for a concept with no concept map entry,
+ * written by the background precompute job and served by $translate. Rank 0 is the best hit.
+ */
+@Entity
+@Table(name = "icd_candidates")
+public class IcdCandidate {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotBlank
+    @Column(nullable = false)
+    private String sourceSystem;
+
+    @NotBlank
+    @Column(nullable = false)
+    private String sourceCode;
+
+    @Column(nullable = false)
+    private int candidateRank;
+
+    @NotBlank
+    @Column(nullable = false)
+    private String icdCode;
+
+    @Column(columnDefinition = "TEXT")
+    private String title;
+
+    private Double score;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    // Getters and setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getSourceSystem() { return sourceSystem; }
+    public void setSourceSystem(String sourceSystem) { this.sourceSystem = sourceSystem; }
+
+    public String getSourceCode() { return sourceCode; }
+    public void setSourceCode(String sourceCode) { this.sourceCode = sourceCode; }
+
+    public int getCandidateRank() { return candidateRank; }
+    public void setCandidateRank(int candidateRank) { this.candidateRank = candidateRank; }
+
+    public String getIcdCode() { return icdCode; }
+    public void setIcdCode(String icdCode) { this.icdCode = icdCode; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public Double getScore() { return score; }
+    public void setScore(Double score) { this.score = score; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
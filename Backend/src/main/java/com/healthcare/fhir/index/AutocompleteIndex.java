@@ -0,0 +1,129 @@
+// AutocompleteIndex.java
+package com.healthcare.fhir.index;
+
+import java.util.Arrays;
+
+/**
+ * Prefix completion over codes, displays and the word starts within displays.
+ * One PrefixTrie per code system keeps a url-scoped request inside its own system;
+ * requests across all systems merge the per-system ranked lists.
+ */
+public final class AutocompleteIndex {
+
+    // Keys are truncated to this length; longer prefixes are left to the trigram index
+    public static final int MAX_KEY_LENGTH = 40;
+
+    private static final int CODE_WEIGHT = 3;
+    private static final int DISPLAY_WEIGHT = 2;
+    private static final int WORD_WEIGHT = 1;
+
+    private final ConceptTable table;
+    private final PrefixTrie[] tries;
+    private final int topK;
+
+    private AutocompleteIndex(ConceptTable table, PrefixTrie[] tries, int topK) {
+        this.table = table;
+        this.tries = tries;
+        this.topK = topK;
+    }
+
+    public static AutocompleteIndex build(ConceptTable table, int topK) {
+        PrefixTrie[] tries = new PrefixTrie[table.systemCount()];
+        for (int systemId = 0; systemId < tries.length; systemId++) {
+            PrefixTrie.Builder builder = PrefixTrie.builder(topK);
+            for (int ordinal = table.systemStart(systemId); ordinal < table.systemEnd(systemId); ordinal++) {
+                addKeys(builder, table, ordinal);
+            }
+            tries[systemId] = builder.build();
+        }
+        return new AutocompleteIndex(table, tries, topK);
+    }
+
+    public int topK() { return topK; }
+
+    /**
+     * Whether a prefix can be answered here; longer or empty prefixes need the trigram index.
+     */
+    public boolean supports(String prefix, int limit) {
+        String normalized = ConceptTable.normalize(prefix);
+        return !normalized.isEmpty() && normalized.length() <= MAX_KEY_LENGTH && limit <= topK;
+    }
+
+    /**
+     * Returns up to limit ordinals completing the prefix, best first.
+     *
+     * @param systemId restrict completions to one code system, or -1 for all systems
+     */
+    public int[] complete(String prefix, int systemId, int limit) {
+        String normalized = ConceptTable.normalize(prefix);
+        int max = Math.min(limit, topK);
+
+        if (systemId >= 0) {
+            PrefixTrie trie = tries[systemId];
+            int node = trie.find(normalized);
+            if (node < 0) {
+                return new int[0];
+            }
+            int count = Math.min(max, trie.completionCount(node));
+            int[] result = new int[count];
+            for (int rank = 0; rank < count; rank++) {
+                result[rank] = trie.completionOrdinal(node, rank);
+            }
+            return result;
+        }
+
+        // Merge the per-system lists; each is already ranked, so only the heads are compared
+        int[] nodes = new int[tries.length];
+        int[] cursors = new int[tries.length];
+        for (int s = 0; s < tries.length; s++) {
+            nodes[s] = tries[s].find(normalized);
+        }
+        int[] result = new int[max];
+        int count = 0;
+        while (count < max) {
+            int best = -1;
+            int bestScore = 0;
+            int bestOrdinal = 0;
+            for (int s = 0; s < tries.length; s++) {
+                if (nodes[s] < 0 || cursors[s] >= tries[s].completionCount(nodes[s])) {
+                    continue;
+                }
+                int score = tries[s].completionScore(nodes[s], cursors[s]);
+                int ordinal = tries[s].completionOrdinal(nodes[s], cursors[s]);
+                if (best < 0 || PrefixTrie.ranksBefore(score, ordinal, bestScore, bestOrdinal)) {
+                    best = s;
+                    bestScore = score;
+                    bestOrdinal = ordinal;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            result[count++] = bestOrdinal;
+            cursors[best]++;
+        }
+        return count == max ? result : Arrays.copyOf(result, count);
+    }
+
+    private static void addKeys(PrefixTrie.Builder builder, ConceptTable table, int ordinal) {
+        String display = table.lowerDisplay(ordinal);
+        // Shorter displays are more specific completions, so they win ties within a weight
+        int lengthPenalty = Math.min(display.length(), 0xFFFF);
+
+        builder.add(truncate(table.lowerCode(ordinal)), ordinal, score(CODE_WEIGHT, lengthPenalty));
+        builder.add(truncate(display), ordinal, score(DISPLAY_WEIGHT, lengthPenalty));
+        for (int i = 1; i < display.length(); i++) {
+            if (!Character.isLetterOrDigit(display.charAt(i - 1)) && Character.isLetterOrDigit(display.charAt(i))) {
+                builder.add(truncate(display.substring(i)), ordinal, score(WORD_WEIGHT, lengthPenalty));
+            }
+        }
+    }
+
+    private static int score(int weight, int lengthPenalty) {
+        return (weight << 16) | (0xFFFF - lengthPenalty);
+    }
+
+    private static String truncate(String key) {
+        return key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key;
+    }
+}
@@ -0,0 +1,76 @@
+// BloomFilter.java
+package com.healthcare.fhir.index;
+
+/**
+ * Bloom filter over strings. mightContain never returns false for a value that was added,
+ * and returns true for an absent value with roughly the false positive rate it was sized for.
+ * Probe positions use double hashing over one 64-bit hash (Kirsch and Mitzenmacher).
+ */
+public final class BloomFilter {
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    private BloomFilter(long bitCount, int hashCount) {
+        this.bits = new long[(int) ((bitCount + 63) >>> 6)];
+        this.bitCount = bitCount;
+        this.hashCount = hashCount;
+    }
+
+    /**
+     * Sizes a filter for the expected number of values and false positive rate.
+     */
+    public static BloomFilter create(int expectedValues, double falsePositiveRate) {
+        int n = Math.max(1, expectedValues);
+        double ln2 = Math.log(2);
+        long bitCount = Math.max(64, (long) Math.ceil(-n * Math.log(falsePositiveRate) / (ln2 * ln2)));
+        if (bitCount > (long) Integer.MAX_VALUE * 64) {
+            throw new IllegalArgumentException("Bloom filter too large: " + bitCount + " bits");
+        }
+        int hashCount = Math.max(1, (int) Math.round((double) bitCount / n * ln2));
+        return new BloomFilter(bitCount, hashCount);
+    }
+
+    public void put(String value) {
+        long hash = hash(value);
+        long h1 = hash >>> 32;
+        long h2 = hash & 0xFFFFFFFFL;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = (h1 + i * h2) % bitCount;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        long h1 = hash >>> 32;
+        long h2 = hash & 0xFFFFFFFFL;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = (h1 + i * h2) % bitCount;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long bitCount() { return bitCount; }
+
+    public int hashCount() { return hashCount; }
+
+    private static long hash(String value) {
+        // FNV-1a followed by the murmur3 finaliser so both halves are well mixed
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,63 @@
+// CodeSystemSnapshot.java
+package com.healthcare.fhir.index;
+
+import java.util.List;
+
+/**
+ * Immutable view of all code systems plus the search structures built over them.
+ * A new snapshot is built after every import and published with a single reference swap.
+ */
+public final class CodeSystemSnapshot {
+
+    private final ConceptTable concepts;
+    private final ConceptDictionary dictionary;
+    private final NgramIndex ngramIndex;
+    private final AutocompleteIndex autocompleteIndex;
+    private final FuzzyIndex fuzzyIndex;
+    private final DesignationIndex designationIndex;
+    private final RelevanceScorer relevanceScorer;
+    private final HierarchyIndex hierarchy;
+    private final long builtAt;
+
+    private CodeSystemSnapshot(ConceptTable concepts, ConceptDictionary dictionary, NgramIndex ngramIndex,
+                               AutocompleteIndex autocompleteIndex, FuzzyIndex fuzzyIndex,
+                               DesignationIndex designationIndex, RelevanceScorer relevanceScorer,
+                               HierarchyIndex hierarchy) {
+        this.concepts = concepts;
+        this.dictionary = dictionary;
+        this.ngramIndex = ngramIndex;
+        this.autocompleteIndex = autocompleteIndex;
+        this.fuzzyIndex = fuzzyIndex;
+        this.designationIndex = designationIndex;
+        this.relevanceScorer = relevanceScorer;
+        this.hierarchy = hierarchy;
+        this.builtAt = System.currentTimeMillis();
+    }
+
+    public static CodeSystemSnapshot build(ConceptTable concepts, List<HierarchyIndex.Edge> edges,
+                                           int autocompleteTopK, int fuzzyMaxDistance) {
+        ConceptDictionary dictionary = ConceptDictionary.build(concepts);
+        return new CodeSystemSnapshot(concepts, dictionary, NgramIndex.build(concepts),
+                AutocompleteIndex.build(concepts, autocompleteTopK),
+                FuzzyIndex.build(concepts, fuzzyMaxDistance), DesignationIndex.build(concepts),
+                RelevanceScorer.build(concepts), HierarchyIndex.build(concepts, dictionary, edges));
+    }
+
+    public ConceptTable getConcepts() { return concepts; }
+
+    public ConceptDictionary getDictionary() { return dictionary; }
+
+    public NgramIndex getNgramIndex() { return ngramIndex; }
+
+    public AutocompleteIndex getAutocompleteIndex() { return autocompleteIndex; }
+
+    public FuzzyIndex getFuzzyIndex() { return fuzzyIndex; }
+
+    public DesignationIndex getDesignationIndex() { return designationIndex; }
+
+    public RelevanceScorer getRelevanceScorer() { return relevanceScorer; }
+
+    public HierarchyIndex getHierarchy() { return hierarchy; }
+
+    public long getBuiltAt() { return builtAt; }
+}
@@ -0,0 +1,82 @@
+// ConceptDictionary.java
+package com.healthcare.fhir.index;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash from (system id, code) to table ordinal, for $lookup.
+ * Slots are two parallel int arrays probed linearly; the stored hash rejects most
+ * collisions before any string comparison. Immutable once built, so readers need no locks.
+ */
+public final class ConceptDictionary {
+
+    private static final int EMPTY = -1;
+
+    private final ConceptTable table;
+    private final int mask;
+    private final int[] slotOrdinals;
+    private final int[] slotHashes;
+
+    private ConceptDictionary(ConceptTable table, int[] slotOrdinals, int[] slotHashes) {
+        this.table = table;
+        this.mask = slotOrdinals.length - 1;
+        this.slotOrdinals = slotOrdinals;
+        this.slotHashes = slotHashes;
+    }
+
+    public static ConceptDictionary build(ConceptTable table) {
+        // Load factor of at most one half keeps probe sequences short
+        int capacity = Integer.highestOneBit(Math.max(2, table.size()) * 2 - 1) << 1;
+        int[] slotOrdinals = new int[capacity];
+        int[] slotHashes = new int[capacity];
+        Arrays.fill(slotOrdinals, EMPTY);
+
+        int mask = capacity - 1;
+        for (int ordinal = 0; ordinal < table.size(); ordinal++) {
+            int hash = hash(table.systemIdOf(ordinal), table.code(ordinal));
+            int slot = hash & mask;
+            while (slotOrdinals[slot] != EMPTY) {
+                int existing = slotOrdinals[slot];
+                // Duplicate (system, code) rows keep the first, which is the lowest id
+                if (slotHashes[slot] == hash && table.systemIdOf(existing) == table.systemIdOf(ordinal)
+                        && table.code(existing).equals(table.code(ordinal))) {
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if (slotOrdinals[slot] == EMPTY) {
+                slotOrdinals[slot] = ordinal;
+                slotHashes[slot] = hash;
+            }
+        }
+        return new ConceptDictionary(table, slotOrdinals, slotHashes);
+    }
+
+    /**
+     * Returns the ordinal of (systemUri, code), or -1 when the concept is not in the snapshot.
+     */
+    public int find(String systemUri, String code) {
+        int systemId = table.systemId(systemUri);
+        if (systemId < 0 || code == null) {
+            return -1;
+        }
+        int hash = hash(systemId, code);
+        int slot = hash & mask;
+        while (true) {
+            int ordinal = slotOrdinals[slot];
+            if (ordinal == EMPTY) {
+                return -1;
+            }
+            if (slotHashes[slot] == hash && table.systemIdOf(ordinal) == systemId && table.code(ordinal).equals(code)) {
+                return ordinal;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private static int hash(int systemId, String code) {
+        int h = code.hashCode() * 31 + systemId;
+        // Spread high bits into the low bits used for the slot index
+        return h ^ (h >>> 16);
+    }
+}
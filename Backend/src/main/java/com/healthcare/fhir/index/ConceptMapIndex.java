@@ -0,0 +1,184 @@
+// ConceptMapIndex.java
+package com.healthcare.fhir.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable adjacency index over the concept maps, for $translate.
+ * Source concepts are found through an open-addressing hash on (source system id, source code);
+ * the edges of source s are the slice [edgeStart[s], edgeStart[s + 1]) of column arrays holding
+ * a target system id, target code, equivalence id and comment id, so a translation reads
+ * arrays only. Repeated strings (systems, equivalences, comments) are stored once.
+ */
+public final class ConceptMapIndex {
+
+    private static final int EMPTY = -1;
+
+    private final String[] sourceSystems;
+    private final Map<String, Integer> sourceSystemIds;
+    private final int[] sourceSystemOf;
+    private final String[] sourceCodes;
+    private final int[] edgeStart;
+
+    private final int mask;
+    private final int[] slotSources;
+    private final int[] slotHashes;
+
+    private final String[] targetSystems;
+    private final Map<String, Integer> targetSystemIds;
+    private final int[] targetSystemOf;
+    private final String[] targetCodes;
+    private final String[] equivalences;
+    private final byte[] equivalenceOf;
+    private final String[] comments;
+    private final int[] commentOf;
+
+    private ConceptMapIndex(List<ConceptMapping> mappings) {
+        // Stable sort: edges of one source keep their stored order
+        List<ConceptMapping> sorted = new ArrayList<>(mappings);
+        sorted.sort(Comparator.comparing(ConceptMapping::sourceSystem).thenComparing(ConceptMapping::sourceCode));
+
+        int size = sorted.size();
+        this.targetSystemOf = new int[size];
+        this.targetCodes = new String[size];
+        this.equivalenceOf = new byte[size];
+        this.commentOf = new int[size];
+
+        Dictionary sourceSystemDictionary = new Dictionary();
+        Dictionary targetSystemDictionary = new Dictionary();
+        Dictionary equivalenceDictionary = new Dictionary();
+        Dictionary commentDictionary = new Dictionary();
+        List<Integer> sourceSystemList = new ArrayList<>();
+        List<String> sourceCodeList = new ArrayList<>();
+        int[] starts = new int[size + 1];
+
+        for (int edge = 0; edge < size; edge++) {
+            ConceptMapping mapping = sorted.get(edge);
+            if (edge == 0 || !mapping.sourceSystem().equals(sorted.get(edge - 1).sourceSystem())
+                    || !mapping.sourceCode().equals(sorted.get(edge - 1).sourceCode())) {
+                starts[sourceCodeList.size()] = edge;
+                sourceSystemList.add(sourceSystemDictionary.id(mapping.sourceSystem()));
+                sourceCodeList.add(mapping.sourceCode());
+            }
+            targetSystemOf[edge] = targetSystemDictionary.id(mapping.targetSystem());
+            targetCodes[edge] = mapping.targetCode();
+            equivalenceOf[edge] = (byte) equivalenceDictionary.id(mapping.equivalence());
+            commentOf[edge] = mapping.comment() != null ? commentDictionary.id(mapping.comment()) : EMPTY;
+        }
+        if (equivalenceDictionary.values.size() > Byte.MAX_VALUE) {
+            throw new IllegalStateException("Too many distinct equivalences: " + equivalenceDictionary.values.size());
+        }
+
+        int sources = sourceCodeList.size();
+        starts[sources] = size;
+        this.edgeStart = Arrays.copyOf(starts, sources + 1);
+        this.sourceSystemOf = sourceSystemList.stream().mapToInt(Integer::intValue).toArray();
+        this.sourceCodes = sourceCodeList.toArray(new String[0]);
+        this.sourceSystems = sourceSystemDictionary.values.toArray(new String[0]);
+        this.sourceSystemIds = sourceSystemDictionary.ids;
+        this.targetSystems = targetSystemDictionary.values.toArray(new String[0]);
+        this.targetSystemIds = targetSystemDictionary.ids;
+        this.equivalences = equivalenceDictionary.values.toArray(new String[0]);
+        this.comments = commentDictionary.values.toArray(new String[0]);
+
+        // Load factor of at most one half keeps probe sequences short
+        int capacity = Integer.highestOneBit(Math.max(2, sources) * 2 - 1) << 1;
+        this.mask = capacity - 1;
+        this.slotSources = new int[capacity];
+        this.slotHashes = new int[capacity];
+        Arrays.fill(slotSources, EMPTY);
+        for (int source = 0; source < sources; source++) {
+            int hash = hash(sourceSystemOf[source], sourceCodes[source]);
+            int slot = hash & mask;
+            while (slotSources[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            slotSources[slot] = source;
+            slotHashes[slot] = hash;
+        }
+    }
+
+    public static ConceptMapIndex build(List<ConceptMapping> mappings) {
+        return new ConceptMapIndex(mappings);
+    }
+
+    public int sourceCount() { return sourceCodes.length; }
+
+    public int size() { return targetCodes.length; }
+
+    /**
+     * Returns the source id of (sourceSystem, sourceCode), or -1 when it has no mappings.
+     */
+    public int find(String sourceSystem, String sourceCode) {
+        Integer systemId = sourceSystem != null ? sourceSystemIds.get(sourceSystem) : null;
+        if (systemId == null || sourceCode == null) {
+            return -1;
+        }
+        int hash = hash(systemId, sourceCode);
+        int slot = hash & mask;
+        while (true) {
+            int source = slotSources[slot];
+            if (source == EMPTY) {
+                return -1;
+            }
+            if (slotHashes[slot] == hash && sourceSystemOf[source] == systemId && sourceCodes[source].equals(sourceCode)) {
+                return source;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /** First edge of a source (inclusive). */
+    public int edgeStart(int source) { return edgeStart[source]; }
+
+    /** Last edge of a source (exclusive). */
+    public int edgeEnd(int source) { return edgeStart[source + 1]; }
+
+    public String sourceSystem(int source) { return sourceSystems[sourceSystemOf[source]]; }
+
+    public String sourceCode(int source) { return sourceCodes[source]; }
+
+    /**
+     * Returns the dictionary id of a target system URI, or -1 when no edge targets it.
+     */
+    public int targetSystemId(String targetSystem) {
+        Integer id = targetSystem != null ? targetSystemIds.get(targetSystem) : null;
+        return id != null ? id : -1;
+    }
+
+    public int targetSystemIdOf(int edge) { return targetSystemOf[edge]; }
+
+    public String targetSystem(int edge) { return targetSystems[targetSystemOf[edge]]; }
+
+    public String targetCode(int edge) { return targetCodes[edge]; }
+
+    public String equivalence(int edge) { return equivalences[equivalenceOf[edge]]; }
+
+    /** Comment text, or null when the edge has none. */
+    public String comment(int edge) {
+        return commentOf[edge] != EMPTY ? comments[commentOf[edge]] : null;
+    }
+
+    private static int hash(int systemId, String code) {
+        int h = code.hashCode() * 31 + systemId;
+        // Spread high bits into the low bits used for the slot index
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Dictionary {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int id(String value) {
+            return ids.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+        }
+    }
+}
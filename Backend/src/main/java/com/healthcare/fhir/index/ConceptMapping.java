@@ -0,0 +1,10 @@
+// ConceptMapping.java
+package com.healthcare.fhir.index;
+
+/**
+ * One concept map edge as held by the in-memory and mapped indexes; equivalence is the
+ * Equivalence constant name.
+ */
+public record ConceptMapping(String sourceSystem, String sourceCode, String targetSystem, String targetCode,
+                             String equivalence, String comment) {
+}
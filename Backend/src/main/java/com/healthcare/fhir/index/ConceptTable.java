@@ -0,0 +1,239 @@
+// ConceptTable.java
+package com.healthcare.fhir.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable, column-oriented copy of the code_system_entries rows.
+ * Rows are ordered by (systemUri, code, id), so every code system occupies a
+ * contiguous ordinal range and ordinal order is also the keyset order.
+ */
+public final class ConceptTable {
+
+    private final String[] systems;
+    private final Map<String, Integer> systemIds;
+    private final int[] systemStart;
+    private final int[] systemEnd;
+
+    private final long[] ids;
+    private final int[] systemOf;
+    private final String[] codes;
+    private final String[] displays;
+    private final String[] lowerCodes;
+    private final String[] lowerDisplays;
+
+    // Definitions packed into one char array; a null definition is stored as an empty slice
+    private final char[] definitionChars;
+    private final int[] definitionStart;
+
+    // Versions are few and repeated, so each row only keeps an index into the distinct values
+    private final String[] versions;
+    private final int[] versionOf;
+
+    // Designations of ordinal i are designations[designationStart[i] .. designationStart[i + 1])
+    private final int[] designationStart;
+    private final Designation[] designations;
+
+    private ConceptTable(Builder builder) {
+        List<Row> rows = builder.rows;
+        rows.sort(Comparator.comparing((Row r) -> r.system)
+                .thenComparing(r -> r.code)
+                .thenComparingLong(r -> r.id));
+
+        int size = rows.size();
+        this.ids = new long[size];
+        this.systemOf = new int[size];
+        this.codes = new String[size];
+        this.displays = new String[size];
+        this.lowerCodes = new String[size];
+        this.lowerDisplays = new String[size];
+        this.designationStart = new int[size + 1];
+        List<Designation> designationList = new ArrayList<>();
+        this.definitionStart = new int[size + 1];
+        this.versionOf = new int[size];
+        StringBuilder definitionText = new StringBuilder();
+        List<String> versionList = new ArrayList<>();
+        Map<String, Integer> versionIds = new HashMap<>();
+
+        List<String> systemList = new ArrayList<>();
+        this.systemIds = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            Row row = rows.get(i);
+            Integer systemId = systemIds.get(row.system);
+            if (systemId == null) {
+                systemId = systemList.size();
+                systemList.add(row.system);
+                systemIds.put(row.system, systemId);
+            }
+            ids[i] = row.id;
+            systemOf[i] = systemId;
+            codes[i] = row.code;
+            displays[i] = row.display;
+            lowerCodes[i] = normalize(row.code);
+            lowerDisplays[i] = normalize(row.display);
+            designationStart[i] = designationList.size();
+            designationList.addAll(row.designations);
+            definitionStart[i] = definitionText.length();
+            if (row.definition != null) {
+                definitionText.append(row.definition);
+            }
+            versionOf[i] = versionIds.computeIfAbsent(row.version, version -> {
+                versionList.add(version);
+                return versionList.size() - 1;
+            });
+        }
+        designationStart[size] = designationList.size();
+        this.designations = designationList.toArray(new Designation[0]);
+        definitionStart[size] = definitionText.length();
+        this.definitionChars = new char[definitionText.length()];
+        definitionText.getChars(0, definitionText.length(), definitionChars, 0);
+        this.versions = versionList.toArray(new String[0]);
+
+        this.systems = systemList.toArray(new String[0]);
+        this.systemStart = new int[systems.length];
+        this.systemEnd = new int[systems.length];
+        Arrays.fill(systemStart, -1);
+        for (int i = 0; i < size; i++) {
+            int systemId = systemOf[i];
+            if (systemStart[systemId] < 0) {
+                systemStart[systemId] = i;
+            }
+            systemEnd[systemId] = i + 1;
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Lower-cases text the same way the LIKE queries in CodeSystemEntryRepository do.
+     */
+    public static String normalize(String text) {
+        return text != null ? text.toLowerCase(Locale.ROOT) : "";
+    }
+
+    public int size() { return ids.length; }
+
+    public int systemCount() { return systems.length; }
+
+    /**
+     * Returns the dictionary id of a system URI, or -1 when the system is unknown.
+     */
+    public int systemId(String systemUri) {
+        Integer systemId = systemUri != null ? systemIds.get(systemUri) : null;
+        return systemId != null ? systemId : -1;
+    }
+
+    public String systemUri(int systemId) { return systems[systemId]; }
+
+    /** First ordinal of a system (inclusive). */
+    public int systemStart(int systemId) { return systemStart[systemId]; }
+
+    /** Last ordinal of a system (exclusive). */
+    public int systemEnd(int systemId) { return systemEnd[systemId]; }
+
+    public long id(int ordinal) { return ids[ordinal]; }
+
+    public int systemIdOf(int ordinal) { return systemOf[ordinal]; }
+
+    public String system(int ordinal) { return systems[systemOf[ordinal]]; }
+
+    public String code(int ordinal) { return codes[ordinal]; }
+
+    public String display(int ordinal) { return displays[ordinal]; }
+
+    /** Definition text, or null when the concept has none. */
+    public String definition(int ordinal) {
+        int start = definitionStart[ordinal];
+        int end = definitionStart[ordinal + 1];
+        return end > start ? new String(definitionChars, start, end - start) : null;
+    }
+
+    public String version(int ordinal) { return versions[versionOf[ordinal]]; }
+
+    String lowerCode(int ordinal) { return lowerCodes[ordinal]; }
+
+    String lowerDisplay(int ordinal) { return lowerDisplays[ordinal]; }
+
+    /** Position of the first designation of an ordinal; designations are stored in ordinal order. */
+    public int designationStart(int ordinal) { return designationStart[ordinal]; }
+
+    public int designationCount() { return designations.length; }
+
+    public Designation designation(int position) { return designations[position]; }
+
+    /**
+     * Returns the display in the requested language when the concept has a designation in it,
+     * otherwise the default display.
+     */
+    public String display(int ordinal, String language) {
+        if (language != null && !language.isEmpty()) {
+            for (int i = designationStart[ordinal]; i < designationStart[ordinal + 1]; i++) {
+                if (designations[i].hasLanguage(language)) {
+                    return designations[i].value();
+                }
+            }
+        }
+        return displays[ordinal];
+    }
+
+    /**
+     * Returns the first ordinal positioned strictly after (systemUri, code, id) in table order.
+     */
+    public int seek(String systemUri, String code, long id) {
+        int lo = 0;
+        int hi = ids.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = systems[systemOf[mid]].compareTo(systemUri);
+            if (cmp == 0) {
+                cmp = codes[mid].compareTo(code);
+            }
+            if (cmp == 0) {
+                cmp = Long.compare(ids[mid], id);
+            }
+            if (cmp <= 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Substring match on code or display, equivalent to the repository's LIKE '%filter%'.
+     */
+    public boolean matches(int ordinal, String normalizedFilter) {
+        return lowerCodes[ordinal].contains(normalizedFilter) || lowerDisplays[ordinal].contains(normalizedFilter);
+    }
+
+    public static final class Builder {
+        private final List<Row> rows = new ArrayList<>();
+
+        public Builder add(long id, String systemUri, String code, String display) {
+            return add(id, systemUri, code, display, null, null, List.of());
+        }
+
+        public Builder add(long id, String systemUri, String code, String display, String definition, String version,
+                           List<Designation> designations) {
+            rows.add(new Row(id, systemUri, code, display != null ? display : "", definition, version, designations));
+            return this;
+        }
+
+        public ConceptTable build() {
+            return new ConceptTable(this);
+        }
+    }
+
+    private record Row(long id, String system, String code, String display, String definition, String version,
+                       List<Designation> designations) {
+    }
+}
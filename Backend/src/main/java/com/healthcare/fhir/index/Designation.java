@@ -0,0 +1,30 @@
+// Designation.java
+package com.healthcare.fhir.index;
+
+/**
+ * A synonym of a concept in a given language, e.g. the Devanagari spelling of a NAMASTE display.
+ *
+ * @param language BCP-47 tag such as "hi" or "ta-IN", or null when unspecified
+ * @param use      designation use code, or null
+ * @param value    the designation text
+ */
+public record Designation(String language, String use, String value) {
+
+    /**
+     * True when this designation is in the requested language; "hi" also accepts "hi-IN".
+     */
+    public boolean hasLanguage(String requested) {
+        if (requested == null || requested.isEmpty()) {
+            return true;
+        }
+        if (language == null) {
+            return false;
+        }
+        if (language.equalsIgnoreCase(requested)) {
+            return true;
+        }
+        return language.length() > requested.length()
+                && language.charAt(requested.length()) == '-'
+                && language.regionMatches(true, 0, requested, 0, requested.length());
+    }
+}
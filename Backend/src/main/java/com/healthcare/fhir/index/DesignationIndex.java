@@ -0,0 +1,153 @@
+// DesignationIndex.java
+package com.healthcare.fhir.index;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Trigram index over concept designations (multilingual synonyms), folded with
+ * TermNormalizer.foldScript so Devanagari spelling variants match each other.
+ * Postings hold designation positions, which follow ordinal order, so a system
+ * restriction is again a contiguous range.
+ */
+public final class DesignationIndex {
+
+    private static final int[] EMPTY = new int[0];
+
+    private final ConceptTable table;
+    private final String[] folded;
+    private final int[] owner;
+    private final Map<Long, int[]> postings;
+
+    private DesignationIndex(ConceptTable table, String[] folded, int[] owner, Map<Long, int[]> postings) {
+        this.table = table;
+        this.folded = folded;
+        this.owner = owner;
+        this.postings = postings;
+    }
+
+    public static DesignationIndex build(ConceptTable table) {
+        int count = table.designationCount();
+        String[] folded = new String[count];
+        int[] owner = new int[count];
+        Map<Long, PositionList> builders = new HashMap<>();
+
+        for (int ordinal = 0; ordinal < table.size(); ordinal++) {
+            for (int position = table.designationStart(ordinal); position < table.designationStart(ordinal + 1); position++) {
+                String text = TermNormalizer.foldScript(table.designation(position).value());
+                folded[position] = text;
+                owner[position] = ordinal;
+                for (int i = 0; i + NgramIndex.GRAM_LENGTH <= text.length(); i++) {
+                    builders.computeIfAbsent(NgramIndex.gram(text, i), key -> new PositionList()).add(position);
+                }
+            }
+        }
+
+        Map<Long, int[]> postings = new HashMap<>(builders.size() * 4 / 3 + 1);
+        builders.forEach((gram, builder) -> postings.put(gram, builder.toArray()));
+        return new DesignationIndex(table, folded, owner, postings);
+    }
+
+    public int size() { return folded.length; }
+
+    /**
+     * Returns the ordinals with a designation containing the filter, in ordinal order.
+     *
+     * @param systemId restrict matches to one code system, or -1 for all systems
+     * @param language only consider designations in this language, or null for any
+     */
+    public int[] search(String filter, int systemId, String language) {
+        String normalized = TermNormalizer.foldScript(filter);
+        if (normalized.isEmpty() || folded.length == 0) {
+            return EMPTY;
+        }
+        int from = systemId >= 0 ? table.designationStart(table.systemStart(systemId)) : 0;
+        int to = systemId >= 0 ? table.designationStart(table.systemEnd(systemId)) : folded.length;
+
+        int[] candidates;
+        if (normalized.length() < NgramIndex.GRAM_LENGTH) {
+            candidates = new int[to - from];
+            for (int i = 0; i < candidates.length; i++) {
+                candidates[i] = from + i;
+            }
+        } else {
+            int[][] lists = new int[normalized.length() - NgramIndex.GRAM_LENGTH + 1][];
+            for (int i = 0; i < lists.length; i++) {
+                int[] posting = postings.get(NgramIndex.gram(normalized, i));
+                if (posting == null) {
+                    return EMPTY;
+                }
+                lists[i] = posting;
+            }
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+            candidates = NgramIndex.slice(lists[0], from, to);
+            for (int i = 1; i < lists.length && candidates.length > 0; i++) {
+                if (lists[i] != lists[i - 1]) {
+                    candidates = NgramIndex.intersect(candidates, lists[i]);
+                }
+            }
+        }
+
+        // Positions ascend with ordinals, so owners come out sorted and only adjacent repeats need skipping
+        int[] result = new int[candidates.length];
+        int matched = 0;
+        for (int position : candidates) {
+            if (folded[position].contains(normalized) && table.designation(position).hasLanguage(language)) {
+                int ordinal = owner[position];
+                if (matched == 0 || result[matched - 1] != ordinal) {
+                    result[matched++] = ordinal;
+                }
+            }
+        }
+        return Arrays.copyOf(result, matched);
+    }
+
+    /**
+     * Merges two ascending ordinal arrays without duplicates.
+     */
+    public static int[] union(int[] a, int[] b) {
+        if (b.length == 0) {
+            return a;
+        }
+        if (a.length == 0) {
+            return b;
+        }
+        int[] result = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < a.length || j < b.length) {
+            int next;
+            if (j >= b.length || (i < a.length && a[i] < b[j])) {
+                next = a[i++];
+            } else if (i >= a.length || b[j] < a[i]) {
+                next = b[j++];
+            } else {
+                next = a[i++];
+                j++;
+            }
+            result[count++] = next;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static final class PositionList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int position) {
+            if (size > 0 && values[size - 1] == position) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = position;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,306 @@
+// FuzzyIndex.java
+package com.healthcare.fhir.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Typo-tolerant word matching over display tokens folded by TermNormalizer.
+ * Uses a SymSpell-style deletion index: every vocabulary word is registered under all
+ * variants of its prefix with up to maxDistance characters deleted, so a query word only
+ * has to generate its own deletions and look them up, with no scan over the vocabulary.
+ */
+public final class FuzzyIndex {
+
+    // Deletions are generated over this many leading characters, bounding index size
+    private static final int PREFIX_LENGTH = 7;
+
+    private static final int TERM_BITS = 24;
+    private static final long TERM_MASK = (1L << TERM_BITS) - 1;
+
+    private static final byte NO_MATCH = (byte) 0xFF;
+    private static final int MAX_TOTAL = 0xFE;
+
+    private final ConceptTable table;
+    private final int maxDistance;
+    private final String[] terms;
+    private final int[][] termPostings;
+
+    // Deletion variants as sorted 39-bit hashes, each owning a slice of deleteTerms.
+    // A hash collision only adds a candidate that the distance check then rejects.
+    private final long[] deleteHashes;
+    private final int[] deleteStart;
+    private final int[] deleteTerms;
+
+    private FuzzyIndex(ConceptTable table, int maxDistance, String[] terms, int[][] termPostings,
+                       long[] deleteHashes, int[] deleteStart, int[] deleteTerms) {
+        this.table = table;
+        this.maxDistance = maxDistance;
+        this.terms = terms;
+        this.termPostings = termPostings;
+        this.deleteHashes = deleteHashes;
+        this.deleteStart = deleteStart;
+        this.deleteTerms = deleteTerms;
+    }
+
+    public static FuzzyIndex build(ConceptTable table, int maxDistance) {
+        Map<String, Integer> termIds = new HashMap<>();
+        List<String> terms = new ArrayList<>();
+        List<IntList> postings = new ArrayList<>();
+
+        for (int ordinal = 0; ordinal < table.size(); ordinal++) {
+            for (String token : TermNormalizer.tokens(table.display(ordinal))) {
+                Integer termId = termIds.get(token);
+                if (termId == null) {
+                    termId = terms.size();
+                    termIds.put(token, termId);
+                    terms.add(token);
+                    postings.add(new IntList());
+                }
+                postings.get(termId).addAscending(ordinal);
+            }
+        }
+
+        if (terms.size() > TERM_MASK) {
+            throw new IllegalStateException("Vocabulary too large for the fuzzy index: " + terms.size());
+        }
+
+        // Pack (variant hash, term id) into longs so one primitive sort groups terms by variant
+        long[] pairs = new long[16];
+        int pairCount = 0;
+        for (int termId = 0; termId < terms.size(); termId++) {
+            for (String variant : deletions(prefix(terms.get(termId)), maxDistance)) {
+                if (pairCount == pairs.length) {
+                    pairs = Arrays.copyOf(pairs, pairCount * 2);
+                }
+                pairs[pairCount++] = (hash(variant) << TERM_BITS) | termId;
+            }
+        }
+        Arrays.sort(pairs, 0, pairCount);
+
+        long[] hashes = new long[pairCount];
+        int[] starts = new int[pairCount + 1];
+        int[] deleteTerms = new int[pairCount];
+        int keys = 0;
+        for (int i = 0; i < pairCount; i++) {
+            long variantHash = pairs[i] >>> TERM_BITS;
+            if (keys == 0 || hashes[keys - 1] != variantHash) {
+                hashes[keys] = variantHash;
+                starts[keys] = i;
+                keys++;
+            }
+            deleteTerms[i] = (int) (pairs[i] & TERM_MASK);
+        }
+        starts[keys] = pairCount;
+
+        int[][] termPostings = new int[postings.size()][];
+        for (int i = 0; i < termPostings.length; i++) {
+            termPostings[i] = postings.get(i).toArray();
+        }
+
+        return new FuzzyIndex(table, maxDistance, terms.toArray(new String[0]), termPostings,
+                Arrays.copyOf(hashes, keys), Arrays.copyOf(starts, keys + 1), deleteTerms);
+    }
+
+    public int termCount() { return terms.length; }
+
+    /**
+     * Returns concepts containing every query word within the allowed edit distance,
+     * ordered by total distance and then by table order.
+     *
+     * @param systemId restrict matches to one code system, or -1 for all systems
+     */
+    public int[] search(String query, int systemId, int maxEdits) {
+        List<String> words = TermNormalizer.tokens(query);
+        if (words.isEmpty()) {
+            return new int[0];
+        }
+        int from = systemId >= 0 ? table.systemStart(systemId) : 0;
+        int to = systemId >= 0 ? table.systemEnd(systemId) : table.size();
+
+        // Dense per-ordinal distances over the system range: linear in postings, no sorting or boxing
+        int span = to - from;
+        byte[] totals = null;
+        for (String word : words) {
+            int allowed = Math.min(Math.min(maxEdits, maxDistance), allowedEdits(word));
+            byte[] best = new byte[span];
+            Arrays.fill(best, NO_MATCH);
+            boolean any = false;
+            for (Map.Entry<Integer, Integer> term : matchTerms(word, allowed).entrySet()) {
+                int[] posting = termPostings[term.getKey()];
+                byte distance = (byte) (int) term.getValue();
+                for (int i = lowerBound(posting, from); i < posting.length && posting[i] < to; i++) {
+                    int slot = posting[i] - from;
+                    if ((distance & 0xFF) < (best[slot] & 0xFF)) {
+                        best[slot] = distance;
+                        any = true;
+                    }
+                }
+            }
+            if (!any) {
+                return new int[0];
+            }
+
+            if (totals == null) {
+                totals = best;
+            } else {
+                for (int slot = 0; slot < span; slot++) {
+                    if (totals[slot] != NO_MATCH) {
+                        totals[slot] = best[slot] == NO_MATCH ? NO_MATCH
+                                : (byte) Math.min((totals[slot] & 0xFF) + (best[slot] & 0xFF), MAX_TOTAL);
+                    }
+                }
+            }
+        }
+
+        // Counting sort by total distance keeps table order within each distance
+        int[] buckets = new int[MAX_TOTAL + 2];
+        for (byte total : totals) {
+            if (total != NO_MATCH) {
+                buckets[(total & 0xFF) + 1]++;
+            }
+        }
+        for (int d = 1; d < buckets.length; d++) {
+            buckets[d] += buckets[d - 1];
+        }
+        int[] result = new int[buckets[buckets.length - 1]];
+        for (int slot = 0; slot < span; slot++) {
+            if (totals[slot] != NO_MATCH) {
+                result[buckets[totals[slot] & 0xFF]++] = from + slot;
+            }
+        }
+        return result;
+    }
+
+    private static int lowerBound(int[] sorted, int key) {
+        int index = Arrays.binarySearch(sorted, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Short words tolerate fewer edits, otherwise "kasa" would match half the vocabulary.
+     */
+    private static int allowedEdits(String word) {
+        if (word.length() <= 3) {
+            return 0;
+        }
+        return word.length() <= 5 ? 1 : 2;
+    }
+
+    private Map<Integer, Integer> matchTerms(String word, int allowed) {
+        Map<Integer, Integer> matches = new HashMap<>();
+        Set<Integer> checked = new HashSet<>();
+        for (String variant : deletions(prefix(word), allowed)) {
+            int key = Arrays.binarySearch(deleteHashes, hash(variant));
+            if (key < 0) {
+                continue;
+            }
+            for (int i = deleteStart[key]; i < deleteStart[key + 1]; i++) {
+                int termId = deleteTerms[i];
+                if (!checked.add(termId)) {
+                    continue;
+                }
+                String term = terms[termId];
+                if (Math.abs(term.length() - word.length()) > allowed) {
+                    continue;
+                }
+                int distance = distance(word, term, allowed);
+                if (distance <= allowed) {
+                    matches.put(termId, distance);
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static long hash(String variant) {
+        // FNV-1a, truncated so (hash << TERM_BITS) | termId keeps the sign bit clear and sorts like the hash
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < variant.length(); i++) {
+            hash ^= variant.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash >>> (TERM_BITS + 1);
+    }
+
+    private static String prefix(String word) {
+        return word.length() > PREFIX_LENGTH ? word.substring(0, PREFIX_LENGTH) : word;
+    }
+
+    private static Set<String> deletions(String word, int maxDeletes) {
+        Set<String> variants = new HashSet<>();
+        variants.add(word);
+        List<String> frontier = List.of(word);
+        for (int depth = 0; depth < maxDeletes; depth++) {
+            List<String> next = new ArrayList<>();
+            for (String current : frontier) {
+                for (int i = 0; i < current.length(); i++) {
+                    String deleted = current.substring(0, i) + current.substring(i + 1);
+                    if (variants.add(deleted)) {
+                        next.add(deleted);
+                    }
+                }
+            }
+            frontier = next;
+        }
+        return variants;
+    }
+
+    /**
+     * Optimal string alignment distance (Damerau-Levenshtein with adjacent transpositions),
+     * abandoning the computation once every cell in a row exceeds the limit.
+     */
+    static int distance(String a, String b, int limit) {
+        int[] previousPrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    value = Math.min(value, previousPrevious[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > limit) {
+                return limit + 1;
+            }
+            int[] recycled = previousPrevious;
+            previousPrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+
+    private static final class IntList {
+        private int[] values = new int[2];
+        private int size;
+
+        void addAscending(int value) {
+            if (size > 0 && values[size - 1] == value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+// HierarchyIndex.java
+package com.healthcare.fhir.index;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Transitive closure of the is-a hierarchy as interval labels, so subsumption is a binary search
+ * and a descendant set is a few contiguous runs, with no graph walk at query time.
+ *
+ * Every concept gets a post-order number from a depth-first walk of a spanning forest; a concept's
+ * descendants in that forest are exactly the numbers [entry, post]. Concepts with several parents
+ * also reach descendants outside their own subtree, so each concept keeps the merged intervals of
+ * its own subtree and of all its children (Agrawal, Borgida and Jagadish's compressed closure).
+ * Edges that would close a cycle are dropped.
+ */
+public final class HierarchyIndex {
+
+    private final int[] post;
+    private final int[] ordinalAt;
+
+    // Intervals of ordinal i are (lows[k], highs[k]) for k in [intervalStart[i], intervalStart[i + 1]), sorted by low
+    private final int[] intervalStart;
+    private final int[] lows;
+    private final int[] highs;
+
+    // Direct links as compressed adjacency lists, kept for $lookup parent/child properties
+    private final int[] parentStart;
+    private final int[] parents;
+    private final int[] childStart;
+    private final int[] children;
+
+    private final int droppedEdges;
+
+    private HierarchyIndex(int[] post, int[] ordinalAt, int[] intervalStart, int[] lows, int[] highs,
+                           int[] parentStart, int[] parents, int[] childStart, int[] children, int droppedEdges) {
+        this.post = post;
+        this.ordinalAt = ordinalAt;
+        this.intervalStart = intervalStart;
+        this.lows = lows;
+        this.highs = highs;
+        this.parentStart = parentStart;
+        this.parents = parents;
+        this.childStart = childStart;
+        this.children = children;
+        this.droppedEdges = droppedEdges;
+    }
+
+    /**
+     * One stored is-a link; edges whose codes are not in the table are ignored.
+     */
+    public record Edge(String system, String parentCode, String childCode) {
+    }
+
+    public static HierarchyIndex build(ConceptTable table, ConceptDictionary dictionary, List<Edge> edges) {
+        int size = table.size();
+
+        // (child, parent) ordinal pairs packed into longs so one sort groups and deduplicates them
+        long[] links = new long[edges.size()];
+        int linkCount = 0;
+        for (Edge edge : edges) {
+            int parent = dictionary.find(edge.system(), edge.parentCode());
+            int child = dictionary.find(edge.system(), edge.childCode());
+            if (parent >= 0 && child >= 0 && parent != child) {
+                links[linkCount++] = ((long) child << 32) | parent;
+            }
+        }
+        Arrays.sort(links, 0, linkCount);
+        int distinct = 0;
+        for (int i = 0; i < linkCount; i++) {
+            if (distinct == 0 || links[distinct - 1] != links[i]) {
+                links[distinct++] = links[i];
+            }
+        }
+
+        int[] parentStart = new int[size + 1];
+        int[] parents = new int[distinct];
+        int[] childStart = new int[size + 1];
+        int[] children = new int[distinct];
+        for (int i = 0; i < distinct; i++) {
+            parentStart[(int) (links[i] >>> 32) + 1]++;
+            childStart[(int) links[i] + 1]++;
+        }
+        for (int i = 0; i < size; i++) {
+            parentStart[i + 1] += parentStart[i];
+            childStart[i + 1] += childStart[i];
+        }
+        int[] childFill = Arrays.copyOf(childStart, size);
+        for (int i = 0; i < distinct; i++) {
+            int child = (int) (links[i] >>> 32);
+            int parent = (int) links[i];
+            parents[i] = parent;
+            children[childFill[parent]++] = child;
+        }
+
+        // Iterative depth-first walk: roots first, then whatever only a cycle leads to
+        int[] post = new int[size];
+        int[] ordinalAt = new int[size];
+        int[] entry = new int[size];
+        byte[] state = new byte[size];
+        boolean[] backEdge = new boolean[distinct];
+        int[] stack = new int[size];
+        int[] cursor = new int[size];
+        int counter = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int root = 0; root < size; root++) {
+                if (state[root] != 0 || (pass == 0 && parentStart[root + 1] > parentStart[root])) {
+                    continue;
+                }
+                int depth = 0;
+                stack[depth] = root;
+                cursor[depth] = childStart[root];
+                state[root] = 1;
+                entry[root] = counter;
+                while (depth >= 0) {
+                    int node = stack[depth];
+                    if (cursor[depth] < childStart[node + 1]) {
+                        int child = children[cursor[depth]++];
+                        if (state[child] == 0) {
+                            state[child] = 1;
+                            entry[child] = counter;
+                            depth++;
+                            stack[depth] = child;
+                            cursor[depth] = childStart[child];
+                        } else if (state[child] == 1) {
+                            backEdge[edgeIndex(parentStart, parents, child, node)] = true;
+                        }
+                    } else {
+                        state[node] = 2;
+                        post[node] = counter;
+                        ordinalAt[counter] = node;
+                        counter++;
+                        depth--;
+                    }
+                }
+            }
+        }
+
+        // Children always finish before their parents, so post order sees complete child labels
+        int[][] labels = new int[size][];
+        int dropped = 0;
+        for (boolean back : backEdge) {
+            if (back) {
+                dropped++;
+            }
+        }
+        int intervalCount = 0;
+        for (int p = 0; p < size; p++) {
+            int node = ordinalAt[p];
+            int[] merged = {entry[node], post[node]};
+            for (int k = childStart[node]; k < childStart[node + 1]; k++) {
+                int child = children[k];
+                if (backEdge[edgeIndex(parentStart, parents, child, node)]) {
+                    continue;
+                }
+                int[] childLabel = labels[child];
+                // A forest child's whole label already lies within this node's own interval
+                if (childLabel.length == 2 && childLabel[0] >= entry[node] && childLabel[1] <= post[node]) {
+                    continue;
+                }
+                merged = merge(merged, childLabel);
+            }
+            labels[node] = merged;
+            intervalCount += merged.length / 2;
+        }
+
+        int[] intervalStart = new int[size + 1];
+        int[] lows = new int[intervalCount];
+        int[] highs = new int[intervalCount];
+        int k = 0;
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            intervalStart[ordinal] = k;
+            int[] label = labels[ordinal];
+            for (int i = 0; i < label.length; i += 2) {
+                lows[k] = label[i];
+                highs[k] = label[i + 1];
+                k++;
+            }
+        }
+        intervalStart[size] = k;
+
+        return new HierarchyIndex(post, ordinalAt, intervalStart, lows, highs,
+                parentStart, parents, childStart, children, dropped);
+    }
+
+    // Position of the (child, parent) link in the parent list of child
+    private static int edgeIndex(int[] parentStart, int[] parents, int child, int parent) {
+        return Arrays.binarySearch(parents, parentStart[child], parentStart[child + 1], parent);
+    }
+
+    // Union of two sorted, disjoint interval lists stored as [low, high, low, high, ...]
+    private static int[] merge(int[] a, int[] b) {
+        int[] out = new int[a.length + b.length];
+        int n = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length) {
+            int low;
+            int high;
+            if (j >= b.length || (i < a.length && a[i] <= b[j])) {
+                low = a[i];
+                high = a[i + 1];
+                i += 2;
+            } else {
+                low = b[j];
+                high = b[j + 1];
+                j += 2;
+            }
+            if (n > 0 && low <= out[n - 1] + 1) {
+                out[n - 1] = Math.max(out[n - 1], high);
+            } else {
+                out[n++] = low;
+                out[n++] = high;
+            }
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    public int edgeCount() { return parents.length; }
+
+    /** Links skipped because they would have closed a cycle. */
+    public int droppedEdges() { return droppedEdges; }
+
+    public int intervalCount() { return lows.length; }
+
+    /**
+     * True when descendant is ancestor itself or reachable from it through is-a links.
+     */
+    public boolean subsumes(int ancestor, int descendant) {
+        int target = post[descendant];
+        int from = intervalStart[ancestor];
+        int to = intervalStart[ancestor + 1];
+        // Last interval starting at or before the target
+        int lo = from;
+        int hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (lows[mid] <= target) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo > from && highs[lo - 1] >= target;
+    }
+
+    /**
+     * The concept and all its descendants, in table order.
+     */
+    public int[] descendantsOrSelf(int ordinal) {
+        int count = 0;
+        for (int k = intervalStart[ordinal]; k < intervalStart[ordinal + 1]; k++) {
+            count += highs[k] - lows[k] + 1;
+        }
+        int[] result = new int[count];
+        int n = 0;
+        for (int k = intervalStart[ordinal]; k < intervalStart[ordinal + 1]; k++) {
+            for (int p = lows[k]; p <= highs[k]; p++) {
+                result[n++] = ordinalAt[p];
+            }
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Keeps the ordinals, given in table order, that are the concept or one of its descendants.
+     */
+    public int[] retainDescendantsOrSelf(int ordinal, int[] ordinals) {
+        int[] result = new int[ordinals.length];
+        int n = 0;
+        for (int candidate : ordinals) {
+            if (subsumes(ordinal, candidate)) {
+                result[n++] = candidate;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    public int[] parents(int ordinal) {
+        return Arrays.copyOfRange(parents, parentStart[ordinal], parentStart[ordinal + 1]);
+    }
+
+    public int[] children(int ordinal) {
+        int[] result = Arrays.copyOfRange(children, childStart[ordinal], childStart[ordinal + 1]);
+        Arrays.sort(result);
+        return result;
+    }
+}
@@ -0,0 +1,324 @@
+// MappedTerminology.java
+package com.healthcare.fhir.index;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only terminology snapshot stored in a binary file and read through a memory mapping,
+ * so lookups come straight off the OS page cache and processes on one host share the pages.
+ *
+ * Layout (big-endian): a header with the record counts and a content stamp, then fixed-size records
+ * for systems, concepts (in ConceptTable order), designations, concept map sources (sorted by system
+ * and code) and their target edges, then a heap of UTF-8 strings. Records refer to strings by heap offset
+ * and byte length, with a length of -1 for null.
+ */
+public final class MappedTerminology {
+
+    private static final int MAGIC = 0x54524D31; // "TRM1"
+    private static final int FORMAT_VERSION = 2;
+
+    private static final int HEADER_BYTES = 40;
+    private static final int SYSTEM_BYTES = 16;
+    private static final int CONCEPT_BYTES = 48;
+    private static final int DESIGNATION_BYTES = 24;
+    private static final int SOURCE_BYTES = 20;
+    private static final int EDGE_BYTES = 32;
+
+    private final ByteBuffer buffer;
+    private final Path path;
+    private final int systemCount;
+    private final int conceptCount;
+    private final int designationCount;
+    private final int sourceCount;
+    private final int edgeCount;
+    private final int systemsAt;
+    private final int conceptsAt;
+    private final int designationsAt;
+    private final int sourcesAt;
+    private final int edgesAt;
+    private final int heapAt;
+
+    private MappedTerminology(Path path, ByteBuffer buffer) {
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IllegalStateException("Not a terminology snapshot: " + path);
+        }
+        if (buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IllegalStateException("Unsupported snapshot format " + buffer.getInt(4) + ": " + path);
+        }
+        this.systemCount = buffer.getInt(8);
+        this.conceptCount = buffer.getInt(12);
+        this.designationCount = buffer.getInt(16);
+        this.sourceCount = buffer.getInt(20);
+        this.edgeCount = buffer.getInt(24);
+        this.systemsAt = HEADER_BYTES;
+        this.conceptsAt = systemsAt + systemCount * SYSTEM_BYTES;
+        this.designationsAt = conceptsAt + conceptCount * CONCEPT_BYTES;
+        this.sourcesAt = designationsAt + designationCount * DESIGNATION_BYTES;
+        this.edgesAt = sourcesAt + sourceCount * SOURCE_BYTES;
+        this.heapAt = edgesAt + edgeCount * EDGE_BYTES;
+        if (heapAt + buffer.getInt(28) != buffer.capacity()) {
+            throw new IllegalStateException("Truncated terminology snapshot: " + path);
+        }
+    }
+
+    /**
+     * Maps an existing snapshot file read-only. The mapping stays valid after the file is replaced.
+     */
+    public static MappedTerminology open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Snapshot too large to map: " + path);
+            }
+            return new MappedTerminology(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the table and concept map edges to a temporary file and moves it over the target,
+     * so readers never see a partially written snapshot.
+     *
+     * @param stamp describes the database content the snapshot was built from, checked before the file is trusted again
+     */
+    public static void write(Path path, ConceptTable table, List<ConceptMapping> mappings, String stamp) throws IOException {
+        StringHeap heap = new StringHeap();
+
+        List<ConceptMapping> sorted = new ArrayList<>(mappings);
+        sorted.sort(Comparator.comparing(ConceptMapping::sourceSystem).thenComparing(ConceptMapping::sourceCode));
+        int sources = 0;
+        for (int i = 0; i < sorted.size(); i++) {
+            if (i == 0 || !sameSource(sorted.get(i - 1), sorted.get(i))) {
+                sources++;
+            }
+        }
+
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                // String refs are assigned while the records are written, so the heap length goes in last
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(table.systemCount());
+                out.writeInt(table.size());
+                out.writeInt(table.designationCount());
+                out.writeInt(sources);
+                out.writeInt(sorted.size());
+                out.writeInt(0);
+                heap.write(out, stamp);
+
+                for (int systemId = 0; systemId < table.systemCount(); systemId++) {
+                    heap.write(out, table.systemUri(systemId));
+                    out.writeInt(table.systemStart(systemId));
+                    out.writeInt(table.systemEnd(systemId));
+                }
+                for (int ordinal = 0; ordinal < table.size(); ordinal++) {
+                    out.writeLong(table.id(ordinal));
+                    out.writeInt(table.systemIdOf(ordinal));
+                    heap.write(out, table.code(ordinal));
+                    heap.write(out, table.display(ordinal));
+                    heap.write(out, table.definition(ordinal));
+                    heap.write(out, table.version(ordinal));
+                    out.writeInt(table.designationStart(ordinal));
+                }
+                for (int position = 0; position < table.designationCount(); position++) {
+                    Designation designation = table.designation(position);
+                    heap.write(out, designation.language());
+                    heap.write(out, designation.use());
+                    heap.write(out, designation.value());
+                }
+                for (int i = 0; i < sorted.size(); i++) {
+                    if (i == 0 || !sameSource(sorted.get(i - 1), sorted.get(i))) {
+                        heap.write(out, sorted.get(i).sourceSystem());
+                        heap.write(out, sorted.get(i).sourceCode());
+                        out.writeInt(i);
+                    }
+                }
+                for (ConceptMapping mapping : sorted) {
+                    heap.write(out, mapping.targetSystem());
+                    heap.write(out, mapping.targetCode());
+                    heap.write(out, mapping.equivalence());
+                    heap.write(out, mapping.comment());
+                }
+                out.write(heap.bytes, 0, heap.size);
+            }
+
+            long recordBytes = HEADER_BYTES + (long) table.systemCount() * SYSTEM_BYTES
+                    + (long) table.size() * CONCEPT_BYTES + (long) table.designationCount() * DESIGNATION_BYTES
+                    + (long) sources * SOURCE_BYTES + (long) sorted.size() * EDGE_BYTES;
+            if (recordBytes + heap.size > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Terminology too large for a single snapshot file");
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.allocate(4).putInt(0, heap.size), 28);
+                channel.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static boolean sameSource(ConceptMapping a, ConceptMapping b) {
+        return a.sourceSystem().equals(b.sourceSystem()) && a.sourceCode().equals(b.sourceCode());
+    }
+
+    public Path getPath() { return path; }
+
+    public int size() { return conceptCount; }
+
+    public int mappingCount() { return edgeCount; }
+
+    public String stamp() { return string(32); }
+
+    /**
+     * Returns the first ordinal of (systemUri, code), or -1 when it is not in the snapshot.
+     */
+    public int find(String systemUri, String code) {
+        if (systemUri == null || code == null) {
+            return -1;
+        }
+        int systemId = search(systemsAt, SYSTEM_BYTES, 0, systemCount, 0, systemUri, 0, null);
+        if (systemId < 0) {
+            return -1;
+        }
+        int at = systemsAt + systemId * SYSTEM_BYTES;
+        return search(conceptsAt, CONCEPT_BYTES, buffer.getInt(at + 8), buffer.getInt(at + 12), 12, code, 0, null);
+    }
+
+    public long id(int ordinal) { return buffer.getLong(concept(ordinal)); }
+
+    public String system(int ordinal) {
+        return string(systemsAt + buffer.getInt(concept(ordinal) + 8) * SYSTEM_BYTES);
+    }
+
+    public String code(int ordinal) { return string(concept(ordinal) + 12); }
+
+    public String display(int ordinal) { return string(concept(ordinal) + 20); }
+
+    public String definition(int ordinal) { return string(concept(ordinal) + 28); }
+
+    public String version(int ordinal) { return string(concept(ordinal) + 36); }
+
+    public List<Designation> designations(int ordinal) {
+        int start = buffer.getInt(concept(ordinal) + 44);
+        int end = ordinal + 1 < conceptCount ? buffer.getInt(concept(ordinal + 1) + 44) : designationCount;
+        List<Designation> designations = new ArrayList<>(end - start);
+        for (int position = start; position < end; position++) {
+            int at = designationsAt + position * DESIGNATION_BYTES;
+            designations.add(new Designation(string(at), string(at + 8), string(at + 16)));
+        }
+        return designations;
+    }
+
+    /**
+     * Returns the concept map edges whose source is (sourceSystem, sourceCode), in file order.
+     */
+    public List<ConceptMapping> mappings(String sourceSystem, String sourceCode) {
+        if (sourceSystem == null || sourceCode == null) {
+            return List.of();
+        }
+        int source = search(sourcesAt, SOURCE_BYTES, 0, sourceCount, 0, sourceSystem, 8, sourceCode);
+        if (source < 0) {
+            return List.of();
+        }
+        int start = buffer.getInt(sourcesAt + source * SOURCE_BYTES + 16);
+        int end = source + 1 < sourceCount ? buffer.getInt(sourcesAt + (source + 1) * SOURCE_BYTES + 16) : edgeCount;
+        List<ConceptMapping> mappings = new ArrayList<>(end - start);
+        for (int edge = start; edge < end; edge++) {
+            int at = edgesAt + edge * EDGE_BYTES;
+            mappings.add(new ConceptMapping(sourceSystem, sourceCode, string(at), string(at + 8), string(at + 16), string(at + 24)));
+        }
+        return mappings;
+    }
+
+    private int concept(int ordinal) {
+        return conceptsAt + ordinal * CONCEPT_BYTES;
+    }
+
+    /**
+     * Lower-bound binary search over fixed-size records in [from, to) keyed by the string ref at
+     * firstOffset and, when secondKey is given, the ref at secondOffset. Strings are compared
+     * decoded so the order matches the String.compareTo order the writer sorted by.
+     */
+    private int search(int base, int recordBytes, int from, int to,
+                       int firstOffset, String firstKey, int secondOffset, String secondKey) {
+        int lo = from;
+        int hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(base + mid * recordBytes, firstOffset, firstKey, secondOffset, secondKey) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo < to && compare(base + lo * recordBytes, firstOffset, firstKey, secondOffset, secondKey) == 0 ? lo : -1;
+    }
+
+    private int compare(int at, int firstOffset, String firstKey, int secondOffset, String secondKey) {
+        int cmp = string(at + firstOffset).compareTo(firstKey);
+        return cmp != 0 || secondKey == null ? cmp : string(at + secondOffset).compareTo(secondKey);
+    }
+
+    private String string(int refAt) {
+        int length = buffer.getInt(refAt + 4);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(heapAt + buffer.getInt(refAt), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Appends UTF-8 strings, storing repeated values (systems, versions, languages) once
+    private static final class StringHeap {
+        private final Map<String, Integer> offsets = new HashMap<>();
+        private byte[] bytes = new byte[1 << 16];
+        private int size;
+
+        void write(DataOutputStream out, String value) throws IOException {
+            if (value == null) {
+                out.writeInt(0);
+                out.writeInt(-1);
+                return;
+            }
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            Integer offset = offsets.get(value);
+            if (offset == null) {
+                if (size + encoded.length < 0) {
+                    throw new IllegalStateException("Terminology too large for a single snapshot file");
+                }
+                if (size + encoded.length > bytes.length) {
+                    bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + encoded.length));
+                }
+                System.arraycopy(encoded, 0, bytes, size, encoded.length);
+                offset = size;
+                size += encoded.length;
+                // Only short values tend to repeat; keeping every display would double the writer's memory
+                if (encoded.length <= 64) {
+                    offsets.put(value, offset);
+                }
+            }
+            out.writeInt(offset);
+            out.writeInt(encoded.length);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+// NgramIndex.java
+package com.healthcare.fhir.index;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Trigram inverted index over the lower-cased code and display of every concept.
+ * Posting lists are sorted ordinal arrays, so a substring query is answered by
+ * intersecting the lists of its trigrams and verifying the few survivors.
+ */
+public final class NgramIndex {
+
+    static final int GRAM_LENGTH = 3;
+
+    private static final int[] EMPTY = new int[0];
+
+    private final ConceptTable table;
+    private final Map<Long, int[]> postings;
+
+    private NgramIndex(ConceptTable table, Map<Long, int[]> postings) {
+        this.table = table;
+        this.postings = postings;
+    }
+
+    public static NgramIndex build(ConceptTable table) {
+        Map<Long, PostingBuilder> builders = new HashMap<>();
+        for (int ordinal = 0; ordinal < table.size(); ordinal++) {
+            addGrams(builders, table.lowerCode(ordinal), ordinal);
+            addGrams(builders, table.lowerDisplay(ordinal), ordinal);
+        }
+
+        Map<Long, int[]> postings = new HashMap<>(builders.size() * 4 / 3 + 1);
+        builders.forEach((gram, builder) -> postings.put(gram, builder.toArray()));
+        return new NgramIndex(table, postings);
+    }
+
+    public int gramCount() { return postings.size(); }
+
+    /**
+     * Returns the ordinals whose code or display contains the filter, in ordinal order.
+     *
+     * @param filter   raw filter text, matched case-insensitively
+     * @param systemId restrict matches to one code system, or -1 for all systems
+     */
+    public int[] search(String filter, int systemId) {
+        String normalized = ConceptTable.normalize(filter);
+        int from = systemId >= 0 ? table.systemStart(systemId) : 0;
+        int to = systemId >= 0 ? table.systemEnd(systemId) : table.size();
+
+        // Too short for a trigram - the column copy is still far cheaper than a table scan
+        if (normalized.length() < GRAM_LENGTH) {
+            return scan(normalized, from, to);
+        }
+
+        int[][] lists = new int[normalized.length() - GRAM_LENGTH + 1][];
+        int listCount = 0;
+        for (int i = 0; i + GRAM_LENGTH <= normalized.length(); i++) {
+            int[] posting = postings.get(gram(normalized, i));
+            if (posting == null) {
+                return EMPTY;
+            }
+            lists[listCount++] = posting;
+        }
+        lists = Arrays.copyOf(lists, listCount);
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.length, b.length));
+
+        int[] candidates = slice(lists[0], from, to);
+        for (int i = 1; i < lists.length && candidates.length > 0; i++) {
+            if (lists[i] != lists[i - 1]) {
+                candidates = intersect(candidates, lists[i]);
+            }
+        }
+
+        // Trigrams only prove co-occurrence, not adjacency, so confirm each candidate
+        int matched = 0;
+        for (int ordinal : candidates) {
+            if (table.matches(ordinal, normalized)) {
+                candidates[matched++] = ordinal;
+            }
+        }
+        return matched == candidates.length ? candidates : Arrays.copyOf(candidates, matched);
+    }
+
+    private int[] scan(String normalized, int from, int to) {
+        int[] result = new int[Math.max(0, to - from)];
+        int matched = 0;
+        for (int ordinal = from; ordinal < to; ordinal++) {
+            if (table.matches(ordinal, normalized)) {
+                result[matched++] = ordinal;
+            }
+        }
+        return Arrays.copyOf(result, matched);
+    }
+
+    static int[] slice(int[] posting, int from, int to) {
+        int start = lowerBound(posting, from);
+        int end = lowerBound(posting, to);
+        return Arrays.copyOfRange(posting, start, end);
+    }
+
+    static int lowerBound(int[] sorted, int key) {
+        int index = Arrays.binarySearch(sorted, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    static int[] intersect(int[] small, int[] large) {
+        int[] result = new int[small.length];
+        int count = 0;
+        int j = 0;
+        for (int value : small) {
+            // Gallop through the longer list instead of walking it element by element
+            int bound = 1;
+            while (j + bound < large.length && large[j + bound] < value) {
+                bound <<= 1;
+            }
+            int hi = Math.min(j + bound + 1, large.length);
+            int index = Arrays.binarySearch(large, j, hi, value);
+            if (index >= 0) {
+                result[count++] = value;
+                j = index + 1;
+            } else {
+                j = -index - 1;
+            }
+            if (j >= large.length) {
+                break;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static void addGrams(Map<Long, PostingBuilder> builders, String text, int ordinal) {
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            builders.computeIfAbsent(gram(text, i), key -> new PostingBuilder()).add(ordinal);
+        }
+    }
+
+    static long gram(String text, int start) {
+        return ((long) text.charAt(start) << 32)
+                | ((long) text.charAt(start + 1) << 16)
+                | text.charAt(start + 2);
+    }
+
+    private static final class PostingBuilder {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int ordinal) {
+            // Ordinals arrive in ascending order; skip repeats from the same concept
+            if (size > 0 && values[size - 1] == ordinal) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = ordinal;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
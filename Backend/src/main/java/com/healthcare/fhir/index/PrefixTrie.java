@@ -0,0 +1,278 @@
+// PrefixTrie.java
+package com.healthcare.fhir.index;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Radix trie over completion keys with the best K concepts precomputed at every node.
+ * Answering "top K completions for a prefix" is a walk down at most prefix-length
+ * characters followed by a copy of the node's ranked list; nothing is scored at query time.
+ *
+ * Nodes are frozen into flat arrays after construction, so a built trie holds no per-node objects.
+ */
+public final class PrefixTrie {
+
+    private final int topK;
+
+    // Edge label of each node, as a slice of labelChars
+    private final char[] labelChars;
+    private final int[] labelStart;
+    private final int[] labelLength;
+
+    // Children of each node, sorted by the first character of their label
+    private final int[] childStart;
+    private final int[] childCount;
+    private final char[] childFirst;
+    private final int[] childNode;
+
+    // Ranked completions of each node, best first
+    private final int[] topStart;
+    private final int[] topCount;
+    private final int[] topOrdinals;
+    private final int[] topScores;
+
+    private PrefixTrie(int topK, MutableNode root) {
+        this.topK = topK;
+
+        List<MutableNode> nodes = new ArrayList<>();
+        Deque<MutableNode> queue = new ArrayDeque<>();
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            MutableNode node = queue.poll();
+            node.id = nodes.size();
+            nodes.add(node);
+            node.children.sort((a, b) -> Character.compare(a.label.charAt(0), b.label.charAt(0)));
+            queue.addAll(node.children);
+        }
+
+        int nodeCount = nodes.size();
+        int totalLabel = 0;
+        int totalChildren = 0;
+        int totalTop = 0;
+        for (MutableNode node : nodes) {
+            totalLabel += node.label.length();
+            totalChildren += node.children.size();
+            totalTop += node.size;
+        }
+
+        labelChars = new char[totalLabel];
+        labelStart = new int[nodeCount];
+        labelLength = new int[nodeCount];
+        childStart = new int[nodeCount];
+        childCount = new int[nodeCount];
+        childFirst = new char[totalChildren];
+        childNode = new int[totalChildren];
+        topStart = new int[nodeCount];
+        topCount = new int[nodeCount];
+        topOrdinals = new int[totalTop];
+        topScores = new int[totalTop];
+
+        int labelPos = 0;
+        int childPos = 0;
+        int topPos = 0;
+        for (MutableNode node : nodes) {
+            int id = node.id;
+            node.label.getChars(0, node.label.length(), labelChars, labelPos);
+            labelStart[id] = labelPos;
+            labelLength[id] = node.label.length();
+            labelPos += node.label.length();
+
+            childStart[id] = childPos;
+            childCount[id] = node.children.size();
+            for (MutableNode child : node.children) {
+                childFirst[childPos] = child.label.charAt(0);
+                childNode[childPos] = child.id;
+                childPos++;
+            }
+
+            topStart[id] = topPos;
+            topCount[id] = node.size;
+            System.arraycopy(node.ordinals, 0, topOrdinals, topPos, node.size);
+            System.arraycopy(node.scores, 0, topScores, topPos, node.size);
+            topPos += node.size;
+        }
+    }
+
+    public static Builder builder(int topK) {
+        return new Builder(topK);
+    }
+
+    public int nodeCount() { return labelStart.length; }
+
+    public int topK() { return topK; }
+
+    /**
+     * Returns the node reached by consuming the whole (already normalised) prefix, or -1.
+     */
+    public int find(String prefix) {
+        int node = 0;
+        int i = 0;
+        while (i < prefix.length()) {
+            int child = child(node, prefix.charAt(i));
+            if (child < 0) {
+                return -1;
+            }
+            int start = labelStart[child];
+            int length = labelLength[child];
+            for (int j = 0; j < length && i < prefix.length(); j++, i++) {
+                if (labelChars[start + j] != prefix.charAt(i)) {
+                    return -1;
+                }
+            }
+            node = child;
+        }
+        return node;
+    }
+
+    public int completionCount(int node) { return topCount[node]; }
+
+    public int completionOrdinal(int node, int rank) { return topOrdinals[topStart[node] + rank]; }
+
+    public int completionScore(int node, int rank) { return topScores[topStart[node] + rank]; }
+
+    private int child(int node, char c) {
+        int lo = childStart[node];
+        int hi = lo + childCount[node] - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            char first = childFirst[mid];
+            if (first < c) {
+                lo = mid + 1;
+            } else if (first > c) {
+                hi = mid - 1;
+            } else {
+                return childNode[mid];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * True when a candidate with (score, ordinal) ranks ahead of one with (otherScore, otherOrdinal).
+     */
+    static boolean ranksBefore(int score, int ordinal, int otherScore, int otherOrdinal) {
+        return score != otherScore ? score > otherScore : ordinal < otherOrdinal;
+    }
+
+    public static final class Builder {
+        private final int topK;
+        private final MutableNode root;
+
+        private Builder(int topK) {
+            this.topK = topK;
+            this.root = new MutableNode("", topK);
+        }
+
+        /**
+         * Adds a completion key for a concept; higher scores rank first.
+         */
+        public Builder add(String key, int ordinal, int score) {
+            if (key.isEmpty()) {
+                return this;
+            }
+            MutableNode node = root;
+            node.offer(ordinal, score);
+            int i = 0;
+            while (i < key.length()) {
+                MutableNode child = node.child(key.charAt(i));
+                if (child == null) {
+                    child = new MutableNode(key.substring(i), topK);
+                    child.offer(ordinal, score);
+                    node.children.add(child);
+                    return this;
+                }
+
+                int common = 0;
+                String label = child.label;
+                while (common < label.length() && i + common < key.length()
+                        && label.charAt(common) == key.charAt(i + common)) {
+                    common++;
+                }
+                if (common < label.length()) {
+                    // Split the edge; the new middle node covers exactly the old child's subtree
+                    MutableNode middle = new MutableNode(label.substring(0, common), topK);
+                    middle.copyTop(child);
+                    child.label = label.substring(common);
+                    middle.children.add(child);
+                    node.children.set(node.children.indexOf(child), middle);
+                    child = middle;
+                }
+                child.offer(ordinal, score);
+                i += common;
+                node = child;
+            }
+            return this;
+        }
+
+        public PrefixTrie build() {
+            return new PrefixTrie(topK, root);
+        }
+    }
+
+    private static final class MutableNode {
+        private String label;
+        private final List<MutableNode> children = new ArrayList<>(2);
+        private final int[] ordinals;
+        private final int[] scores;
+        private int size;
+        private int id;
+
+        MutableNode(String label, int topK) {
+            this.label = label;
+            this.ordinals = new int[topK];
+            this.scores = new int[topK];
+        }
+
+        MutableNode child(char c) {
+            for (MutableNode child : children) {
+                if (child.label.charAt(0) == c) {
+                    return child;
+                }
+            }
+            return null;
+        }
+
+        void copyTop(MutableNode other) {
+            System.arraycopy(other.ordinals, 0, ordinals, 0, other.size);
+            System.arraycopy(other.scores, 0, scores, 0, other.size);
+            size = other.size;
+        }
+
+        void offer(int ordinal, int score) {
+            // A concept reachable through several keys keeps only its best score
+            for (int i = 0; i < size; i++) {
+                if (ordinals[i] == ordinal) {
+                    if (score <= scores[i]) {
+                        return;
+                    }
+                    remove(i);
+                    break;
+                }
+            }
+            if (size == ordinals.length) {
+                if (!ranksBefore(score, ordinal, scores[size - 1], ordinals[size - 1])) {
+                    return;
+                }
+                size--;
+            }
+            int pos = size;
+            while (pos > 0 && ranksBefore(score, ordinal, scores[pos - 1], ordinals[pos - 1])) {
+                ordinals[pos] = ordinals[pos - 1];
+                scores[pos] = scores[pos - 1];
+                pos--;
+            }
+            ordinals[pos] = ordinal;
+            scores[pos] = score;
+            size++;
+        }
+
+        private void remove(int index) {
+            System.arraycopy(ordinals, index + 1, ordinals, index, size - index - 1);
+            System.arraycopy(scores, index + 1, scores, index, size - index - 1);
+            size--;
+        }
+    }
+}
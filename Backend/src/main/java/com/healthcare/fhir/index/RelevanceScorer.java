@@ -0,0 +1,252 @@
+// RelevanceScorer.java
+package com.healthcare.fhir.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BM25 over display tokens with boosts for exact code, code prefix, display prefix and short
+ * displays. Document frequencies and lengths are computed once per snapshot, so ranking a
+ * candidate set costs a few array reads per candidate.
+ *
+ * Filters match substrings, so a query token counts a document token it is a prefix of
+ * ("diab" counts "diabetes"); its document frequency is the summed frequency of that
+ * vocabulary range, read from prefix sums.
+ */
+public final class RelevanceScorer {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final double EXACT_CODE_BOOST = 20.0;
+    private static final double CODE_PREFIX_BOOST = 6.0;
+    private static final double EXACT_DISPLAY_BOOST = 10.0;
+    private static final double DISPLAY_PREFIX_BOOST = 4.0;
+    private static final double SHORT_DISPLAY_BOOST = 2.0;
+
+    private final ConceptTable table;
+
+    // Vocabulary in sorted order; dfPrefix[i] is the summed document frequency of vocabulary[0..i)
+    private final String[] vocabulary;
+    private final long[] dfPrefix;
+
+    // Token ids of each display, as slices of docTokens
+    private final int[] docStart;
+    private final int[] docTokens;
+    private final double averageLength;
+
+    // First character of each lower-cased code
+    private final char[] codeHeads;
+
+    private RelevanceScorer(ConceptTable table, String[] vocabulary, long[] dfPrefix, int[] docStart, int[] docTokens) {
+        this.table = table;
+        this.vocabulary = vocabulary;
+        this.dfPrefix = dfPrefix;
+        this.docStart = docStart;
+        this.docTokens = docTokens;
+        this.averageLength = table.size() > 0 ? (double) docTokens.length / table.size() : 1.0;
+        this.codeHeads = new char[table.size()];
+        for (int ordinal = 0; ordinal < codeHeads.length; ordinal++) {
+            String code = table.lowerCode(ordinal);
+            codeHeads[ordinal] = code.isEmpty() ? '\0' : code.charAt(0);
+        }
+    }
+
+    public static RelevanceScorer build(ConceptTable table) {
+        List<String[]> documents = new ArrayList<>(table.size());
+        Map<String, Integer> df = new HashMap<>();
+        int totalTokens = 0;
+        for (int ordinal = 0; ordinal < table.size(); ordinal++) {
+            String[] tokens = tokenize(table.lowerDisplay(ordinal));
+            documents.add(tokens);
+            totalTokens += tokens.length;
+            for (String token : Arrays.stream(tokens).distinct().toArray(String[]::new)) {
+                df.merge(token, 1, Integer::sum);
+            }
+        }
+
+        String[] vocabulary = df.keySet().toArray(new String[0]);
+        Arrays.sort(vocabulary);
+        long[] dfPrefix = new long[vocabulary.length + 1];
+        Map<String, Integer> termIds = new HashMap<>(vocabulary.length * 4 / 3 + 1);
+        for (int i = 0; i < vocabulary.length; i++) {
+            termIds.put(vocabulary[i], i);
+            dfPrefix[i + 1] = dfPrefix[i] + df.get(vocabulary[i]);
+        }
+
+        int[] docStart = new int[table.size() + 1];
+        int[] docTokens = new int[totalTokens];
+        int position = 0;
+        for (int ordinal = 0; ordinal < documents.size(); ordinal++) {
+            docStart[ordinal] = position;
+            for (String token : documents.get(ordinal)) {
+                docTokens[position++] = termIds.get(token);
+            }
+        }
+        docStart[table.size()] = position;
+
+        return new RelevanceScorer(table, vocabulary, dfPrefix, docStart, docTokens);
+    }
+
+    /**
+     * Returns the best {@code limit} candidates, highest score first and table order among ties.
+     */
+    public int[] rank(int[] candidates, String filter, int limit) {
+        String normalized = ConceptTable.normalize(filter).trim();
+        if (normalized.isEmpty()) {
+            return Arrays.copyOf(candidates, Math.min(limit, candidates.length));
+        }
+        String[] queryTokens = tokenize(normalized);
+        int[] rangeStart = new int[queryTokens.length];
+        int[] rangeEnd = new int[queryTokens.length];
+        double[] idf = new double[queryTokens.length];
+        for (int q = 0; q < queryTokens.length; q++) {
+            rangeStart[q] = lowerBound(queryTokens[q]);
+            rangeEnd[q] = prefixEnd(queryTokens[q], rangeStart[q]);
+            long df = Math.min(dfPrefix[rangeEnd[q]] - dfPrefix[rangeStart[q]], table.size());
+            idf[q] = Math.log(1.0 + (table.size() - df + 0.5) / (df + 0.5));
+        }
+
+        // Keys pack (descending score, ascending ordinal) so smaller is better; a bounded max-heap
+        // keeps the best "limit" of them without sorting the whole candidate set
+        int size = Math.min(limit, candidates.length);
+        long[] heap = new long[size];
+        int filled = 0;
+        for (int candidate : candidates) {
+            float score = (float) score(candidate, normalized, rangeStart, rangeEnd, idf);
+            long key = ((long) (Integer.MAX_VALUE - Float.floatToIntBits(score)) << 32) | candidate;
+            if (filled < size) {
+                heap[filled] = key;
+                siftUp(heap, filled++);
+            } else if (size > 0 && key < heap[0]) {
+                heap[0] = key;
+                siftDown(heap, size);
+            }
+        }
+        Arrays.sort(heap, 0, filled);
+
+        int[] ranked = new int[filled];
+        for (int i = 0; i < filled; i++) {
+            ranked[i] = (int) heap[i];
+        }
+        return ranked;
+    }
+
+    private static void siftUp(long[] heap, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent] >= heap[index]) {
+                return;
+            }
+            swap(heap, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(long[] heap, int size) {
+        int index = 0;
+        while (true) {
+            int largest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && heap[left] > heap[largest]) {
+                largest = left;
+            }
+            if (right < size && heap[right] > heap[largest]) {
+                largest = right;
+            }
+            if (largest == index) {
+                return;
+            }
+            swap(heap, index, largest);
+            index = largest;
+        }
+    }
+
+    private static void swap(long[] heap, int i, int j) {
+        long value = heap[i];
+        heap[i] = heap[j];
+        heap[j] = value;
+    }
+
+    private double score(int ordinal, String normalized, int[] rangeStart, int[] rangeEnd, double[] idf) {
+        int start = docStart[ordinal];
+        int length = docStart[ordinal + 1] - start;
+        double norm = K1 * (1 - B + B * length / averageLength);
+
+        double score = 0;
+        for (int q = 0; q < idf.length; q++) {
+            int tf = 0;
+            for (int i = start; i < start + length; i++) {
+                if (docTokens[i] >= rangeStart[q] && docTokens[i] < rangeEnd[q]) {
+                    tf++;
+                }
+            }
+            if (tf > 0) {
+                score += idf[q] * tf * (K1 + 1) / (tf + norm);
+            }
+        }
+
+        // Cheap gates first, so the strings are only read for plausible prefix matches
+        if (codeHeads[ordinal] == normalized.charAt(0)) {
+            String code = table.lowerCode(ordinal);
+            if (code.equals(normalized)) {
+                score += EXACT_CODE_BOOST;
+            } else if (code.startsWith(normalized)) {
+                score += CODE_PREFIX_BOOST;
+            }
+        }
+        if (length > 0 && idf.length > 0 && docTokens[start] >= rangeStart[0] && docTokens[start] < rangeEnd[0]) {
+            String display = table.lowerDisplay(ordinal);
+            if (display.equals(normalized)) {
+                score += EXACT_DISPLAY_BOOST;
+            } else if (display.startsWith(normalized)) {
+                score += DISPLAY_PREFIX_BOOST;
+            }
+        }
+        score += SHORT_DISPLAY_BOOST / (1 + length);
+        return score;
+    }
+
+    private int lowerBound(String token) {
+        int index = Arrays.binarySearch(vocabulary, token);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private int prefixEnd(String prefix, int from) {
+        int lo = from;
+        int hi = vocabulary.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (vocabulary[mid].startsWith(prefix)) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    static String[] tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && isWordChar(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    private static boolean isWordChar(char c) {
+        int type = Character.getType(c);
+        return Character.isLetterOrDigit(c) || type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK;
+    }
+}
@@ -0,0 +1,200 @@
+// SimilarityIndex.java
+package com.healthcare.fhir.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * TF-IDF vectors over character trigrams, for ranking concepts by textual similarity without a search service.
+ * Text is folded by TermNormalizer, so spelling variants share grams, and each word is padded with
+ * spaces so its first and last letters weigh in. Weights are (1 + ln tf) * idf, L2-normalised, and kept
+ * in an inverted index (one slice of document ids and weights per gram), so a query only touches
+ * documents that share a gram with it. Scores are cosine similarities in [0, 1].
+ */
+public final class SimilarityIndex {
+
+    public record Match(int document, double score) {
+    }
+
+    private final String[] codes;
+    private final String[] titles;
+    private final Map<Long, Integer> gramIds;
+    private final float[] idf;
+    private final double unknownIdf;
+
+    // Postings of gram g are (postingDocs[k], postingWeights[k]) for k in [postingStart[g], postingStart[g + 1])
+    private final int[] postingStart;
+    private final int[] postingDocs;
+    private final float[] postingWeights;
+
+    private SimilarityIndex(String[] codes, String[] titles, Map<Long, Integer> gramIds, float[] idf,
+                            int[] postingStart, int[] postingDocs, float[] postingWeights) {
+        this.codes = codes;
+        this.titles = titles;
+        this.gramIds = gramIds;
+        this.idf = idf;
+        this.unknownIdf = Math.log(codes.length + 1.0) + 1.0;
+        this.postingStart = postingStart;
+        this.postingDocs = postingDocs;
+        this.postingWeights = postingWeights;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int size() { return codes.length; }
+
+    public int gramCount() { return idf.length; }
+
+    public String code(int document) { return codes[document]; }
+
+    public String title(int document) { return titles[document]; }
+
+    /**
+     * The k documents most similar to the text with a score of at least minScore, best first.
+     */
+    public List<Match> search(String text, int k, double minScore) {
+        Map<Long, Integer> counts = grams(text);
+        if (counts.isEmpty() || codes.length == 0) {
+            return List.of();
+        }
+
+        // Grams no document has still count towards the query norm, so they lower the score
+        double norm = 0;
+        int[] queryGrams = new int[counts.size()];
+        float[] queryWeights = new float[counts.size()];
+        int known = 0;
+        for (Map.Entry<Long, Integer> gram : counts.entrySet()) {
+            Integer id = gramIds.get(gram.getKey());
+            double weight = (1 + Math.log(gram.getValue())) * (id != null ? idf[id] : unknownIdf);
+            norm += weight * weight;
+            if (id != null) {
+                queryGrams[known] = id;
+                queryWeights[known] = (float) weight;
+                known++;
+            }
+        }
+        norm = Math.sqrt(norm);
+
+        float[] scores = new float[codes.length];
+        int[] touched = new int[Math.min(codes.length, 1024)];
+        int touchedCount = 0;
+        for (int q = 0; q < known; q++) {
+            int gram = queryGrams[q];
+            float weight = queryWeights[q];
+            for (int p = postingStart[gram]; p < postingStart[gram + 1]; p++) {
+                int document = postingDocs[p];
+                if (scores[document] == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, Math.min(codes.length, touched.length * 2));
+                    }
+                    touched[touchedCount++] = document;
+                }
+                scores[document] += weight * postingWeights[p];
+            }
+        }
+
+        PriorityQueue<Match> best = new PriorityQueue<>(k + 1, (a, b) -> Double.compare(a.score(), b.score()));
+        for (int i = 0; i < touchedCount; i++) {
+            int document = touched[i];
+            double score = scores[document] / norm;
+            if (score >= minScore && (best.size() < k || score > best.peek().score())) {
+                best.add(new Match(document, Math.min(1.0, score)));
+                if (best.size() > k) {
+                    best.poll();
+                }
+            }
+        }
+        List<Match> result = new ArrayList<>(best);
+        result.sort((a, b) -> Double.compare(b.score(), a.score()));
+        return result;
+    }
+
+    // Trigram counts of the folded words, each padded with a leading and trailing space
+    static Map<Long, Integer> grams(String text) {
+        Map<Long, Integer> counts = new HashMap<>();
+        for (String token : TermNormalizer.tokens(text)) {
+            String padded = " " + token + " ";
+            for (int i = 0; i + NgramIndex.GRAM_LENGTH <= padded.length(); i++) {
+                counts.merge(NgramIndex.gram(padded, i), 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    public static final class Builder {
+        private final List<String> codes = new ArrayList<>();
+        private final List<String> titles = new ArrayList<>();
+        private final List<Map<Long, Integer>> vectors = new ArrayList<>();
+        private final Set<String> seen = new HashSet<>();
+
+        /**
+         * Adds a document; only the first one with a given code is kept.
+         *
+         * @param text text to match against, e.g. the title and definition
+         */
+        public Builder add(String code, String title, String text) {
+            if (code == null || !seen.add(code)) {
+                return this;
+            }
+            codes.add(code);
+            titles.add(title);
+            vectors.add(grams(text));
+            return this;
+        }
+
+        public SimilarityIndex build() {
+            Map<Long, Integer> gramIds = new HashMap<>();
+            List<Integer> documentFrequency = new ArrayList<>();
+            for (Map<Long, Integer> vector : vectors) {
+                for (Long gram : vector.keySet()) {
+                    Integer id = gramIds.putIfAbsent(gram, gramIds.size());
+                    if (id == null) {
+                        documentFrequency.add(1);
+                    } else {
+                        documentFrequency.set(id, documentFrequency.get(id) + 1);
+                    }
+                }
+            }
+
+            int documents = vectors.size();
+            float[] idf = new float[gramIds.size()];
+            int[] postingStart = new int[idf.length + 1];
+            for (int g = 0; g < idf.length; g++) {
+                int df = documentFrequency.get(g);
+                idf[g] = (float) (Math.log((documents + 1.0) / (df + 1.0)) + 1.0);
+                postingStart[g + 1] = postingStart[g] + df;
+            }
+
+            int[] postingDocs = new int[postingStart[idf.length]];
+            float[] postingWeights = new float[postingDocs.length];
+            int[] fill = Arrays.copyOf(postingStart, idf.length);
+            for (int document = 0; document < documents; document++) {
+                Map<Long, Integer> vector = vectors.get(document);
+                double norm = 0;
+                for (Map.Entry<Long, Integer> gram : vector.entrySet()) {
+                    double weight = (1 + Math.log(gram.getValue())) * idf[gramIds.get(gram.getKey())];
+                    norm += weight * weight;
+                }
+                norm = Math.sqrt(norm);
+                for (Map.Entry<Long, Integer> gram : vector.entrySet()) {
+                    int id = gramIds.get(gram.getKey());
+                    double weight = (1 + Math.log(gram.getValue())) * idf[id];
+                    // Documents arrive in order, so every posting slice stays sorted by document
+                    postingDocs[fill[id]] = document;
+                    postingWeights[fill[id]++] = (float) (weight / norm);
+                }
+            }
+
+            return new SimilarityIndex(codes.toArray(new String[0]), titles.toArray(new String[0]), gramIds, idf,
+                    postingStart, postingDocs, postingWeights);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+// TermNormalizer.java
+package com.healthcare.fhir.index;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Folds romanised Sanskrit, Tamil and Arabic terms to a phonetic key so spelling
+ * variants of the same word collide, e.g. "vata", "vaata", "waata" and "vāta" all become "vata".
+ *
+ * Rules, applied in order after diacritics are stripped and the text is lower-cased:
+ * w becomes v, q becomes k, f becomes p, z becomes j, an h following a consonant
+ * (aspiration, and the s of "sh") is dropped, "ee" becomes i, "oo" becomes u,
+ * and repeated letters collapse to one (long vowels, geminate consonants).
+ */
+public final class TermNormalizer {
+
+    private TermNormalizer() {
+    }
+
+    /**
+     * Splits text into folded tokens on anything that is not a letter or digit.
+     */
+    public static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String stripped = stripMarks(text);
+        int start = -1;
+        for (int i = 0; i <= stripped.length(); i++) {
+            boolean wordChar = i < stripped.length() && isWordChar(stripped.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String folded = foldStripped(stripped.substring(start, i));
+                if (!folded.isEmpty()) {
+                    tokens.add(folded);
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Folds a single word.
+     */
+    public static String fold(String word) {
+        return foldStripped(stripMarks(word));
+    }
+
+    /**
+     * Script-aware folding used for designations: NFC, lower case, zero-width joiners removed,
+     * Devanagari nukta dropped (so "ज़" matches "ज") and chandrabindu folded to anusvara.
+     * Unlike fold(), letters are otherwise kept as written so substring matching still works.
+     */
+    public static String foldScript(String text) {
+        if (text == null) {
+            return "";
+        }
+        // Precomposed nukta letters (U+0958..U+095F) are composition exclusions, so decompose first
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder out = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            switch (c) {
+                case '\u200C', '\u200D', '\u093C' -> { }
+                case '\u0901' -> out.append('\u0902');
+                default -> out.append(c);
+            }
+        }
+        return Normalizer.normalize(out, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+    }
+
+    private static String stripMarks(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder out = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            // Only Latin letters lose their marks; Indic vowel signs are combining marks too
+            if (Character.getType(c) == Character.NON_SPACING_MARK && i > 0 && decomposed.charAt(i - 1) < 0x250) {
+                continue;
+            }
+            out.append(c);
+        }
+        return Normalizer.normalize(out, Normalizer.Form.NFC).toLowerCase(Locale.ROOT);
+    }
+
+    private static String foldStripped(String word) {
+        StringBuilder out = new StringBuilder(word.length());
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c > 'z') {
+                // Non-Latin scripts are kept as they are
+                out.append(c);
+                continue;
+            }
+            switch (c) {
+                case 'w' -> c = 'v';
+                case 'q' -> c = 'k';
+                case 'f' -> c = 'p';
+                case 'z' -> c = 'j';
+                default -> { }
+            }
+            if (c == 'h' && out.length() > 0 && isConsonant(out.charAt(out.length() - 1))) {
+                continue;
+            }
+            if (out.length() > 0) {
+                char previous = out.charAt(out.length() - 1);
+                if (c == 'e' && previous == 'e') {
+                    out.setCharAt(out.length() - 1, 'i');
+                    continue;
+                }
+                if (c == 'o' && previous == 'o') {
+                    out.setCharAt(out.length() - 1, 'u');
+                    continue;
+                }
+                if (c == previous) {
+                    continue;
+                }
+            }
+            out.append(c);
+        }
+        return out.toString();
+    }
+
+    // Indic vowel signs and viramas are combining marks but belong to the word
+    private static boolean isWordChar(char c) {
+        int type = Character.getType(c);
+        return Character.isLetterOrDigit(c) || type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK;
+    }
+
+    private static boolean isConsonant(char c) {
+        return c >= 'a' && c <= 'z' && "aeiouh".indexOf(c) < 0;
+    }
+}
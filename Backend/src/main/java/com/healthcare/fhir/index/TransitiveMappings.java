@@ -0,0 +1,94 @@
+// TransitiveMappings.java
+package com.healthcare.fhir.index;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BinaryOperator;
+
+/**
+ * Chains concept map edges into multi-hop mappings, e.g. NAMASTE to ICD-11 TM2 to ICD-11 MMS.
+ * From a source concept the walk is breadth-first, so each target keeps its shortest path;
+ * a path stops where the composition of its equivalences is undefined (compose returns null),
+ * and never returns to the source's own code system.
+ */
+public final class TransitiveMappings {
+
+    /**
+     * Direct edges leaving a concept.
+     */
+    public interface Edges {
+        List<ConceptMapping> from(String system, String code);
+    }
+
+    private TransitiveMappings() {
+    }
+
+    /**
+     * The direct edges of the source followed by the derived edges of 2 to maxHops hops. A derived
+     * edge has the composed equivalence and names its intermediate concepts in the comment.
+     */
+    public static List<ConceptMapping> expand(String sourceSystem, String sourceCode, Edges edges, int maxHops,
+                                              BinaryOperator<String> compose) {
+        List<ConceptMapping> result = new ArrayList<>(edges.from(sourceSystem, sourceCode));
+        Set<String> reached = new HashSet<>();
+        reached.add(key(sourceSystem, sourceCode));
+
+        // Frontier edges start at the source and end at the concepts reached by the previous hop
+        Map<ConceptMapping, String> frontier = new LinkedHashMap<>();
+        for (ConceptMapping direct : result) {
+            if (reached.add(key(direct.targetSystem(), direct.targetCode()))) {
+                frontier.put(direct, "");
+            }
+        }
+
+        for (int hop = 2; hop <= maxHops && !frontier.isEmpty(); hop++) {
+            Map<ConceptMapping, String> next = new LinkedHashMap<>();
+            for (Map.Entry<ConceptMapping, String> item : frontier.entrySet()) {
+                ConceptMapping path = item.getKey();
+                String middle = key(path.targetSystem(), path.targetCode());
+                String via = item.getValue().isEmpty() ? middle : item.getValue() + ", " + middle;
+                for (ConceptMapping edge : edges.from(path.targetSystem(), path.targetCode())) {
+                    String equivalence = compose.apply(path.equivalence(), edge.equivalence());
+                    if (equivalence == null || edge.targetSystem().equals(sourceSystem)
+                            || !reached.add(key(edge.targetSystem(), edge.targetCode()))) {
+                        continue;
+                    }
+                    ConceptMapping derived = new ConceptMapping(sourceSystem, sourceCode, edge.targetSystem(),
+                            edge.targetCode(), equivalence, "Transitive mapping via " + via);
+                    result.add(derived);
+                    next.put(derived, via);
+                }
+            }
+            frontier = next;
+        }
+        return result;
+    }
+
+    /**
+     * expand for every source concept of the given edges, in one list.
+     */
+    public static List<ConceptMapping> expandAll(List<ConceptMapping> mappings, int maxHops,
+                                                 BinaryOperator<String> compose) {
+        Map<String, List<ConceptMapping>> adjacency = new HashMap<>();
+        for (ConceptMapping mapping : mappings) {
+            adjacency.computeIfAbsent(key(mapping.sourceSystem(), mapping.sourceCode()), k -> new ArrayList<>()).add(mapping);
+        }
+        Edges edges = (system, code) -> adjacency.getOrDefault(key(system, code), List.of());
+
+        List<ConceptMapping> result = new ArrayList<>();
+        for (List<ConceptMapping> direct : adjacency.values()) {
+            ConceptMapping first = direct.get(0);
+            result.addAll(expand(first.sourceSystem(), first.sourceCode(), edges, maxHops, compose));
+        }
+        return result;
+    }
+
+    private static String key(String system, String code) {
+        return system + "|" + code;
+    }
+}
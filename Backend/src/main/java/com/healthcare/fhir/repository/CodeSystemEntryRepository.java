@@ -5,11 +5,13 @@ package com.healthcare.fhir.repository;
 import com.healthcare.fhir.entity.CodeSystemEntry;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,6 +21,11 @@ public interface CodeSystemEntryRepository extends JpaRepository<CodeSystemEntry
 
     List<CodeSystemEntry> findBySystemUri(String systemUri);
 
+    // Batch $lookup: one IN query for all tuples; the caller keeps only the exact (system, code) pairs
+    List<CodeSystemEntry> findBySystemUriInAndCodeIn(Collection<String> systemUris, Collection<String> codes);
+
+    Page<CodeSystemEntry> findBySystemUri(String systemUri, Pageable pageable);
+
     @Query("SELECT c FROM CodeSystemEntry c WHERE c.systemUri = :systemUri AND " +
             "(LOWER(c.code) LIKE LOWER(CONCAT('%', :filter, '%')) OR " +
             "LOWER(c.display) LIKE LOWER(CONCAT('%', :filter, '%')))")
@@ -30,4 +37,153 @@ public interface CodeSystemEntryRepository extends JpaRepository<CodeSystemEntry
             "LOWER(c.code) LIKE LOWER(CONCAT('%', :filter, '%')) OR " +
             "LOWER(c.display) LIKE LOWER(CONCAT('%', :filter, '%'))")
     Page<CodeSystemEntry> findByFilter(@Param("filter") String filter, Pageable pageable);
+
+    // Count-free variants: a Slice reads one extra row to detect a next page instead of running count(*)
+    @Query("SELECT c FROM CodeSystemEntry c WHERE c.systemUri = :systemUri AND " +
+            "(LOWER(c.code) LIKE LOWER(CONCAT('%', :filter, '%')) OR " +
+            "LOWER(c.display) LIKE LOWER(CONCAT('%', :filter, '%')))")
+    Slice<CodeSystemEntry> sliceBySystemUriAndFilter(@Param("systemUri") String systemUri,
+                                                     @Param("filter") String filter,
+                                                     Pageable pageable);
+
+    @Query("SELECT c FROM CodeSystemEntry c WHERE " +
+            "LOWER(c.code) LIKE LOWER(CONCAT('%', :filter, '%')) OR " +
+            "LOWER(c.display) LIKE LOWER(CONCAT('%', :filter, '%'))")
+    Slice<CodeSystemEntry> sliceByFilter(@Param("filter") String filter, Pageable pageable);
+
+    @Query("SELECT c FROM CodeSystemEntry c")
+    Slice<CodeSystemEntry> sliceAll(Pageable pageable);
+
+    @Query("SELECT c FROM CodeSystemEntry c WHERE c.systemUri = :systemUri")
+    Slice<CodeSystemEntry> sliceBySystemUri(@Param("systemUri") String systemUri, Pageable pageable);
+
+    // Keyset (seek) pagination in (systemUri, code, id) order - cost per page is independent of depth
+    @Query("SELECT c FROM CodeSystemEntry c WHERE c.systemUri >= :systemUri AND " +
+            "(c.systemUri > :systemUri OR c.code > :code OR (c.code = :code AND c.id > :id)) " +
+            "ORDER BY c.systemUri, c.code, c.id")
+    List<CodeSystemEntry> findAfter(@Param("systemUri") String systemUri,
+                                    @Param("code") String code,
+                                    @Param("id") Long id,
+                                    Pageable pageable);
+
+    @Query("SELECT c FROM CodeSystemEntry c WHERE c.systemUri >= :systemUri AND " +
+            "(c.systemUri > :systemUri OR c.code > :code OR (c.code = :code AND c.id > :id)) AND " +
+            "(LOWER(c.code) LIKE LOWER(CONCAT('%', :filter, '%')) OR " +
+            "LOWER(c.display) LIKE LOWER(CONCAT('%', :filter, '%'))) " +
+            "ORDER BY c.systemUri, c.code, c.id")
+    List<CodeSystemEntry> findByFilterAfter(@Param("filter") String filter,
+                                            @Param("systemUri") String systemUri,
+                                            @Param("code") String code,
+                                            @Param("id") Long id,
+                                            Pageable pageable);
+
+    @Query("SELECT c FROM CodeSystemEntry c WHERE c.systemUri = :systemUri AND " +
+            "(c.code > :code OR (c.code = :code AND c.id > :id)) " +
+            "ORDER BY c.code, c.id")
+    List<CodeSystemEntry> findBySystemUriAfter(@Param("systemUri") String systemUri,
+                                               @Param("code") String code,
+                                               @Param("id") Long id,
+                                               Pageable pageable);
+
+    @Query("SELECT c FROM CodeSystemEntry c WHERE c.systemUri = :systemUri AND " +
+            "(c.code > :code OR (c.code = :code AND c.id > :id)) AND " +
+            "(LOWER(c.code) LIKE LOWER(CONCAT('%', :filter, '%')) OR " +
+            "LOWER(c.display) LIKE LOWER(CONCAT('%', :filter, '%'))) " +
+            "ORDER BY c.code, c.id")
+    List<CodeSystemEntry> findBySystemUriAndFilterAfter(@Param("systemUri") String systemUri,
+                                                        @Param("filter") String filter,
+                                                        @Param("code") String code,
+                                                        @Param("id") Long id,
+                                                        Pageable pageable);
+
+    // Database search mode - served by the search_vector and pg_trgm GIN indexes from schema.sql
+    @Query(value = "SELECT c.* FROM code_system_entries c WHERE c.system_uri = :systemUri AND " +
+            "(c.search_vector @@ plainto_tsquery('simple', :filter) OR " +
+            "LOWER(c.code) LIKE LOWER(CONCAT('%', :filter, '%')) OR " +
+            "LOWER(c.display) LIKE LOWER(CONCAT('%', :filter, '%'))) " +
+            "ORDER BY GREATEST(ts_rank(c.search_vector, plainto_tsquery('simple', :filter)), " +
+            "similarity(LOWER(c.display), LOWER(:filter)), similarity(LOWER(c.code), LOWER(:filter))) DESC, c.id",
+            countQuery = "SELECT count(*) FROM code_system_entries c WHERE c.system_uri = :systemUri AND " +
+                    "(c.search_vector @@ plainto_tsquery('simple', :filter) OR " +
+                    "LOWER(c.code) LIKE LOWER(CONCAT('%', :filter, '%')) OR " +
+                    "LOWER(c.display) LIKE LOWER(CONCAT('%', :filter, '%')))",
+            nativeQuery = true)
+    Page<CodeSystemEntry> searchRankedBySystemUri(@Param("systemUri") String systemUri,
+                                                  @Param("filter") String filter,
+                                                  Pageable pageable);
+
+    @Query(value = "SELECT c.* FROM code_system_entries c WHERE " +
+            "c.search_vector @@ plainto_tsquery('simple', :filter) OR " +
+            "LOWER(c.code) LIKE LOWER(CONCAT('%', :filter, '%')) OR " +
+            "LOWER(c.display) LIKE LOWER(CONCAT('%', :filter, '%')) " +
+            "ORDER BY GREATEST(ts_rank(c.search_vector, plainto_tsquery('simple', :filter)), " +
+            "similarity(LOWER(c.display), LOWER(:filter)), similarity(LOWER(c.code), LOWER(:filter))) DESC, c.id",
+            countQuery = "SELECT count(*) FROM code_system_entries c WHERE " +
+                    "c.search_vector @@ plainto_tsquery('simple', :filter) OR " +
+                    "LOWER(c.code) LIKE LOWER(CONCAT('%', :filter, '%')) OR " +
+                    "LOWER(c.display) LIKE LOWER(CONCAT('%', :filter, '%'))",
+            nativeQuery = true)
+    Page<CodeSystemEntry> searchRanked(@Param("filter") String filter, Pageable pageable);
+
+    @Query(value = "SELECT c.* FROM code_system_entries c WHERE c.system_uri = :systemUri AND " +
+            "(c.search_vector @@ plainto_tsquery('simple', :filter) OR " +
+            "LOWER(c.code) LIKE LOWER(CONCAT('%', :filter, '%')) OR " +
+            "LOWER(c.display) LIKE LOWER(CONCAT('%', :filter, '%'))) " +
+            "ORDER BY GREATEST(ts_rank(c.search_vector, plainto_tsquery('simple', :filter)), " +
+            "similarity(LOWER(c.display), LOWER(:filter)), similarity(LOWER(c.code), LOWER(:filter))) DESC, c.id",
+            nativeQuery = true)
+    Slice<CodeSystemEntry> sliceRankedBySystemUri(@Param("systemUri") String systemUri,
+                                                  @Param("filter") String filter,
+                                                  Pageable pageable);
+
+    @Query(value = "SELECT c.* FROM code_system_entries c WHERE " +
+            "c.search_vector @@ plainto_tsquery('simple', :filter) OR " +
+            "LOWER(c.code) LIKE LOWER(CONCAT('%', :filter, '%')) OR " +
+            "LOWER(c.display) LIKE LOWER(CONCAT('%', :filter, '%')) " +
+            "ORDER BY GREATEST(ts_rank(c.search_vector, plainto_tsquery('simple', :filter)), " +
+            "similarity(LOWER(c.display), LOWER(:filter)), similarity(LOWER(c.code), LOWER(:filter))) DESC, c.id",
+            nativeQuery = true)
+    Slice<CodeSystemEntry> sliceRanked(@Param("filter") String filter, Pageable pageable);
+
+    // Keyset walk by id over concepts with no concept map entry, for the ICD candidate precompute job
+    @Query("SELECT c FROM CodeSystemEntry c WHERE c.systemUri = :systemUri AND c.id > :afterId AND NOT EXISTS " +
+            "(SELECT m.id FROM ConceptMapEntry m WHERE m.sourceSystem = c.systemUri AND m.sourceCode = c.code) " +
+            "ORDER BY c.id")
+    List<CodeSystemEntry> findUnmappedAfter(@Param("systemUri") String systemUri,
+                                            @Param("afterId") Long afterId,
+                                            Pageable pageable);
+
+    @Query("SELECT c.id AS id, c.systemUri AS systemUri, c.code AS code, c.display AS display, " +
+            "c.definition AS definition, c.version AS version, c.designations AS designations " +
+            "FROM CodeSystemEntry c")
+    List<CodeSystemEntrySummary> findAllSummaries();
+
+    @Query("SELECT c.systemUri AS system, c.code AS code FROM CodeSystemEntry c")
+    List<SystemCodeKey> findAllCodeKeys();
+
+    // Same two shapes DesignationParser accepts: the FHIR designation array and a language map of
+    // single values or arrays. Non-scalar and blank values are skipped, and document order is kept.
+    // Aliases are quoted so Postgres keeps the projection's camel case
+    @Query(value = "SELECT c.id AS \"conceptId\", d.language AS language, d.designation_use AS \"designationUse\", " +
+            "BTRIM(d.node #>> '{}') AS value FROM code_system_entries c CROSS JOIN LATERAL (" +
+            "SELECT NULLIF(BTRIM(CASE WHEN jsonb_typeof(e -> 'language') IN ('string', 'number') THEN e ->> 'language' END), '') AS language, " +
+            "NULLIF(BTRIM(CASE jsonb_typeof(e -> 'use') WHEN 'object' THEN e -> 'use' ->> 'code' " +
+            "WHEN 'string' THEN e ->> 'use' END), '') AS designation_use, " +
+            "e -> 'value' AS node, a.ord AS ord, 0 AS value_ord " +
+            "FROM jsonb_array_elements(CASE WHEN jsonb_typeof(c.designations) = 'array' " +
+            "THEN c.designations ELSE CAST('[]' AS jsonb) END) WITH ORDINALITY AS a(e, ord) " +
+            "UNION ALL " +
+            "SELECT m.key, NULL, v.node, m.ord, v.value_ord " +
+            "FROM jsonb_each(CASE WHEN jsonb_typeof(c.designations) = 'object' " +
+            "THEN c.designations ELSE CAST('{}' AS jsonb) END) WITH ORDINALITY AS m(key, value, ord) " +
+            "CROSS JOIN LATERAL jsonb_array_elements(CASE WHEN jsonb_typeof(m.value) = 'array' " +
+            "THEN m.value ELSE jsonb_build_array(m.value) END) WITH ORDINALITY AS v(node, value_ord)) d " +
+            "WHERE c.id IN (:ids) AND jsonb_typeof(d.node) IN ('string', 'number', 'boolean') " +
+            "AND BTRIM(d.node #>> '{}') <> '' " +
+            "ORDER BY c.id, d.ord, d.value_ord",
+            nativeQuery = true)
+    List<DesignationRow> findDesignations(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT COUNT(c) AS rowCount, MAX(c.id) AS maxId, MAX(c.updatedAt) AS lastUpdated FROM CodeSystemEntry c")
+    TableStamp findStamp();
 }
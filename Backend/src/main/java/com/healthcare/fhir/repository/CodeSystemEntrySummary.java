@@ -0,0 +1,22 @@
+// CodeSystemEntrySummary.java
+package com.healthcare.fhir.repository;
+
+/**
+ * Projection of CodeSystemEntry used to build the in-memory snapshot
+ * without hydrating entities or their audit columns.
+ */
+public interface CodeSystemEntrySummary {
+    Long getId();
+
+    String getSystemUri();
+
+    String getCode();
+
+    String getDisplay();
+
+    String getDefinition();
+
+    String getVersion();
+
+    String getDesignations();
+}
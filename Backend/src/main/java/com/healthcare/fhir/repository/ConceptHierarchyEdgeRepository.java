@@ -0,0 +1,14 @@
+package com.healthcare.fhir.repository;
+
+import com.healthcare.fhir.entity.ConceptHierarchyEdge;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ConceptHierarchyEdgeRepository extends JpaRepository<ConceptHierarchyEdge, Long> {
+    List<ConceptHierarchyEdge> findBySystemUri(String systemUri);
+
+    List<ConceptHierarchyEdge> findBySystemUriAndChildCode(String systemUri, String childCode);
+}
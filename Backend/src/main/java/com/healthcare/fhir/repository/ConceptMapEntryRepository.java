@@ -2,8 +2,10 @@ package com.healthcare.fhir.repository;
 
 import com.healthcare.fhir.entity.ConceptMapEntry;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,5 +18,24 @@ public interface ConceptMapEntryRepository extends JpaRepository<ConceptMapEntry
 
     List<ConceptMapEntry> findBySourceSystem(String sourceSystem);
 
+    List<ConceptMapEntry> findBySourceSystemInAndSourceCodeIn(Collection<String> sourceSystems,
+                                                              Collection<String> sourceCodes);
+
     List<ConceptMapEntry> findByTargetSystem(String targetSystem);
+
+    List<ConceptMapEntry> findByTargetSystemAndTargetCodeOrUri(String targetSystem, String targetCodeOrUri);
+
+    List<ConceptMapEntry> findByTargetSystemInAndTargetCodeOrUriIn(Collection<String> targetSystems,
+                                                                   Collection<String> targetCodes);
+
+    @Query("SELECT DISTINCT m.sourceSystem AS system, m.sourceCode AS code FROM ConceptMapEntry m")
+    List<SystemCodeKey> findAllSourceKeys();
+
+    @Query("SELECT m.sourceSystem AS sourceSystem, m.sourceCode AS sourceCode, m.targetSystem AS targetSystem, " +
+            "m.targetCodeOrUri AS targetCode, m.equivalence AS equivalence, m.comment AS comment " +
+            "FROM ConceptMapEntry m ORDER BY m.id")
+    List<ConceptMapEntrySummary> findAllSummaries();
+
+    @Query("SELECT COUNT(m) AS rowCount, MAX(m.id) AS maxId, MAX(m.updatedAt) AS lastUpdated FROM ConceptMapEntry m")
+    TableStamp findStamp();
 }
@@ -0,0 +1,22 @@
+// ConceptMapEntrySummary.java
+package com.healthcare.fhir.repository;
+
+import com.healthcare.fhir.entity.Equivalence;
+
+/**
+ * Projection of ConceptMapEntry used to build the concept map index and snapshot file
+ * without hydrating entities or their audit columns.
+ */
+public interface ConceptMapEntrySummary {
+    String getSourceSystem();
+
+    String getSourceCode();
+
+    String getTargetSystem();
+
+    String getTargetCode();
+
+    Equivalence getEquivalence();
+
+    String getComment();
+}
@@ -0,0 +1,16 @@
+// DesignationRow.java
+package com.healthcare.fhir.repository;
+
+/**
+ * One designation unpacked from the designations JSONB column by Postgres, so the database
+ * fallbacks read designations without parsing the JSON per request.
+ */
+public interface DesignationRow {
+    Long getConceptId();
+
+    String getLanguage();
+
+    String getDesignationUse();
+
+    String getValue();
+}
@@ -0,0 +1,16 @@
+package com.healthcare.fhir.repository;
+
+import com.healthcare.fhir.entity.IcdCandidate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface IcdCandidateRepository extends JpaRepository<IcdCandidate, Long> {
+    List<IcdCandidate> findBySourceSystemAndSourceCodeOrderByCandidateRankAsc(String sourceSystem, String sourceCode);
+
+    List<IcdCandidate> findBySourceSystemInAndSourceCodeInOrderByCandidateRankAsc(Collection<String> sourceSystems,
+                                                                                  Collection<String> sourceCodes);
+}
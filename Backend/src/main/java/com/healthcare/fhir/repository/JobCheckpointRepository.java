@@ -0,0 +1,25 @@
+package com.healthcare.fhir.repository;
+
+import com.healthcare.fhir.entity.JobCheckpoint;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface JobCheckpointRepository extends JpaRepository<JobCheckpoint, String> {
+    @Modifying
+    @Query(value = "INSERT INTO job_checkpoints (job_name, last_id, updated_at) VALUES (:jobName, 0, now()) " +
+            "ON CONFLICT (job_name) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("jobName") String jobName);
+
+    // SELECT ... FOR UPDATE: other replicas wait on the row until the surrounding transaction ends
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT j FROM JobCheckpoint j WHERE j.jobName = :jobName")
+    Optional<JobCheckpoint> findForUpdate(@Param("jobName") String jobName);
+}
@@ -0,0 +1,11 @@
+// SystemCodeKey.java
+package com.healthcare.fhir.repository;
+
+/**
+ * Projection of a (system, code) pair, used to build the known-code Bloom filters.
+ */
+public interface SystemCodeKey {
+    String getSystem();
+
+    String getCode();
+}
@@ -0,0 +1,16 @@
+// TableStamp.java
+package com.healthcare.fhir.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Row count, highest id and latest update of a table, used to tell whether
+ * a terminology snapshot file still matches the database.
+ */
+public interface TableStamp {
+    long getRowCount();
+
+    Long getMaxId();
+
+    LocalDateTime getLastUpdated();
+}
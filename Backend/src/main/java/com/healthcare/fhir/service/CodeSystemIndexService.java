@@ -0,0 +1,120 @@
+// CodeSystemIndexService.java
+package com.healthcare.fhir.service;
+
+import com.healthcare.fhir.index.CodeSystemSnapshot;
+import com.healthcare.fhir.entity.ConceptHierarchyEdge;
+import com.healthcare.fhir.index.ConceptTable;
+import com.healthcare.fhir.index.HierarchyIndex;
+import com.healthcare.fhir.repository.ConceptHierarchyEdgeRepository;
+import com.healthcare.fhir.repository.CodeSystemEntryRepository;
+import com.healthcare.fhir.repository.CodeSystemEntrySummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Owns the in-memory CodeSystemSnapshot used by $expand, $lookup and prefix autocomplete.
+ * The snapshot is built from the table at startup and rebuilt after every code import.
+ */
+@Service
+public class CodeSystemIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CodeSystemIndexService.class);
+
+    @Value("${terminology.index.enabled:true}")
+    private boolean indexEnabled;
+
+    @Value("${terminology.autocomplete.top-k:10}")
+    private int autocompleteTopK;
+
+    @Value("${terminology.fuzzy.max-edit-distance:2}")
+    private int fuzzyMaxDistance;
+
+    @Autowired
+    private CodeSystemEntryRepository codeSystemRepository;
+
+    @Autowired
+    private ConceptHierarchyEdgeRepository hierarchyEdgeRepository;
+
+    @Autowired
+    private DesignationParser designationParser;
+
+    @Autowired
+    private TerminologyGeneration generation;
+
+    @Autowired
+    private SnapshotFileService snapshotFileService;
+
+    @Autowired
+    private IcdSimilarityService icdSimilarityService;
+
+    private volatile CodeSystemSnapshot snapshot;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onTerminologyUpdated(TerminologyUpdatedEvent event) {
+        if (event.getScope() == TerminologyUpdatedEvent.Scope.CODE_SYSTEMS) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Returns the current snapshot, or null while it is disabled or not yet built.
+     */
+    public CodeSystemSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public synchronized void rebuild() {
+        if (!indexEnabled) {
+            return;
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            String stamp = snapshotFileService.conceptStamp();
+
+            ConceptTable.Builder builder = ConceptTable.builder();
+            for (CodeSystemEntrySummary row : codeSystemRepository.findAllSummaries()) {
+                builder.add(row.getId(), row.getSystemUri(), row.getCode(), row.getDisplay(),
+                        row.getDefinition(), row.getVersion(), designationParser.parse(row.getDesignations()));
+            }
+            List<HierarchyIndex.Edge> edges = new ArrayList<>();
+            for (ConceptHierarchyEdge edge : hierarchyEdgeRepository.findAll()) {
+                edges.add(new HierarchyIndex.Edge(edge.getSystemUri(), edge.getParentCode(), edge.getChildCode()));
+            }
+            CodeSystemSnapshot rebuilt = CodeSystemSnapshot.build(builder.build(), edges, autocompleteTopK, fuzzyMaxDistance);
+            snapshot = rebuilt;
+            generation.bump();
+
+            logger.info("Built code system index with {} concepts, {} designations, {} hierarchy edges, {} trigrams and {} fuzzy terms in {} ms",
+                    rebuilt.getConcepts().size(), rebuilt.getDesignationIndex().size(), rebuilt.getHierarchy().edgeCount(),
+                    rebuilt.getNgramIndex().gramCount(), rebuilt.getFuzzyIndex().termCount(),
+                    System.currentTimeMillis() - start);
+            if (rebuilt.getHierarchy().droppedEdges() > 0) {
+                logger.warn("Ignored {} hierarchy edges that would close a cycle", rebuilt.getHierarchy().droppedEdges());
+            }
+
+            snapshotFileService.write(rebuilt.getConcepts(), stamp);
+            icdSimilarityService.rebuild(rebuilt.getConcepts());
+        } catch (Exception e) {
+            // Keep serving the previous snapshot (or the database) rather than failing the import
+            logger.error("Failed to build code system index", e);
+        }
+    }
+}
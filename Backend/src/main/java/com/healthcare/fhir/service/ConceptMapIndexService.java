@@ -0,0 +1,134 @@
+// ConceptMapIndexService.java
+package com.healthcare.fhir.service;
+
+import com.healthcare.fhir.entity.Equivalence;
+import com.healthcare.fhir.index.ConceptMapIndex;
+import com.healthcare.fhir.index.ConceptMapping;
+import com.healthcare.fhir.index.TransitiveMappings;
+import com.healthcare.fhir.repository.ConceptMapEntryRepository;
+import com.healthcare.fhir.repository.ConceptMapEntrySummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Owns the in-memory ConceptMapIndexes used by $translate: one keyed on the source concept, and one
+ * keyed on the target concept, with inverted equivalences, for reverse translation. Each also has a
+ * transitive variant holding every path of up to terminology.translate.max-hops edges, materialised so a
+ * chained translation is a single lookup. All are built at startup and swapped in together after every
+ * concept map import commits.
+ */
+@Service
+public class ConceptMapIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConceptMapIndexService.class);
+
+    @Value("${terminology.index.enabled:true}")
+    private boolean indexEnabled;
+
+    @Value("${terminology.translate.max-hops:3}")
+    private int maxHops;
+
+    @Autowired
+    private ConceptMapEntryRepository conceptMapRepository;
+
+    private record Indexes(ConceptMapIndex direct, ConceptMapIndex reverse,
+                           ConceptMapIndex transitive, ConceptMapIndex reverseTransitive) {
+    }
+
+    private volatile Indexes indexes;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onTerminologyUpdated(TerminologyUpdatedEvent event) {
+        if (event.getScope() == TerminologyUpdatedEvent.Scope.CONCEPT_MAPS) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Returns the current index for the direction and path length, or null while it is disabled or not yet built.
+     */
+    public ConceptMapIndex getIndex(boolean reverse, boolean transitive) {
+        Indexes current = indexes;
+        if (current == null) {
+            return null;
+        }
+        if (transitive) {
+            return reverse ? current.reverseTransitive() : current.transitive();
+        }
+        return reverse ? current.reverse() : current.direct();
+    }
+
+    public int getMaxHops() {
+        return maxHops;
+    }
+
+    /**
+     * Composes two equivalence names along a path; null when the path cannot continue.
+     */
+    static String compose(String first, String second) {
+        Equivalence composed = Equivalence.valueOf(first).compose(Equivalence.valueOf(second));
+        return composed != null ? composed.name() : null;
+    }
+
+    /**
+     * Reads every concept map entry in insertion order.
+     */
+    public List<ConceptMapping> loadMappings() {
+        List<ConceptMapping> mappings = new ArrayList<>();
+        for (ConceptMapEntrySummary row : conceptMapRepository.findAllSummaries()) {
+            mappings.add(new ConceptMapping(row.getSourceSystem(), row.getSourceCode(), row.getTargetSystem(),
+                    row.getTargetCode(), row.getEquivalence().name(), row.getComment()));
+        }
+        return mappings;
+    }
+
+    public synchronized void rebuild() {
+        if (!indexEnabled) {
+            return;
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            List<ConceptMapping> mappings = loadMappings();
+            List<ConceptMapping> reversed = new ArrayList<>(mappings.size());
+            for (ConceptMapping mapping : mappings) {
+                reversed.add(new ConceptMapping(mapping.targetSystem(), mapping.targetCode(), mapping.sourceSystem(),
+                        mapping.sourceCode(), Equivalence.valueOf(mapping.equivalence()).inverse().name(),
+                        mapping.comment()));
+            }
+            ConceptMapIndex direct = ConceptMapIndex.build(mappings);
+            ConceptMapIndex reverse = ConceptMapIndex.build(reversed);
+            ConceptMapIndex transitive = maxHops > 1
+                    ? ConceptMapIndex.build(TransitiveMappings.expandAll(mappings, maxHops, ConceptMapIndexService::compose))
+                    : direct;
+            ConceptMapIndex reverseTransitive = maxHops > 1
+                    ? ConceptMapIndex.build(TransitiveMappings.expandAll(reversed, maxHops, ConceptMapIndexService::compose))
+                    : reverse;
+            indexes = new Indexes(direct, reverse, transitive, reverseTransitive);
+            logger.info("Built concept map index with {} source concepts, {} target concepts, {} mappings and {} paths of up to {} hops in {} ms",
+                    direct.sourceCount(), reverse.sourceCount(), direct.size(), transitive.size(), maxHops,
+                    System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            // Without a current index, translations fall back to the snapshot file or the database
+            indexes = null;
+            logger.error("Failed to build concept map index", e);
+        }
+    }
+}
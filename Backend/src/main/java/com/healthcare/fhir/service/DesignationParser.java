@@ -0,0 +1,97 @@
+// DesignationParser.java
+package com.healthcare.fhir.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.healthcare.fhir.index.Designation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the designations JSONB column. Two shapes are accepted: the FHIR concept.designation
+ * array, [{"language": "hi", "use": {"code": "..."}, "value": "..."}], and a language map,
+ * {"hi": "...", "ta": ["...", "..."]}. Parses once per row while the snapshot is built, and checks
+ * uploaded rows; the database fallbacks read the same shapes through CodeSystemEntryRepository.findDesignations.
+ */
+@Service
+public class DesignationParser {
+
+    private static final Logger logger = LoggerFactory.getLogger(DesignationParser.class);
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public List<Designation> parse(String json) {
+        List<Designation> designations = new ArrayList<>();
+        if (json == null || json.isBlank()) {
+            return designations;
+        }
+
+        try {
+            JsonNode root = objectMapper.readTree(json);
+            if (root.isArray()) {
+                for (JsonNode node : root) {
+                    String value = text(node.get("value"));
+                    if (value != null) {
+                        designations.add(new Designation(text(node.get("language")), use(node.get("use")), value));
+                    }
+                }
+            } else if (root.isObject()) {
+                Iterator<Map.Entry<String, JsonNode>> fields = root.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    if (field.getValue().isArray()) {
+                        for (JsonNode node : field.getValue()) {
+                            addValue(designations, field.getKey(), text(node));
+                        }
+                    } else {
+                        addValue(designations, field.getKey(), text(field.getValue()));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Ignoring unreadable designations: {}", json, e);
+        }
+        return designations;
+    }
+
+    /**
+     * True when the text is JSON that Postgres will accept for the JSONB column.
+     */
+    public boolean isReadable(String json) {
+        try {
+            objectMapper.readTree(json);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static void addValue(List<Designation> designations, String language, String value) {
+        if (value != null) {
+            designations.add(new Designation(language, null, value));
+        }
+    }
+
+    private static String use(JsonNode node) {
+        if (node != null && node.isObject()) {
+            return text(node.get("code"));
+        }
+        return text(node);
+    }
+
+    private static String text(JsonNode node) {
+        if (node == null || !node.isValueNode()) {
+            return null;
+        }
+        String text = node.asText().trim();
+        return text.isEmpty() ? null : text;
+    }
+}
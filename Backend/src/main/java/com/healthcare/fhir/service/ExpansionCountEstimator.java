@@ -0,0 +1,65 @@
+// ExpansionCountEstimator.java
+package com.healthcare.fhir.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Estimates the size of a filtered expansion from the Postgres planner instead of
+ * running count(*), for $expand requests made with _total=estimate.
+ */
+@Service
+public class ExpansionCountEstimator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpansionCountEstimator.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Returns the planner's row estimate, or null when no estimate is available.
+     *
+     * @param systemUri restrict to one code system, or null for all systems
+     * @param filter    substring filter, or null for the whole table
+     * @param ranked    whether the database search mode's full-text predicate applies
+     */
+    public Integer estimate(String systemUri, String filter, boolean ranked) {
+        // Same predicates as the repository queries, with the values bound so the planner estimates for them
+        StringBuilder sql = new StringBuilder("EXPLAIN (FORMAT JSON) SELECT 1 FROM code_system_entries c WHERE TRUE");
+        List<Object> args = new ArrayList<>();
+        if (systemUri != null) {
+            sql.append(" AND c.system_uri = ?");
+            args.add(systemUri);
+        }
+        if (filter != null) {
+            sql.append(" AND (");
+            if (ranked) {
+                sql.append("c.search_vector @@ plainto_tsquery('simple', ?) OR ");
+                args.add(filter);
+            }
+            sql.append("LOWER(c.code) LIKE LOWER(CONCAT('%', ?, '%')) OR LOWER(c.display) LIKE LOWER(CONCAT('%', ?, '%')))");
+            args.add(filter);
+            args.add(filter);
+        }
+
+        try {
+            String plan = jdbcTemplate.queryForObject(sql.toString(), String.class, args.toArray());
+            JsonNode planRows = objectMapper.readTree(plan).path(0).path("Plan").path("Plan Rows");
+            return planRows.isNumber() ? (int) Math.min(planRows.asLong(), Integer.MAX_VALUE) : null;
+        } catch (Exception e) {
+            logger.warn("Failed to estimate expansion size for filter: {}", filter, e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+// ExpansionCursor.java
+package com.healthcare.fhir.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position of the last concept returned by a keyset-paged $expand, ordered by
+ * (systemUri, code, id). Clients only see the opaque token form.
+ * The in-memory index compares strings by UTF-16 code unit while Postgres uses the column collation,
+ * so a token records which of the two orders it was issued under and is only resumed in that order.
+ * A RANKED token instead pages through relevance-ordered index results: it holds the number of
+ * ranked results already returned and the terminology generation they were ranked under.
+ */
+public class ExpansionCursor {
+
+    private static final char SEPARATOR = '\u0000';
+
+    public enum Order {
+        INDEX('i'),
+        DATABASE('d'),
+        RANKED('r');
+
+        private final char tag;
+
+        Order(char tag) {
+            this.tag = tag;
+        }
+
+        static Order of(char tag) {
+            for (Order order : values()) {
+                if (order.tag == tag) {
+                    return order;
+                }
+            }
+            throw new IllegalArgumentException("Unknown continuation token order: " + tag);
+        }
+    }
+
+    private final Order order;
+    private final String systemUri;
+    private final String code;
+    private final long id;
+
+    public ExpansionCursor(Order order, String systemUri, String code, long id) {
+        this.order = order;
+        this.systemUri = systemUri;
+        this.code = code;
+        this.id = id;
+    }
+
+    public static ExpansionCursor ranked(long generation, int position) {
+        return new ExpansionCursor(Order.RANKED, "", Long.toString(generation), position);
+    }
+
+    public Order getOrder() { return order; }
+
+    public String getSystemUri() { return systemUri; }
+
+    public String getCode() { return code; }
+
+    public long getId() { return id; }
+
+    /** For RANKED tokens, the generation the results were ranked under. */
+    public long getGeneration() { return Long.parseLong(code); }
+
+    /** For RANKED tokens, the number of ranked results already returned. */
+    public int getRankPosition() { return (int) id; }
+
+    public String encode() {
+        String raw = order.tag + Long.toString(id) + SEPARATOR + systemUri + SEPARATOR + code;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ExpansionCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int first = raw.indexOf(SEPARATOR);
+            int second = raw.indexOf(SEPARATOR, first + 1);
+            if (first < 1 || second < 0) {
+                throw new IllegalArgumentException("Malformed continuation token");
+            }
+            ExpansionCursor cursor = new ExpansionCursor(Order.of(raw.charAt(0)), raw.substring(first + 1, second),
+                    raw.substring(second + 1), Long.parseLong(raw.substring(1, first)));
+            if (cursor.order == Order.RANKED && (cursor.getGeneration() < 0 || cursor.id < 0 || cursor.id > Integer.MAX_VALUE)) {
+                throw new IllegalArgumentException("Malformed continuation token");
+            }
+            return cursor;
+        } catch (IllegalArgumentException e) {
+            // Also covers NumberFormatException and invalid Base64
+            throw new IllegalArgumentException("Invalid continuation token", e);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+// ExpansionStreamService.java
+package com.healthcare.fhir.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Locale;
+
+/**
+ * Writes whole ValueSet expansions straight to the response for bulk exports ($expand?stream=true).
+ * Rows are read through a forward-only cursor and serialised one at a time, so memory use does
+ * not grow with the size of the code system and no entities or DTO lists are built.
+ */
+@Service
+public class ExpansionStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpansionStreamService.class);
+
+    // Ordered like the keyset index, so Postgres walks idx_code_system_entries_keyset instead of sorting
+    private static final String SELECT = "SELECT system_uri, code, display FROM code_system_entries WHERE TRUE";
+    private static final String ORDER = " ORDER BY system_uri, code, id";
+
+    @Value("${namaste.system-uri}")
+    private String namasteSystemUri;
+
+    @Value("${terminology.stream.fetch-size:1000}")
+    private int fetchSize;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Streams the expansion as a FHIR ValueSet. The PostgreSQL driver only honours the fetch size
+     * with auto-commit off, hence the read-only transaction around the cursor.
+     *
+     * @param url    restrict to one code system, or null for every system
+     * @param filter optional substring filter on code or display
+     */
+    @Transactional(readOnly = true)
+    public void writeExpansion(String url, String filter, OutputStream out) throws IOException {
+        boolean hasUrl = url != null && !url.trim().isEmpty();
+        boolean hasFilter = filter != null && !filter.trim().isEmpty();
+        String pattern = hasFilter ? "%" + filter.toLowerCase(Locale.ROOT) + "%" : null;
+
+        StringBuilder sql = new StringBuilder(SELECT);
+        if (hasUrl) {
+            sql.append(" AND system_uri = ?");
+        }
+        if (hasFilter) {
+            sql.append(" AND (LOWER(code) LIKE ? OR LOWER(display) LIKE ?)");
+        }
+        sql.append(ORDER);
+
+        long start = System.currentTimeMillis();
+        long[] written = new long[1];
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            generator.writeStringField("resourceType", "ValueSet");
+            generator.writeStringField("url", hasUrl ? url : namasteSystemUri);
+            generator.writeObjectFieldStart("expansion");
+            generator.writeNumberField("offset", 0);
+            generator.writeArrayFieldStart("contains");
+
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(sql.toString(),
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                int index = 1;
+                if (hasUrl) {
+                    statement.setString(index++, url);
+                }
+                if (hasFilter) {
+                    statement.setString(index++, pattern);
+                    statement.setString(index, pattern);
+                }
+                return statement;
+            }, resultSet -> {
+                try {
+                    generator.writeStartObject();
+                    generator.writeStringField("system", resultSet.getString(1));
+                    generator.writeStringField("code", resultSet.getString(2));
+                    generator.writeStringField("display", resultSet.getString(3));
+                    generator.writeEndObject();
+                    written[0]++;
+                } catch (IOException e) {
+                    // Client went away; abandon the cursor rather than reading the rest of the table
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            generator.writeEndArray();
+            // Known only once every row has been written, which JSON field order allows
+            generator.writeNumberField("total", written[0]);
+            generator.writeEndObject();
+            generator.writeEndObject();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        logger.info("Streamed ValueSet expansion with {} entries for url: {} in {} ms",
+                written[0], url, System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,160 @@
+// IcdCandidatePrecomputeService.java
+package com.healthcare.fhir.service;
+
+import com.healthcare.fhir.entity.CodeSystemEntry;
+import com.healthcare.fhir.repository.CodeSystemEntryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Background job that searches ICD-11 for every NAMASTE concept without a concept map entry and
+ * stores the top hits in icd_candidates, so $translate can serve them without a live search.
+ * Concepts are walked in id order at no more than terminology.precompute.rate-per-second searches;
+ * a checkpoint is saved after each one, so a run stopped by a restart, an error or an open ICD
+ * circuit resumes where it left off. Concepts added later have higher ids and are picked up by the next run.
+ * Only one replica runs the job at a time: it holds a lease on the job's checkpoint row (see IcdCandidateStore),
+ * renewed with every checkpoint and released at the end of the run.
+ */
+@Service
+public class IcdCandidatePrecomputeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IcdCandidatePrecomputeService.class);
+
+    private static final String JOB_NAME = "icd-candidate-precompute";
+
+    @Value("${terminology.precompute.enabled:false}")
+    private boolean precomputeEnabled;
+
+    @Value("${terminology.precompute.top-n:5}")
+    private int topN;
+
+    @Value("${terminology.precompute.page-size:100}")
+    private int pageSize;
+
+    @Value("${terminology.precompute.rate-per-second:2}")
+    private double ratePerSecond;
+
+    @Value("${terminology.precompute.lease-ms:600000}")
+    private long leaseMs;
+
+    @Value("${namaste.system-uri}")
+    private String namasteSystemUri;
+
+    @Autowired
+    private CodeSystemEntryRepository codeSystemRepository;
+
+    @Autowired
+    private IcdCandidateStore candidateStore;
+
+    @Autowired
+    private IcdCandidateSource candidateSource;
+
+    @Autowired
+    private IcdSimilarityService icdSimilarityService;
+
+    // Names this JVM in job_checkpoints.locked_by
+    private final String owner = UUID.randomUUID().toString();
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Scheduled(initialDelayString = "${terminology.precompute.initial-delay-ms:60000}",
+            fixedDelayString = "${terminology.precompute.interval-ms:3600000}")
+    public void run() {
+        if (!precomputeEnabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        Duration lease = Duration.ofMillis(leaseMs);
+        Long lastId = null;
+        try {
+            lastId = candidateStore.acquire(JOB_NAME, owner, lease);
+            if (lastId == null) {
+                logger.debug("ICD candidate precompute is running on another instance");
+                return;
+            }
+            precompute(lastId, lease);
+        } catch (Exception e) {
+            logger.error("ICD candidate precompute failed", e);
+        } finally {
+            if (lastId != null) {
+                try {
+                    candidateStore.release(JOB_NAME, owner);
+                } catch (Exception e) {
+                    logger.warn("Could not release the ICD candidate precompute lease; it expires in {} ms", leaseMs, e);
+                }
+            }
+            running.set(false);
+        }
+    }
+
+    private void precompute(long lastId, Duration lease) {
+        long minIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        long nextCallAt = System.nanoTime();
+        int searched = 0;
+        int stored = 0;
+        long start = System.currentTimeMillis();
+
+        while (true) {
+            List<CodeSystemEntry> page = codeSystemRepository.findUnmappedAfter(
+                    namasteSystemUri, lastId, PageRequest.of(0, pageSize));
+            if (page.isEmpty()) {
+                break;
+            }
+            for (CodeSystemEntry entry : page) {
+                if (!candidateSource.isAvailable()) {
+                    logger.warn("ICD unavailable, pausing candidate precompute after id {}", lastId);
+                    return;
+                }
+                // Fixed spacing between calls keeps the job under the WHO API rate limit
+                long wait = nextCallAt - System.nanoTime();
+                if (wait > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                nextCallAt = System.nanoTime() + minIntervalNanos;
+
+                List<IcdCandidateSource.Candidate> candidates;
+                try {
+                    candidates = candidateSource.search(searchTerm(entry), topN);
+                } catch (Exception e) {
+                    logger.warn("ICD search failed for {}, pausing candidate precompute after id {}",
+                            entry.getCode(), lastId, e);
+                    return;
+                }
+                if (!candidateStore.store(JOB_NAME, owner, lastId, lease, entry, candidates)) {
+                    logger.warn("ICD candidate precompute lease lost after id {}, stopping", lastId);
+                    return;
+                }
+                lastId = entry.getId();
+                searched++;
+                stored += candidates.size();
+            }
+        }
+
+        if (searched > 0) {
+            logger.info("Precomputed {} ICD candidates for {} unmapped concepts in {} ms",
+                    stored, searched, System.currentTimeMillis() - start);
+            // New search hits add ICD-11 titles to the local similarity index
+            icdSimilarityService.rebuild();
+        }
+    }
+
+    // English display is what the WHO search understands; the code is only a last resort
+    private static String searchTerm(CodeSystemEntry entry) {
+        return entry.getDisplay() != null && !entry.getDisplay().isBlank() ? entry.getDisplay() : entry.getCode();
+    }
+}
@@ -0,0 +1,26 @@
+// IcdCandidateSource.java
+package com.healthcare.fhir.service;
+
+import java.util.List;
+
+/**
+ * Where the ICD candidate precompute job gets its search hits. The live source calls the WHO API
+ * (terminology.precompute.source=live); the stub answers from a local CSV file for tests and offline runs.
+ */
+public interface IcdCandidateSource {
+
+    record Candidate(String code, String title, Double score) {
+    }
+
+    /**
+     * Best hits first. Throws when the source failed, so the job can stop without moving its checkpoint.
+     */
+    List<Candidate> search(String term, int limit);
+
+    /**
+     * False while calls should be held back, e.g. when the WHO API circuit is open.
+     */
+    default boolean isAvailable() {
+        return true;
+    }
+}
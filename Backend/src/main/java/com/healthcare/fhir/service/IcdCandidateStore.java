@@ -0,0 +1,96 @@
+// IcdCandidateStore.java
+package com.healthcare.fhir.service;
+
+import com.healthcare.fhir.entity.CodeSystemEntry;
+import com.healthcare.fhir.entity.IcdCandidate;
+import com.healthcare.fhir.entity.JobCheckpoint;
+import com.healthcare.fhir.repository.IcdCandidateRepository;
+import com.healthcare.fhir.repository.JobCheckpointRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Transactional steps of the ICD candidate precompute job. The job's job_checkpoints row doubles as a
+ * lease: it is read with a row lock, so replicas take turns on it, and only the replica named in
+ * locked_by may move the checkpoint until locked_until passes. Each concept's candidates are replaced
+ * in the same transaction that moves the checkpoint and renews the lease.
+ */
+@Service
+public class IcdCandidateStore {
+
+    @Autowired
+    private IcdCandidateRepository icdCandidateRepository;
+
+    @Autowired
+    private JobCheckpointRepository checkpointRepository;
+
+    /**
+     * Takes the lease when it is free, expired or already ours; returns the checkpoint to resume
+     * from, or null when another replica holds the job.
+     */
+    @Transactional
+    public Long acquire(String jobName, String owner, Duration lease) {
+        checkpointRepository.insertIfAbsent(jobName);
+        JobCheckpoint checkpoint = checkpointRepository.findForUpdate(jobName).orElseThrow();
+        LocalDateTime now = LocalDateTime.now();
+        if (checkpoint.getLockedBy() != null && !owner.equals(checkpoint.getLockedBy())
+                && checkpoint.getLockedUntil() != null && checkpoint.getLockedUntil().isAfter(now)) {
+            return null;
+        }
+        checkpoint.setLockedBy(owner);
+        checkpoint.setLockedUntil(now.plus(lease));
+        return checkpointRepository.save(checkpoint).getLastId();
+    }
+
+    /**
+     * Replaces the stored candidates of one concept and moves the checkpoint past it. Returns false,
+     * writing nothing, when the lease has passed to another replica or the checkpoint moved meanwhile.
+     */
+    @Transactional
+    public boolean store(String jobName, String owner, long lastId, Duration lease,
+                         CodeSystemEntry entry, List<IcdCandidateSource.Candidate> candidates) {
+        JobCheckpoint checkpoint = checkpointRepository.findForUpdate(jobName).orElse(null);
+        if (checkpoint == null || !owner.equals(checkpoint.getLockedBy())
+                || !Objects.equals(checkpoint.getLastId(), lastId)) {
+            return false;
+        }
+
+        icdCandidateRepository.deleteAll(icdCandidateRepository
+                .findBySourceSystemAndSourceCodeOrderByCandidateRankAsc(entry.getSystemUri(), entry.getCode()));
+        List<IcdCandidate> rows = new ArrayList<>();
+        for (IcdCandidateSource.Candidate candidate : candidates) {
+            IcdCandidate row = new IcdCandidate();
+            row.setSourceSystem(entry.getSystemUri());
+            row.setSourceCode(entry.getCode());
+            row.setCandidateRank(rows.size());
+            row.setIcdCode(candidate.code());
+            row.setTitle(candidate.title());
+            row.setScore(candidate.score());
+            rows.add(row);
+        }
+        icdCandidateRepository.saveAll(rows);
+
+        checkpoint.setLastId(entry.getId());
+        checkpoint.setLockedUntil(LocalDateTime.now().plus(lease));
+        checkpointRepository.save(checkpoint);
+        return true;
+    }
+
+    @Transactional
+    public void release(String jobName, String owner) {
+        checkpointRepository.findForUpdate(jobName)
+                .filter(checkpoint -> owner.equals(checkpoint.getLockedBy()))
+                .ifPresent(checkpoint -> {
+                    checkpoint.setLockedBy(null);
+                    checkpoint.setLockedUntil(null);
+                    checkpointRepository.save(checkpoint);
+                });
+    }
+}
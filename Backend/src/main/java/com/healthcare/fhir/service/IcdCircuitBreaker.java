@@ -0,0 +1,101 @@
+// IcdCircuitBreaker.java
+package com.healthcare.fhir.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker for the WHO ICD-11 API. After a run of consecutive failures the circuit opens
+ * and optional ICD calls are skipped; once the open period has passed a single trial call is let
+ * through (half-open), and its outcome closes or reopens the circuit. IcdSyncService reports the
+ * outcome of every call; callers on the request path ask allowRequest first.
+ */
+@Service
+public class IcdCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(IcdCircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final Counter rejected;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private long trialStartedAt;
+    private boolean trialInFlight;
+
+    public IcdCircuitBreaker(@Value("${icd.circuit-breaker.failure-threshold:5}") int failureThreshold,
+                             @Value("${icd.circuit-breaker.open-ms:30000}") long openMs,
+                             MeterRegistry meterRegistry) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+        Gauge.builder("icd.circuit.state", this, breaker -> breaker.getState().ordinal())
+                .description("ICD-11 API circuit state: 0 closed, 1 open, 2 half-open")
+                .register(meterRegistry);
+        Gauge.builder("icd.circuit.consecutive.failures", this, breaker -> breaker.getConsecutiveFailures())
+                .register(meterRegistry);
+        this.rejected = Counter.builder("icd.circuit.rejected")
+                .description("ICD-11 calls skipped because the circuit was open")
+                .register(meterRegistry);
+    }
+
+    /**
+     * True when an ICD call may be made now. In the half-open state only one trial call is allowed;
+     * a trial that never reports back is replaced after another open period.
+     */
+    public synchronized boolean allowRequest() {
+        long now = System.nanoTime();
+        if (state == State.OPEN && now - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+            logger.info("ICD circuit half-open, allowing a trial call");
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && (!trialInFlight || now - trialStartedAt >= openNanos)) {
+            trialInFlight = true;
+            trialStartedAt = now;
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        if (state != State.CLOSED) {
+            state = State.CLOSED;
+            logger.info("ICD circuit closed");
+        }
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            logger.warn("ICD circuit opened after {} consecutive failures", consecutiveFailures);
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+}
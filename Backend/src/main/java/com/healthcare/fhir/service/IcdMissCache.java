@@ -0,0 +1,54 @@
+// IcdMissCache.java
+package com.healthcare.fhir.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Bounded negative cache of ICD-11 misses: entity ids the WHO API answered 404 for and search
+ * terms that returned no entities. Only definite answers are recorded, never errors or timeouts,
+ * and entries expire so codes added in a new ICD release are picked up.
+ */
+@Service
+public class IcdMissCache {
+
+    private final Cache<String, Boolean> misses;
+
+    public IcdMissCache(@Value("${terminology.negative-cache.size:100000}") long maxEntries,
+                        @Value("${terminology.negative-cache.ttl-minutes:60}") long ttlMinutes,
+                        MeterRegistry meterRegistry) {
+        this.misses = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, misses, "icdMisses");
+    }
+
+    public boolean isUnknownEntity(String entityId) {
+        return entityId != null && misses.getIfPresent("entity:" + entityId) != null;
+    }
+
+    public void recordUnknownEntity(String entityId) {
+        misses.put("entity:" + entityId, Boolean.TRUE);
+    }
+
+    public boolean isEmptySearch(String query) {
+        return query != null && misses.getIfPresent(searchKey(query)) != null;
+    }
+
+    public void recordEmptySearch(String query) {
+        misses.put(searchKey(query), Boolean.TRUE);
+    }
+
+    private static String searchKey(String query) {
+        return "search:" + query.trim().toLowerCase(Locale.ROOT);
+    }
+}
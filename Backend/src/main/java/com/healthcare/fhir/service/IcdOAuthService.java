@@ -5,7 +5,7 @@ package com.healthcare.fhir.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
 import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
@@ -14,20 +14,60 @@ import org.springframework.security.oauth2.client.registration.ClientRegistratio
 import org.springframework.security.oauth2.core.OAuth2AccessToken;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 @Service
 public class IcdOAuthService {
 
     private static final Logger logger = LoggerFactory.getLogger(IcdOAuthService.class);
     private static final String CLIENT_REGISTRATION_ID = "icd";
 
+    // Refresh a little before expiry so a request never leaves with a token that lapses in flight
+    private static final Duration EXPIRY_MARGIN = Duration.ofSeconds(60);
+
     @Autowired
     private OAuth2AuthorizedClientManager authorizedClientManager;
 
     @Autowired
     private ClientRegistrationRepository clientRegistrationRepository;
 
-    @Cacheable(value = "icdTokens", key = "'access_token'")
-    public String getAccessToken() {
+    @Autowired
+    @Qualifier("icdHttpExecutor")
+    private Executor icdHttpExecutor;
+
+    // Shared by every caller while in flight or valid; replaced once it fails or nears expiry
+    private CompletableFuture<OAuth2AccessToken> token;
+
+    /**
+     * Access token for the asynchronous ICD client. The token is held in memory and refreshed on
+     * icdHttpExecutor, so callers never block on the token endpoint and concurrent callers share one refresh.
+     */
+    public CompletableFuture<String> getAccessTokenAsync() {
+        CompletableFuture<OAuth2AccessToken> current;
+        synchronized (this) {
+            if (token == null || isStale(token)) {
+                token = CompletableFuture.supplyAsync(this::authorize, icdHttpExecutor);
+            }
+            current = token;
+        }
+        return current.thenApply(OAuth2AccessToken::getTokenValue);
+    }
+
+    private static boolean isStale(CompletableFuture<OAuth2AccessToken> token) {
+        if (!token.isDone()) {
+            return false;
+        }
+        if (token.isCompletedExceptionally()) {
+            return true;
+        }
+        Instant expiresAt = token.join().getExpiresAt();
+        return expiresAt != null && Instant.now().plus(EXPIRY_MARGIN).isAfter(expiresAt);
+    }
+
+    private OAuth2AccessToken authorize() {
         try {
             ClientRegistration clientRegistration = clientRegistrationRepository.findByRegistrationId(CLIENT_REGISTRATION_ID);
             if (clientRegistration == null) {
@@ -44,7 +84,7 @@ public class IcdOAuthService {
             if (authorizedClient != null) {
                 OAuth2AccessToken accessToken = authorizedClient.getAccessToken();
                 logger.debug("Successfully obtained ICD OAuth2 access token");
-                return accessToken.getTokenValue();
+                return accessToken;
             } else {
                 throw new RuntimeException("Failed to obtain OAuth2 authorized client for ICD API");
             }
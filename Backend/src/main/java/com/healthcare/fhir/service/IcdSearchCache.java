@@ -0,0 +1,43 @@
+// IcdSearchCache.java
+package com.healthcare.fhir.service;
+
+import com.healthcare.fhir.dto.FhirValueSetContains;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bounded LRU of ICD-11 search hits keyed by normalised filter. Federated $expand stores
+ * results here when they arrive, including after the request deadline, so the next
+ * request for the same filter merges them without waiting on the WHO API.
+ */
+@Service
+public class IcdSearchCache {
+
+    private final Map<String, List<FhirValueSetContains>> entries;
+
+    public IcdSearchCache(@Value("${terminology.federation.cache-size:1000}") int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<FhirValueSetContains>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public synchronized List<FhirValueSetContains> get(String filter) {
+        return entries.get(key(filter));
+    }
+
+    public synchronized void put(String filter, List<FhirValueSetContains> results) {
+        entries.put(key(filter), List.copyOf(results));
+    }
+
+    private static String key(String filter) {
+        return filter.trim().toLowerCase(Locale.ROOT);
+    }
+}
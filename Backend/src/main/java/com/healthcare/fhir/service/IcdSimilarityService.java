@@ -0,0 +1,110 @@
+// IcdSimilarityService.java
+package com.healthcare.fhir.service;
+
+import com.healthcare.fhir.entity.IcdCandidate;
+import com.healthcare.fhir.index.ConceptTable;
+import com.healthcare.fhir.index.SimilarityIndex;
+import com.healthcare.fhir.repository.IcdCandidateRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Local ICD-11 candidate matching by TF-IDF cosine similarity over character trigrams, with no
+ * WHO API call. The index covers the ICD-11 concepts imported as a code system (title and definition)
+ * and the titles of ICD search hits stored by the candidate precompute job. It is rebuilt by
+ * CodeSystemIndexService after every code import and by the precompute job after each run.
+ */
+@Service
+public class IcdSimilarityService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IcdSimilarityService.class);
+
+    private static final String ICD_SYSTEM_URI = "http://id.who.int/icd/release/11/mms";
+
+    @Value("${terminology.similarity.enabled:true}")
+    private boolean similarityEnabled;
+
+    @Value("${terminology.similarity.top-k:5}")
+    private int topK;
+
+    @Value("${terminology.similarity.min-score:0.3}")
+    private double minScore;
+
+    @Autowired
+    private IcdCandidateRepository icdCandidateRepository;
+
+    private volatile SimilarityIndex index;
+
+    // Table of the last code system index rebuild, reused when only stored candidates change
+    private ConceptTable lastTable;
+
+    public record Candidate(String code, String title, double score) {
+    }
+
+    /**
+     * Called by CodeSystemIndexService after every rebuild.
+     */
+    public synchronized void rebuild(ConceptTable table) {
+        lastTable = table;
+        rebuild();
+    }
+
+    public synchronized void rebuild() {
+        if (!similarityEnabled) {
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            SimilarityIndex.Builder builder = SimilarityIndex.builder();
+            int systemId = lastTable != null ? lastTable.systemId(ICD_SYSTEM_URI) : -1;
+            if (systemId >= 0) {
+                for (int ordinal = lastTable.systemStart(systemId); ordinal < lastTable.systemEnd(systemId); ordinal++) {
+                    String definition = lastTable.definition(ordinal);
+                    builder.add(lastTable.code(ordinal), lastTable.display(ordinal),
+                            definition != null ? lastTable.display(ordinal) + " " + definition : lastTable.display(ordinal));
+                }
+            }
+            for (IcdCandidate candidate : icdCandidateRepository.findAll()) {
+                if (candidate.getTitle() != null) {
+                    builder.add(candidate.getIcdCode(), candidate.getTitle(), candidate.getTitle());
+                }
+            }
+            SimilarityIndex rebuilt = builder.build();
+            index = rebuilt;
+            logger.info("Built ICD similarity index with {} concepts and {} trigrams in {} ms",
+                    rebuilt.size(), rebuilt.gramCount(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("Failed to build ICD similarity index", e);
+        }
+    }
+
+    /**
+     * True once the index is built and holds at least one ICD-11 concept.
+     */
+    public boolean isAvailable() {
+        SimilarityIndex current = index;
+        return current != null && current.size() > 0;
+    }
+
+    /**
+     * Up to terminology.similarity.top-k ICD-11 concepts scoring at least terminology.similarity.min-score, best first.
+     */
+    public List<Candidate> findCandidates(String text) {
+        return findCandidates(text, topK);
+    }
+
+    public List<Candidate> findCandidates(String text, int limit) {
+        SimilarityIndex current = index;
+        if (current == null || text == null || text.isBlank()) {
+            return List.of();
+        }
+        return current.search(text, limit, minScore).stream()
+                .map(match -> new Candidate(current.code(match.document()), current.title(match.document()), match.score()))
+                .toList();
+    }
+}
@@ -1,116 +1,290 @@
 // IcdSyncService.java
 package com.healthcare.fhir.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.annotation.Cacheable;
-import org.springframework.http.*;
-import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
-import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
-import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
-import org.springframework.security.oauth2.client.registration.ClientRegistration;
-import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
-import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 
+/**
+ * WHO ICD API calls over the pooled asynchronous icdHttpClient. The *Async methods return as soon as
+ * a request is sent, so callers can fan out many calls without a thread per call; the plain methods
+ * wait for them. At most icd.api.max-concurrent-requests calls are in flight: beyond that the async
+ * methods throw RejectedExecutionException, and callers skip the API as they would for an open circuit.
+ */
 @Service
 public class IcdSyncService {
 
     private static final Logger logger = LoggerFactory.getLogger(IcdSyncService.class);
 
+    private static final String ENTITY_CACHE = "icdEntities";
+    private static final String SEARCH_CACHE = "icdSearch";
+
     @Value("${icd.api.base-url}")
     private String icdBaseUrl;
 
     @Value("${icd.api.version}")
     private String apiVersion;
 
+    @Value("${icd.api.read-timeout-ms:5000}")
+    private long readTimeoutMs;
+
+    @Value("${icd.api.max-concurrent-requests:64}")
+    private int maxConcurrentRequests;
+
     @Autowired
-    private RestTemplate restTemplate;
+    @Qualifier("icdHttpClient")
+    private HttpClient httpClient;
 
     @Autowired
     private ObjectMapper objectMapper;
 
     @Autowired
-    private ClientRegistrationRepository clientRegistrationRepository;
+    private CacheManager cacheManager;
 
     @Autowired
-    private OAuth2AuthorizedClientService authorizedClientService;
+    private IcdOAuthService icdOAuthService;
 
     @Autowired
-    private IcdOAuthService icdOAuthService;
+    private IcdMissCache icdMissCache;
+
+    @Autowired
+    private IcdCircuitBreaker icdCircuitBreaker;
+
+    private Semaphore inFlight;
+
+    @PostConstruct
+    public void init() {
+        inFlight = new Semaphore(maxConcurrentRequests);
+    }
 
-    @Cacheable(value = "icdEntities", key = "#entityId")
     public JsonNode resolveEntity(String entityId) {
         try {
-            String url = String.format("%s/entity/%s", icdBaseUrl, entityId);
-            String accessToken = icdOAuthService.getAccessToken();
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setBearerAuth(accessToken);
-            headers.set("API-Version", apiVersion);
-            headers.set("Accept", "application/json");
-
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-
-            if (response.getStatusCode() == HttpStatus.OK) {
-                JsonNode jsonNode = objectMapper.readTree(response.getBody());
-                logger.info("Successfully resolved ICD entity: {}", entityId);
-                return jsonNode;
-            } else {
-                logger.error("Failed to resolve ICD entity: {} - Status: {}", entityId, response.getStatusCode());
-                return null;
-            }
-        } catch (Exception e) {
-            logger.error("Error resolving ICD entity: {}", entityId, e);
+            return resolveEntityAsync(entityId).join();
+        } catch (RejectedExecutionException e) {
+            logger.warn("Too many ICD API calls in flight, not resolving ICD entity: {}", entityId);
             return null;
         }
     }
 
-    @Cacheable(value = "icdSearch", key = "#query")
-    public List<JsonNode> searchEntities(String query) {
+    /**
+     * Resolves an entity from the icdEntities cache or the WHO API. Completes with null when the
+     * entity does not exist or the call failed.
+     */
+    public CompletableFuture<JsonNode> resolveEntityAsync(String entityId) {
+        JsonNode cached = cached(ENTITY_CACHE, entityId);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        // The id is a path segment: encode it so codes from requests cannot change the path or break the URI
+        String segment = URLEncoder.encode(entityId, StandardCharsets.UTF_8).replace("+", "%20");
+        return send(String.format("%s/entity/%s", icdBaseUrl, segment))
+                .handle((response, error) -> toEntity(entityId, response, error));
+    }
+
+    private JsonNode toEntity(String entityId, HttpResponse<String> response, Throwable error) {
+        if (error != null) {
+            recordError(error);
+            logger.error("Error resolving ICD entity: {}", entityId, unwrap(error));
+            return null;
+        }
+        recordStatus(response.statusCode());
+        if (response.statusCode() == 404) {
+            icdMissCache.recordUnknownEntity(entityId);
+            logger.info("ICD entity not found: {}", entityId);
+            return null;
+        }
+        if (response.statusCode() != 200) {
+            logger.error("Failed to resolve ICD entity: {} - Status: {}", entityId, response.statusCode());
+            return null;
+        }
         try {
-            String url = String.format("%s/release/11/2023-01/mms/search?q=%s&useFlexisearch=true", icdBaseUrl, query);
-            String accessToken = icdOAuthService.getAccessToken();
+            JsonNode jsonNode = objectMapper.readTree(response.body());
+            cache(ENTITY_CACHE, entityId, jsonNode);
+            logger.info("Successfully resolved ICD entity: {}", entityId);
+            return jsonNode;
+        } catch (JsonProcessingException e) {
+            logger.error("Unreadable ICD entity response: {}", entityId, e);
+            return null;
+        }
+    }
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setBearerAuth(accessToken);
-            headers.set("API-Version", apiVersion);
-            headers.set("Accept", "application/json");
+    public List<JsonNode> searchEntities(String query) {
+        try {
+            return searchEntitiesAsync(query).join();
+        } catch (RejectedExecutionException e) {
+            logger.warn("Too many ICD API calls in flight, not searching ICD entities for query: {}", query);
+            return new ArrayList<>();
+        }
+    }
 
-            HttpEntity<String> entity = new HttpEntity<>(headers);
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+    /**
+     * Searches through the icdSearch cache. A failed search completes with an empty list, which is not cached.
+     */
+    public CompletableFuture<List<JsonNode>> searchEntitiesAsync(String query) {
+        List<JsonNode> cached = cached(SEARCH_CACHE, query);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return fetchSearchResultsAsync(query)
+                .thenApply(results -> {
+                    cache(SEARCH_CACHE, query, results);
+                    return results;
+                })
+                .exceptionally(error -> {
+                    logger.error("Error searching ICD entities for query: {}", query, unwrap(error));
+                    return new ArrayList<>();
+                });
+    }
 
-            if (response.getStatusCode() == HttpStatus.OK) {
-                JsonNode rootNode = objectMapper.readTree(response.getBody());
-                JsonNode destinationEntities = rootNode.get("destinationEntities");
+    /**
+     * Uncached search that throws when the WHO API call fails, so callers can tell an outage
+     * from a search with no hits.
+     */
+    public List<JsonNode> fetchSearchResults(String query) {
+        try {
+            return fetchSearchResultsAsync(query).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("ICD search failed for query: " + query, e.getCause());
+        }
+    }
 
-                List<JsonNode> results = new ArrayList<>();
-                if (destinationEntities != null && destinationEntities.isArray()) {
-                    for (JsonNode node : destinationEntities) {
-                        results.add(node);
+    /**
+     * Uncached search that completes exceptionally when the WHO API call fails.
+     */
+    public CompletableFuture<List<JsonNode>> fetchSearchResultsAsync(String query) {
+        return send(String.format("%s/release/11/2023-01/mms/search?q=%s&useFlexisearch=true",
+                icdBaseUrl, URLEncoder.encode(query, StandardCharsets.UTF_8)))
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        recordError(error);
                     }
-                }
+                })
+                .thenApply(response -> toSearchResults(query, response));
+    }
 
-                logger.info("Successfully searched ICD entities for query: {} - Found {} results", query, results.size());
-                return results;
-            } else {
-                logger.error("Failed to search ICD entities for query: {} - Status: {}", query, response.getStatusCode());
-                return new ArrayList<>();
+    private List<JsonNode> toSearchResults(String query, HttpResponse<String> response) {
+        recordStatus(response.statusCode());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("ICD search failed with status " + response.statusCode());
+        }
+        JsonNode rootNode;
+        try {
+            rootNode = objectMapper.readTree(response.body());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable ICD search response for query: " + query, e);
+        }
+        JsonNode destinationEntities = rootNode.get("destinationEntities");
+
+        List<JsonNode> results = new ArrayList<>();
+        if (destinationEntities != null && destinationEntities.isArray()) {
+            for (JsonNode node : destinationEntities) {
+                results.add(node);
             }
-        } catch (Exception e) {
-            logger.error("Error searching ICD entities for query: {}", query, e);
-            return new ArrayList<>();
         }
+
+        if (results.isEmpty()) {
+            icdMissCache.recordEmptySearch(query);
+        }
+        logger.info("Successfully searched ICD entities for query: {} - Found {} results", query, results.size());
+        return results;
+    }
+
+    // Only an outage counts against the circuit: any answer below 500 shows the API is up
+    private void recordStatus(int statusCode) {
+        if (statusCode >= 500) {
+            icdCircuitBreaker.recordFailure();
+        } else {
+            icdCircuitBreaker.recordSuccess();
+        }
+    }
+
+    // Transport and token errors count as failures; a request that could not be built never reached the API
+    private void recordError(Throwable error) {
+        if (!(unwrap(error) instanceof IllegalArgumentException)) {
+            icdCircuitBreaker.recordFailure();
+        }
+    }
+
+    private HttpRequest request(String url, String accessToken) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .timeout(Duration.ofMillis(readTimeoutMs))
+                .header("Authorization", "Bearer " + accessToken)
+                .header("API-Version", apiVersion)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+    }
+
+    /**
+     * Sends an authorised GET once the access token is available; a token failure completes the
+     * returned future exceptionally, like a failed call. Throws RejectedExecutionException at the concurrency limit.
+     */
+    private CompletableFuture<HttpResponse<String>> send(String url) {
+        if (!inFlight.tryAcquire()) {
+            throw new RejectedExecutionException("More than " + maxConcurrentRequests + " ICD API calls in flight");
+        }
+        try {
+            return icdOAuthService.getAccessTokenAsync()
+                    .thenCompose(accessToken -> httpClient.sendAsync(request(url, accessToken), HttpResponse.BodyHandlers.ofString()))
+                    .whenComplete((response, error) -> inFlight.release());
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cached(String cacheName, String key) {
+        try {
+            Cache cache = cacheManager.getCache(cacheName);
+            Cache.ValueWrapper value = cache != null ? cache.get(key) : null;
+            return value != null ? (T) value.get() : null;
+        } catch (RuntimeException e) {
+            logger.warn("Failed to read {} cache for key: {}", cacheName, key, e);
+            return null;
+        }
+    }
+
+    private void cache(String cacheName, String key, Object value) {
+        try {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache != null) {
+                cache.put(key, value);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to write {} cache for key: {}", cacheName, key, e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
     }
 
     public Map<String, Object> getSystemInfo() {
@@ -0,0 +1,134 @@
+// KnownCodeFilter.java
+package com.healthcare.fhir.service;
+
+import com.healthcare.fhir.index.BloomFilter;
+import com.healthcare.fhir.repository.CodeSystemEntryRepository;
+import com.healthcare.fhir.repository.ConceptMapEntryRepository;
+import com.healthcare.fhir.repository.SystemCodeKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-system Bloom filters over the codes stored locally and over concept map sources,
+ * rebuilt after every import. A negative answer means the database query can be skipped;
+ * until the filters are built every code is reported as possibly known.
+ */
+@Service
+public class KnownCodeFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(KnownCodeFilter.class);
+
+    @Value("${terminology.bloom.enabled:true}")
+    private boolean bloomEnabled;
+
+    @Value("${terminology.bloom.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Autowired
+    private CodeSystemEntryRepository codeSystemRepository;
+
+    @Autowired
+    private ConceptMapEntryRepository conceptMapRepository;
+
+    private volatile Map<String, BloomFilter> codeFilters;
+    private volatile Map<String, BloomFilter> mappingFilters;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuildCodes();
+        rebuildMappings();
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void onTerminologyUpdated(TerminologyUpdatedEvent event) {
+        if (event.getScope() == TerminologyUpdatedEvent.Scope.CODE_SYSTEMS) {
+            rebuildCodes();
+        } else {
+            rebuildMappings();
+        }
+    }
+
+    /**
+     * False only when the code is definitely not stored for the system.
+     */
+    public boolean mightContainCode(String system, String code) {
+        return mightContain(codeFilters, system, code);
+    }
+
+    /**
+     * False only when no concept map entry has this source code.
+     */
+    public boolean mightHaveMappings(String system, String code) {
+        return mightContain(mappingFilters, system, code);
+    }
+
+    private static boolean mightContain(Map<String, BloomFilter> filters, String system, String code) {
+        if (filters == null) {
+            return true;
+        }
+        if (system == null || code == null) {
+            return false;
+        }
+        BloomFilter filter = filters.get(system);
+        return filter != null && filter.mightContain(code);
+    }
+
+    public synchronized void rebuildCodes() {
+        if (!bloomEnabled) {
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            // Reads fail open: the old filters would hide codes added by this import
+            codeFilters = null;
+            Map<String, BloomFilter> rebuilt = build(codeSystemRepository.findAllCodeKeys());
+            codeFilters = rebuilt;
+            logger.info("Built known-code Bloom filters for {} code systems in {} ms",
+                    rebuilt.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("Failed to build known-code Bloom filters", e);
+        }
+    }
+
+    public synchronized void rebuildMappings() {
+        if (!bloomEnabled) {
+            return;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            mappingFilters = null;
+            Map<String, BloomFilter> rebuilt = build(conceptMapRepository.findAllSourceKeys());
+            mappingFilters = rebuilt;
+            logger.info("Built concept map Bloom filters for {} source systems in {} ms",
+                    rebuilt.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("Failed to build concept map Bloom filters", e);
+        }
+    }
+
+    private Map<String, BloomFilter> build(List<SystemCodeKey> keys) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (SystemCodeKey key : keys) {
+            counts.merge(key.getSystem(), 1, Integer::sum);
+        }
+        Map<String, BloomFilter> filters = new HashMap<>();
+        counts.forEach((system, count) -> filters.put(system, BloomFilter.create(count, falsePositiveRate)));
+        for (SystemCodeKey key : keys) {
+            filters.get(key.getSystem()).put(key.getCode());
+        }
+        return Map.copyOf(filters);
+    }
+}
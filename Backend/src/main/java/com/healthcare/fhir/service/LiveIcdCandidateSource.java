@@ -0,0 +1,49 @@
+// LiveIcdCandidateSource.java
+package com.healthcare.fhir.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Candidates from the WHO ICD-11 search API, bypassing the search caches so each run sees
+ * current results. Chapters and blocks without a code are skipped.
+ */
+@Service
+@ConditionalOnProperty(name = "terminology.precompute.source", havingValue = "live", matchIfMissing = true)
+public class LiveIcdCandidateSource implements IcdCandidateSource {
+
+    @Autowired
+    private IcdSyncService icdSyncService;
+
+    @Autowired
+    private IcdCircuitBreaker icdCircuitBreaker;
+
+    @Override
+    public List<Candidate> search(String term, int limit) {
+        List<Candidate> candidates = new ArrayList<>();
+        for (JsonNode result : icdSyncService.fetchSearchResults(term)) {
+            if (candidates.size() >= limit) {
+                break;
+            }
+            String code = result.get("theCode") != null ? result.get("theCode").asText() : "";
+            if (code.isEmpty()) {
+                continue;
+            }
+            String title = result.get("title") != null ? result.get("title").asText() : "";
+            Double score = result.get("score") != null ? result.get("score").asDouble() : null;
+            // Flexisearch highlights matches with <em> markup
+            candidates.add(new Candidate(code, title.replaceAll("<[^>]+>", ""), score));
+        }
+        return candidates;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return icdCircuitBreaker.allowRequest();
+    }
+}
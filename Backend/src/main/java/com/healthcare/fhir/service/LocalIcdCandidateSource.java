@@ -0,0 +1,32 @@
+// LocalIcdCandidateSource.java
+package com.healthcare.fhir.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Candidates from the local ICD-11 similarity index (terminology.precompute.source=local), so the
+ * precompute job can suggest mappings for every unmapped concept without calling the WHO API.
+ */
+@Service
+@ConditionalOnProperty(name = "terminology.precompute.source", havingValue = "local")
+public class LocalIcdCandidateSource implements IcdCandidateSource {
+
+    @Autowired
+    private IcdSimilarityService icdSimilarityService;
+
+    @Override
+    public List<Candidate> search(String term, int limit) {
+        return icdSimilarityService.findCandidates(term, limit).stream()
+                .map(candidate -> new Candidate(candidate.code(), candidate.title(), candidate.score()))
+                .toList();
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return icdSimilarityService.isAvailable();
+    }
+}
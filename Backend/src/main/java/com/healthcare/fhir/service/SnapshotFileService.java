@@ -0,0 +1,140 @@
+// SnapshotFileService.java
+package com.healthcare.fhir.service;
+
+import com.healthcare.fhir.index.ConceptTable;
+import com.healthcare.fhir.index.MappedTerminology;
+import com.healthcare.fhir.repository.CodeSystemEntryRepository;
+import com.healthcare.fhir.repository.ConceptMapEntryRepository;
+import com.healthcare.fhir.repository.TableStamp;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Keeps the memory-mapped terminology snapshot file in step with the database.
+ * The file is mapped at startup, before the in-memory index is built, so $lookup and $translate
+ * are answered from the page cache instead of Postgres while the index loads. It is rewritten
+ * whenever the index is rebuilt and after every concept map import.
+ *
+ * Each file carries a stamp of the rows it was built from (row count, highest id and latest update
+ * of both tables); a file left behind by an earlier run is only served if its stamp still matches.
+ */
+@Service
+public class SnapshotFileService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotFileService.class);
+
+    @Value("${terminology.snapshot.enabled:true}")
+    private boolean snapshotEnabled;
+
+    @Value("${terminology.snapshot.path:data/terminology.snapshot}")
+    private String snapshotPath;
+
+    @Autowired
+    private ConceptMapIndexService conceptMapIndexService;
+
+    @Autowired
+    private CodeSystemEntryRepository codeSystemRepository;
+
+    @Autowired
+    private ConceptMapEntryRepository conceptMapRepository;
+
+    private volatile MappedTerminology mapped;
+
+    // Table of the last index rebuild and the stamp of the rows it was read from, reused when only the concept maps change
+    private ConceptTable lastTable;
+    private String lastConceptStamp;
+
+    @PostConstruct
+    public void load() {
+        Path path = Paths.get(snapshotPath);
+        if (!snapshotEnabled || !Files.exists(path)) {
+            return;
+        }
+        try {
+            MappedTerminology file = MappedTerminology.open(path);
+            // The database may have changed since the file was written, e.g. by an import on another node
+            String current = conceptStamp() + ";" + format(conceptMapRepository.findStamp());
+            if (!current.equals(file.stamp())) {
+                logger.info("Ignoring terminology snapshot {} as it does not match the database", path);
+                return;
+            }
+            mapped = file;
+            logger.info("Mapped terminology snapshot {} with {} concepts and {} concept map edges",
+                    path, mapped.size(), mapped.mappingCount());
+        } catch (Exception e) {
+            logger.warn("Ignoring unreadable terminology snapshot {}", path, e);
+        }
+    }
+
+    /**
+     * Returns the mapped snapshot, or null when there is none or it may be out of date.
+     */
+    public MappedTerminology getMapped() {
+        return mapped;
+    }
+
+    /**
+     * Stamp of the code system rows, taken by CodeSystemIndexService before it reads them.
+     */
+    public String conceptStamp() {
+        return format(codeSystemRepository.findStamp());
+    }
+
+    /**
+     * Called by CodeSystemIndexService after every rebuild.
+     */
+    public synchronized void write(ConceptTable table, String conceptStamp) {
+        lastTable = table;
+        lastConceptStamp = conceptStamp;
+        writeFile();
+    }
+
+    @TransactionalEventListener
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public synchronized void onTerminologyUpdated(TerminologyUpdatedEvent event) {
+        if (lastTable == null) {
+            // The index has not been built (or is disabled), so the file loaded at startup is now stale
+            mapped = null;
+            return;
+        }
+        if (event.getScope() == TerminologyUpdatedEvent.Scope.CONCEPT_MAPS) {
+            writeFile();
+        }
+    }
+
+    private void writeFile() {
+        if (!snapshotEnabled) {
+            return;
+        }
+        Path path = Paths.get(snapshotPath);
+        try {
+            long start = System.currentTimeMillis();
+            // Stamped before the mappings are read, so a concurrent import can only make the file look stale
+            String stamp = lastConceptStamp + ";" + format(conceptMapRepository.findStamp());
+            MappedTerminology.write(path, lastTable, conceptMapIndexService.loadMappings(), stamp);
+            mapped = MappedTerminology.open(path);
+
+            logger.info("Wrote terminology snapshot {} with {} concepts and {} concept map edges in {} ms",
+                    path, mapped.size(), mapped.mappingCount(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            // A stale file must not answer lookups, so fall back to the database until the next write
+            mapped = null;
+            logger.error("Failed to write terminology snapshot {}", path, e);
+        }
+    }
+
+    private static String format(TableStamp stamp) {
+        return stamp.getRowCount() + "/" + stamp.getMaxId() + "/" + stamp.getLastUpdated();
+    }
+}
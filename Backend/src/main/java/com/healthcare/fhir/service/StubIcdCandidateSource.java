@@ -0,0 +1,67 @@
+// StubIcdCandidateSource.java
+package com.healthcare.fhir.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Local stand-in for the WHO API (terminology.precompute.source=stub). Reads
+ * terminology.precompute.stub-path, a CSV of "term,code,score,title" lines with hits in rank order;
+ * terms match case-insensitively and unknown terms have no hits.
+ */
+@Service
+@ConditionalOnProperty(name = "terminology.precompute.source", havingValue = "stub")
+public class StubIcdCandidateSource implements IcdCandidateSource {
+
+    private static final Logger logger = LoggerFactory.getLogger(StubIcdCandidateSource.class);
+
+    @Value("${terminology.precompute.stub-path:data/icd-candidates-stub.csv}")
+    private String stubPath;
+
+    private final Map<String, List<Candidate>> candidates = new HashMap<>();
+
+    @PostConstruct
+    public void load() throws IOException {
+        Path path = Paths.get(stubPath);
+        if (!Files.exists(path)) {
+            logger.warn("ICD candidate stub file {} not found; every search will be empty", path);
+            return;
+        }
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            // The title is last so it may contain commas
+            String[] fields = line.split(",", 4);
+            Double score = fields.length > 2 && !fields[2].isBlank() ? Double.valueOf(fields[2].trim()) : null;
+            String title = fields.length > 3 ? fields[3].trim() : "";
+            candidates.computeIfAbsent(key(fields[0]), k -> new ArrayList<>())
+                    .add(new Candidate(fields[1].trim(), title, score));
+        }
+        logger.info("Loaded ICD candidate stub {} with {} terms", path, candidates.size());
+    }
+
+    @Override
+    public List<Candidate> search(String term, int limit) {
+        return candidates.getOrDefault(key(term), List.of()).stream().limit(limit).toList();
+    }
+
+    private static String key(String term) {
+        return term.trim().toLowerCase(Locale.ROOT);
+    }
+}
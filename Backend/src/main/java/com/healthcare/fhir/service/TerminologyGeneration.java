@@ -0,0 +1,40 @@
+// TerminologyGeneration.java
+package com.healthcare.fhir.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic version of the terminology content. Cached results are keyed by the generation
+ * they were computed in, so an import makes them unreachable without any TTL or eviction pass.
+ */
+@Service
+public class TerminologyGeneration {
+
+    private static final Logger logger = LoggerFactory.getLogger(TerminologyGeneration.class);
+
+    private final AtomicLong generation = new AtomicLong();
+
+    public long current() {
+        return generation.get();
+    }
+
+    /**
+     * Also called by CodeSystemIndexService after it swaps in a new snapshot, because
+     * index-served results computed between the commit and the swap still saw the old data.
+     */
+    public long bump() {
+        return generation.incrementAndGet();
+    }
+
+    // After commit only: a rolled-back import must not invalidate anything
+    @TransactionalEventListener
+    public void onTerminologyUpdated(TerminologyUpdatedEvent event) {
+        long next = bump();
+        logger.info("Terminology generation advanced to {} after {}", next, event);
+    }
+}
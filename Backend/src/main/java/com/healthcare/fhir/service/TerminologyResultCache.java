@@ -0,0 +1,65 @@
+// TerminologyResultCache.java
+package com.healthcare.fhir.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.healthcare.fhir.dto.FhirParameters;
+import com.healthcare.fhir.dto.FhirValueSet;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * In-process cache of $expand and $lookup responses, keyed by the request and the terminology
+ * generation. Entries from older generations are never hit again and age out by size.
+ * Hit, miss and eviction counts are exported as cache.* metrics tagged with the cache name.
+ */
+@Service
+public class TerminologyResultCache {
+
+    public record ExpansionKey(long generation, String url, String filter, String isA, int count, int offset,
+                               String cursor, TerminologyService.TotalMode totalMode, String displayLanguage,
+                               boolean ranked) {
+    }
+
+    public record LookupKey(long generation, String system, String code, String version, String displayLanguage) {
+    }
+
+    private final boolean enabled;
+    private final Cache<ExpansionKey, FhirValueSet> expansions;
+    private final Cache<LookupKey, FhirParameters> lookups;
+
+    public TerminologyResultCache(@Value("${terminology.cache.enabled:true}") boolean enabled,
+                                  @Value("${terminology.cache.expansion-size:10000}") long expansionSize,
+                                  @Value("${terminology.cache.lookup-size:50000}") long lookupSize,
+                                  MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.expansions = Caffeine.newBuilder().maximumSize(expansionSize).recordStats().build();
+        this.lookups = Caffeine.newBuilder().maximumSize(lookupSize).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, expansions, "terminologyExpansions");
+        CaffeineCacheMetrics.monitor(meterRegistry, lookups, "terminologyLookups");
+    }
+
+    public boolean isEnabled() { return enabled; }
+
+    public FhirValueSet getExpansion(ExpansionKey key) {
+        return enabled ? expansions.getIfPresent(key) : null;
+    }
+
+    public void putExpansion(ExpansionKey key, FhirValueSet valueSet) {
+        if (enabled) {
+            expansions.put(key, valueSet);
+        }
+    }
+
+    public FhirParameters getLookup(LookupKey key) {
+        return enabled ? lookups.getIfPresent(key) : null;
+    }
+
+    public void putLookup(LookupKey key, FhirParameters parameters) {
+        if (enabled) {
+            lookups.put(key, parameters);
+        }
+    }
+}
@@ -4,49 +4,292 @@ package com.healthcare.fhir.service;
 import com.healthcare.fhir.dto.*;
 import com.healthcare.fhir.entity.CodeSystemEntry;
 import com.healthcare.fhir.repository.CodeSystemEntryRepository;
+import com.healthcare.fhir.repository.DesignationRow;
+import com.healthcare.fhir.repository.OffsetPageRequest;
 import com.healthcare.fhir.entity.ConceptMapEntry;
 import com.healthcare.fhir.entity.Equivalence;
+import com.healthcare.fhir.entity.ConceptHierarchyEdge;
+import com.healthcare.fhir.repository.ConceptHierarchyEdgeRepository;
+import com.healthcare.fhir.index.CodeSystemSnapshot;
+import com.healthcare.fhir.index.ConceptTable;
+import com.healthcare.fhir.index.Designation;
+import com.healthcare.fhir.index.DesignationIndex;
+import com.healthcare.fhir.index.HierarchyIndex;
+import com.healthcare.fhir.index.MappedTerminology;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.fasterxml.jackson.databind.JsonNode;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import com.healthcare.fhir.entity.CodeSystemEntry;
 @Service
 public class TerminologyService {
 
     private static final Logger logger = LoggerFactory.getLogger(TerminologyService.class);
 
+    /**
+     * How filtered expansions are resolved, selected with terminology.search.mode.
+     */
+    public enum SearchMode {
+        INDEX,    // in-memory trigram index, JPQL LIKE until the index is built
+        DATABASE, // Postgres full-text and pg_trgm indexes with ranked results
+        LIKE      // plain JPQL LIKE queries
+    }
+
+    /**
+     * How expansion.total is produced, selected per request with the _total parameter.
+     */
+    public enum TotalMode {
+        NONE,     // no count query; a "next" token signals further pages
+        ESTIMATE, // Postgres planner estimate instead of count(*)
+        ACCURATE; // exact count(*), the default
+
+        public static TotalMode fromParameter(String value) {
+            if (value == null || value.isEmpty()) {
+                return ACCURATE;
+            }
+            try {
+                return valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported _total value: " + value);
+            }
+        }
+    }
+
+    /**
+     * One item of a batch operation: the resource (null when there is none), an HTTP-style
+     * status for the Bundle entry, and the time spent on the item.
+     */
+    public record BatchResult(FhirParameters parameters, String status, double durationMs) {
+    }
+
+    private static final String ICD_SYSTEM_URI = "http://id.who.int/icd/release/11/mms";
+
+    // Stable order shared by offset pages and continuation tokens
+    private static final Sort KEYSET_ORDER = Sort.by("systemUri", "code", "id");
+
     @Value("${namaste.system-uri}")
     private String namasteSystemUri;
 
+    @Value("${terminology.search.mode:index}")
+    private SearchMode searchMode;
+
     @Autowired
     private CodeSystemEntryRepository codeSystemRepository;
 
     @Autowired
     private IcdSyncService icdSyncService;
 
-    public FhirValueSet expandValueSet(String url, String filter, int count, int offset) {
-        Pageable pageable = PageRequest.of(offset / count, count);
-        Page<CodeSystemEntry> entries;
+    @Autowired
+    private CodeSystemIndexService codeSystemIndexService;
+
+    @Autowired
+    private SnapshotFileService snapshotFileService;
+
+    @Autowired
+    private ConceptHierarchyEdgeRepository hierarchyEdgeRepository;
+
+    @Autowired
+    private KnownCodeFilter knownCodeFilter;
+
+    @Autowired
+    private IcdMissCache icdMissCache;
+
+    @Autowired
+    private ExpansionCountEstimator countEstimator;
+
+    @Autowired
+    private IcdSearchCache icdSearchCache;
+
+    @Autowired
+    private TerminologyResultCache resultCache;
+
+    @Autowired
+    private TerminologyGeneration generation;
+
+    @Autowired
+    private IcdCircuitBreaker icdCircuitBreaker;
+
+    @Value("${terminology.federation.enabled:true}")
+    private boolean federationEnabled;
+
+    @Value("${terminology.federation.deadline-ms:300}")
+    private long federationDeadlineMs;
+
+    @Value("${terminology.search.ranking:true}")
+    private boolean rankingEnabled;
 
-        if (filter != null && !filter.trim().isEmpty()) {
-            if (url != null && !url.trim().isEmpty()) {
-                entries = codeSystemRepository.findBySystemUriAndFilter(url, filter, pageable);
+    @Value("${terminology.batch.max-size:100}")
+    private int batchMaxSize;
+
+    @Value("${terminology.batch.icd-deadline-ms:2000}")
+    private long batchIcdDeadlineMs;
+
+    /**
+     * Expands locally and, for the first page of a filtered search that is not scoped to another
+     * code system, merges ICD-11 search hits fetched in parallel. The WHO API only gets the time left in the federation deadline;
+     * slower results are cached for the next request instead of delaying this one.
+     */
+    public FhirValueSet expandValueSet(String url, String filter, String isA, int count, int offset, String cursor,
+                                       TotalMode totalMode, String displayLanguage, Boolean rank) {
+        boolean ranked = rank != null ? rank : rankingEnabled;
+        // Generation is read first, so a result computed across an import lands under the older key
+        TerminologyResultCache.ExpansionKey key = new TerminologyResultCache.ExpansionKey(generation.current(),
+                url, filter, isA, count, offset, cursor, totalMode, displayLanguage, ranked);
+        FhirValueSet cached = resultCache.getExpansion(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Descendants are local concepts only, so there is nothing to federate
+        if (isA != null && !isA.trim().isEmpty()) {
+            FhirValueSet valueSet = expandDescendants(url, isA.trim(), filter, count, offset, cursor, displayLanguage);
+            resultCache.putExpansion(key, valueSet);
+            return valueSet;
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(federationDeadlineMs);
+        boolean federate = federationEnabled && filter != null && !filter.trim().isEmpty()
+                && (url == null || url.trim().isEmpty() || url.contains("who.int/icd"))
+                && offset == 0 && (cursor == null || cursor.isEmpty());
+        CompletableFuture<List<FhirValueSetContains>> icdResults = federate ? searchIcd(filter) : null;
+
+        FhirValueSet valueSet = expandLocal(url, filter, count, offset, cursor, totalMode, displayLanguage, ranked,
+                key.generation());
+        // Results missing ICD hits only because the WHO API was slow are not worth pinning in the cache
+        boolean complete = !federate || icdResults != null;
+        if (icdResults != null && valueSet.getExpansion().getContains().size() < count) {
+            complete = augmentWithIcdResults(valueSet.getExpansion(), icdResults, count, deadline);
+        }
+        if (complete) {
+            resultCache.putExpansion(key, valueSet);
+        }
+        return valueSet;
+    }
+
+    private FhirValueSet expandLocal(String url, String filter, int count, int offset, String cursor,
+                                     TotalMode totalMode, String displayLanguage, boolean ranked, long generation) {
+        if (count < 1 || offset < 0) {
+            throw new IllegalArgumentException("count must be positive and offset must not be negative");
+        }
+        ExpansionCursor position = cursor != null && !cursor.isEmpty() ? ExpansionCursor.decode(cursor) : null;
+        boolean hasFilter = filter != null && !filter.trim().isEmpty();
+        boolean hasUrl = url != null && !url.trim().isEmpty();
+
+        // Filtered expansions are served from the trigram index once it has been built
+        CodeSystemSnapshot snapshot = codeSystemIndexService.getSnapshot();
+        boolean fromIndex = searchMode == SearchMode.INDEX && snapshot != null;
+        if (position != null) {
+            // A token is only resumed in the order it was issued under; database tokens stay on the database,
+            // and ranked positions only mean something while the terminology they were ranked over is unchanged
+            boolean resumable = switch (position.getOrder()) {
+                case DATABASE -> true;
+                case INDEX -> fromIndex;
+                case RANKED -> fromIndex && hasFilter && position.getGeneration() == generation;
+            };
+            if (!resumable) {
+                throw new IllegalArgumentException("Continuation token can no longer be resumed; restart the expansion");
+            }
+            fromIndex = position.getOrder() != ExpansionCursor.Order.DATABASE;
+        }
+        if (fromIndex && hasFilter) {
+            return expandFromIndex(snapshot, url, filter, count, offset, position, displayLanguage, ranked, generation);
+        }
+        // Unfiltered expansions are a contiguous ordinal range of one system (or of the whole table)
+        if (fromIndex) {
+            return expandRangeFromIndex(snapshot, url, count, offset, position, displayLanguage);
+        }
+
+        List<CodeSystemEntry> content;
+        Integer total = null;
+        boolean hasMore;
+        boolean keysetOrdered = true;
+
+        if (position != null) {
+            // Seek past the cursor and read one extra row to learn whether another page exists
+            Pageable firstRows = PageRequest.of(0, count + 1);
+            List<CodeSystemEntry> rows;
+            if (hasFilter && hasUrl) {
+                rows = codeSystemRepository.findBySystemUriAndFilterAfter(url, filter,
+                        position.getCode(), position.getId(), firstRows);
+            } else if (hasFilter) {
+                rows = codeSystemRepository.findByFilterAfter(filter, position.getSystemUri(),
+                        position.getCode(), position.getId(), firstRows);
+            } else if (hasUrl) {
+                rows = codeSystemRepository.findBySystemUriAfter(url, position.getCode(), position.getId(), firstRows);
             } else {
-                entries = codeSystemRepository.findByFilter(filter, pageable);
+                rows = codeSystemRepository.findAfter(position.getSystemUri(), position.getCode(),
+                        position.getId(), firstRows);
             }
+            hasMore = rows.size() > count;
+            content = hasMore ? rows.subList(0, count) : rows;
         } else {
-            if (url != null && !url.trim().isEmpty()) {
-                entries = codeSystemRepository.findAll(pageable);
+            Pageable pageable = new OffsetPageRequest(offset, count, KEYSET_ORDER);
+            boolean exactTotal = totalMode == TotalMode.ACCURATE;
+            boolean relevanceOrdered = hasFilter && searchMode == SearchMode.DATABASE;
+            Slice<CodeSystemEntry> entries;
+
+            if (relevanceOrdered) {
+                // Ranked by relevance, so these pages cannot hand out keyset continuation tokens
+                keysetOrdered = false;
+                pageable = new OffsetPageRequest(offset, count, Sort.unsorted());
+                if (hasUrl) {
+                    entries = exactTotal ? codeSystemRepository.searchRankedBySystemUri(url, filter, pageable)
+                            : codeSystemRepository.sliceRankedBySystemUri(url, filter, pageable);
+                } else {
+                    entries = exactTotal ? codeSystemRepository.searchRanked(filter, pageable)
+                            : codeSystemRepository.sliceRanked(filter, pageable);
+                }
+            } else if (hasFilter) {
+                if (hasUrl) {
+                    entries = exactTotal ? codeSystemRepository.findBySystemUriAndFilter(url, filter, pageable)
+                            : codeSystemRepository.sliceBySystemUriAndFilter(url, filter, pageable);
+                } else {
+                    entries = exactTotal ? codeSystemRepository.findByFilter(filter, pageable)
+                            : codeSystemRepository.sliceByFilter(filter, pageable);
+                }
+            } else if (hasUrl) {
+                entries = exactTotal ? codeSystemRepository.findBySystemUri(url, pageable)
+                        : codeSystemRepository.sliceBySystemUri(url, pageable);
             } else {
-                entries = codeSystemRepository.findAll(pageable);
+                entries = exactTotal ? codeSystemRepository.findAll(pageable)
+                        : codeSystemRepository.sliceAll(pageable);
+            }
+
+            content = entries.getContent();
+            if (entries instanceof Page<CodeSystemEntry> page) {
+                total = (int) page.getTotalElements();
+                hasMore = offset + content.size() < total;
+            } else {
+                // Slices fetch count + 1 rows, so the extra row alone tells us whether more exist
+                hasMore = entries.hasNext();
+                if (totalMode == TotalMode.ESTIMATE) {
+                    total = countEstimator.estimate(hasUrl ? url : null, hasFilter ? filter : null, relevanceOrdered);
+                }
             }
         }
 
@@ -55,76 +298,517 @@ public class TerminologyService {
         valueSet.setUrl(url != null ? url : namasteSystemUri);
 
         FhirValueSetExpansion expansion = new FhirValueSetExpansion();
-        expansion.setTotal((int) entries.getTotalElements());
+        expansion.setTotal(total);
+        expansion.setOffset(position != null ? 0 : offset);
+
+        // Without a snapshot, one query unpacks the page's designations rather than parsing the JSONB of every row
+        Map<Long, List<Designation>> designations = displayLanguage != null && snapshot == null
+                ? designationsOf(content) : Map.of();
+        List<FhirValueSetContains> contains = new ArrayList<>();
+        for (CodeSystemEntry entry : content) {
+            FhirValueSetContains contain = new FhirValueSetContains();
+            contain.setSystem(entry.getSystemUri());
+            contain.setCode(entry.getCode());
+            contain.setDisplay(entry.getDisplay());
+            if (displayLanguage != null && snapshot != null) {
+                // Designations come from the snapshot rather than parsing the JSONB of every row
+                int ordinal = snapshot.getDictionary().find(entry.getSystemUri(), entry.getCode());
+                if (ordinal >= 0) {
+                    contain.setDisplay(snapshot.getConcepts().display(ordinal, displayLanguage));
+                }
+            } else if (displayLanguage != null) {
+                contain.setDisplay(displayIn(designations.getOrDefault(entry.getId(), List.of()),
+                        displayLanguage, entry.getDisplay()));
+            }
+            contains.add(contain);
+        }
+        expansion.setContains(contains);
+
+        if (hasMore && keysetOrdered && !content.isEmpty()) {
+            CodeSystemEntry last = content.get(content.size() - 1);
+            expansion.setNext(new ExpansionCursor(ExpansionCursor.Order.DATABASE,
+                    last.getSystemUri(), last.getCode(), last.getId()).encode());
+        }
+        valueSet.setExpansion(expansion);
+
+        logger.info("Expanded ValueSet with {} entries for filter: {}", contains.size(), filter);
+        return valueSet;
+    }
+
+    private FhirValueSet expandFromIndex(CodeSystemSnapshot snapshot, String url, String filter, int count, int offset,
+                                         ExpansionCursor position, String displayLanguage, boolean ranked,
+                                         long generation) {
+        ConceptTable concepts = snapshot.getConcepts();
+
+        // Code/display matches and designation matches are both in table order, so a merge keeps that order
+        int[] matches;
+        if (url != null && !url.trim().isEmpty()) {
+            int systemId = concepts.systemId(url);
+            matches = systemId >= 0
+                    ? DesignationIndex.union(snapshot.getNgramIndex().search(filter, systemId),
+                            snapshot.getDesignationIndex().search(filter, systemId, displayLanguage))
+                    : new int[0];
+        } else {
+            matches = DesignationIndex.union(snapshot.getNgramIndex().search(filter, -1),
+                    snapshot.getDesignationIndex().search(filter, -1, displayLanguage));
+        }
+
+        // The token's order wins over the ranking setting, so a client pages on in the order it started with
+        boolean relevanceOrdered = position != null ? position.getOrder() == ExpansionCursor.Order.RANKED : ranked;
+        int start = offset;
+        if (relevanceOrdered && position != null) {
+            start = position.getRankPosition();
+        }
+
+        // Relevance order only needs the best start + count candidates; the ranking is deterministic,
+        // so a RANKED token re-ranks under the same generation and skips what it already returned
+        int[] ordered = matches;
+        if (relevanceOrdered) {
+            ordered = snapshot.getRelevanceScorer().rank(matches, filter,
+                    (int) Math.min((long) start + count, Integer.MAX_VALUE));
+        }
+
+        // Matches are in table order, which is the keyset order, so a cursor is a binary search away
+        if (position != null && !relevanceOrdered) {
+            int after = concepts.seek(position.getSystemUri(), position.getCode(), position.getId());
+            int index = Arrays.binarySearch(matches, after);
+            start = index >= 0 ? index : -index - 1;
+        }
+        int end = (int) Math.min((long) start + count, ordered.length);
+
+        FhirValueSet valueSet = new FhirValueSet();
+        valueSet.setResourceType("ValueSet");
+        valueSet.setUrl(url != null ? url : namasteSystemUri);
+
+        FhirValueSetExpansion expansion = new FhirValueSetExpansion();
+        expansion.setTotal(matches.length);
+        expansion.setOffset(start);
+
+        List<FhirValueSetContains> contains = new ArrayList<>();
+        for (int i = start; i < end; i++) {
+            contains.add(toContains(concepts, ordered[i], displayLanguage));
+        }
+        expansion.setContains(contains);
+
+        if (relevanceOrdered && end < matches.length && end > start) {
+            expansion.setNext(ExpansionCursor.ranked(generation, end).encode());
+        } else if (!relevanceOrdered && end < matches.length && end > start) {
+            int last = matches[end - 1];
+            expansion.setNext(new ExpansionCursor(ExpansionCursor.Order.INDEX,
+                    concepts.system(last), concepts.code(last), concepts.id(last)).encode());
+        }
+        valueSet.setExpansion(expansion);
+
+        logger.info("Expanded ValueSet from index with {} of {} matches for filter: {}", contains.size(), matches.length, filter);
+        return valueSet;
+    }
+
+    private FhirValueSet expandRangeFromIndex(CodeSystemSnapshot snapshot, String url, int count, int offset,
+                                              ExpansionCursor position, String displayLanguage) {
+        ConceptTable concepts = snapshot.getConcepts();
+
+        // Systems are dictionary-encoded into contiguous ranges, so a url prunes to its own rows only
+        int from = 0;
+        int to = concepts.size();
+        if (url != null && !url.trim().isEmpty()) {
+            int systemId = concepts.systemId(url);
+            from = systemId >= 0 ? concepts.systemStart(systemId) : 0;
+            to = systemId >= 0 ? concepts.systemEnd(systemId) : 0;
+        }
+
+        int start = (int) Math.min((long) from + offset, to);
+        if (position != null) {
+            start = Math.max(from, Math.min(concepts.seek(position.getSystemUri(), position.getCode(), position.getId()), to));
+        }
+        int end = (int) Math.min((long) start + count, to);
+
+        FhirValueSet valueSet = new FhirValueSet();
+        valueSet.setResourceType("ValueSet");
+        valueSet.setUrl(url != null ? url : namasteSystemUri);
+
+        FhirValueSetExpansion expansion = new FhirValueSetExpansion();
+        expansion.setTotal(to - from);
+        expansion.setOffset(start - from);
+
+        List<FhirValueSetContains> contains = new ArrayList<>();
+        for (int ordinal = start; ordinal < end; ordinal++) {
+            contains.add(toContains(concepts, ordinal, displayLanguage));
+        }
+        expansion.setContains(contains);
+
+        if (end < to && end > start) {
+            int last = end - 1;
+            expansion.setNext(new ExpansionCursor(ExpansionCursor.Order.INDEX,
+                    concepts.system(last), concepts.code(last), concepts.id(last)).encode());
+        }
+        valueSet.setExpansion(expansion);
+
+        logger.info("Expanded ValueSet from index with {} of {} entries for url: {}", contains.size(), to - from, url);
+        return valueSet;
+    }
+
+    /**
+     * Expansion restricted to a concept and its descendants (is-a), optionally filtered.
+     * Served from the hierarchy closure of the snapshot; results are in table order.
+     */
+    private FhirValueSet expandDescendants(String url, String isA, String filter, int count, int offset,
+                                           String cursor, String displayLanguage) {
+        if (url == null || url.trim().isEmpty()) {
+            throw new IllegalArgumentException("isA requires the url of the code system");
+        }
+        if (count < 1 || offset < 0) {
+            throw new IllegalArgumentException("count must be positive and offset must not be negative");
+        }
+        ExpansionCursor position = cursor != null && !cursor.isEmpty() ? ExpansionCursor.decode(cursor) : null;
+        CodeSystemSnapshot snapshot = codeSystemIndexService.getSnapshot();
+        if (position != null && (snapshot == null || position.getOrder() != ExpansionCursor.Order.INDEX)) {
+            throw new IllegalArgumentException("Continuation token can no longer be resumed; restart the expansion");
+        }
+        if (snapshot == null) {
+            return expandDescendantsFromDatabase(url, isA, filter, count, offset, displayLanguage);
+        }
+        ConceptTable concepts = snapshot.getConcepts();
+        HierarchyIndex hierarchy = snapshot.getHierarchy();
+
+        int[] matches;
+        int ancestor = snapshot.getDictionary().find(url, isA);
+        if (ancestor < 0) {
+            matches = new int[0];
+        } else if (filter != null && !filter.trim().isEmpty()) {
+            int systemId = concepts.systemIdOf(ancestor);
+            // Filter first, then a logarithmic subsumption test per match
+            matches = hierarchy.retainDescendantsOrSelf(ancestor, DesignationIndex.union(
+                    snapshot.getNgramIndex().search(filter, systemId),
+                    snapshot.getDesignationIndex().search(filter, systemId, displayLanguage)));
+        } else {
+            matches = hierarchy.descendantsOrSelf(ancestor);
+        }
+
+        int start = (int) Math.min(offset, matches.length);
+        if (position != null) {
+            int after = concepts.seek(position.getSystemUri(), position.getCode(), position.getId());
+            int index = Arrays.binarySearch(matches, after);
+            start = index >= 0 ? index : -index - 1;
+        }
+        int end = (int) Math.min((long) start + count, matches.length);
+
+        FhirValueSet valueSet = new FhirValueSet();
+        valueSet.setResourceType("ValueSet");
+        valueSet.setUrl(url);
+
+        FhirValueSetExpansion expansion = new FhirValueSetExpansion();
+        expansion.setTotal(matches.length);
+        expansion.setOffset(start);
+
+        List<FhirValueSetContains> contains = new ArrayList<>();
+        for (int i = start; i < end; i++) {
+            contains.add(toContains(concepts, matches[i], displayLanguage));
+        }
+        expansion.setContains(contains);
+
+        if (end < matches.length && end > start) {
+            int last = matches[end - 1];
+            expansion.setNext(new ExpansionCursor(ExpansionCursor.Order.INDEX,
+                    concepts.system(last), concepts.code(last), concepts.id(last)).encode());
+        }
+        valueSet.setExpansion(expansion);
+
+        logger.info("Expanded ValueSet with {} of {} descendants of {}", contains.size(), matches.length, isA);
+        return valueSet;
+    }
+
+    // Until the index is built: one query for the system's edges, walked in memory, then one for the concepts
+    private FhirValueSet expandDescendantsFromDatabase(String url, String isA, String filter, int count, int offset,
+                                                       String displayLanguage) {
+        Set<String> codes = descendantsOrSelf(hierarchyEdgeRepository.findBySystemUri(url), isA);
+        String normalizedFilter = filter != null && !filter.trim().isEmpty() ? ConceptTable.normalize(filter.trim()) : null;
+
+        List<CodeSystemEntry> entries = new ArrayList<>();
+        for (CodeSystemEntry entry : codeSystemRepository.findBySystemUriInAndCodeIn(Set.of(url), codes)) {
+            if (normalizedFilter == null || ConceptTable.normalize(entry.getCode()).contains(normalizedFilter)
+                    || ConceptTable.normalize(entry.getDisplay()).contains(normalizedFilter)) {
+                entries.add(entry);
+            }
+        }
+        entries.sort(Comparator.comparing(CodeSystemEntry::getCode).thenComparing(CodeSystemEntry::getId));
+
+        FhirValueSet valueSet = new FhirValueSet();
+        valueSet.setResourceType("ValueSet");
+        valueSet.setUrl(url);
+
+        FhirValueSetExpansion expansion = new FhirValueSetExpansion();
+        expansion.setTotal(entries.size());
         expansion.setOffset(offset);
 
+        List<CodeSystemEntry> page = entries.subList(Math.min(offset, entries.size()),
+                (int) Math.min((long) offset + count, entries.size()));
+        Map<Long, List<Designation>> designations = displayLanguage != null ? designationsOf(page) : Map.of();
         List<FhirValueSetContains> contains = new ArrayList<>();
-        for (CodeSystemEntry entry : entries.getContent()) {
+        for (CodeSystemEntry entry : page) {
             FhirValueSetContains contain = new FhirValueSetContains();
             contain.setSystem(entry.getSystemUri());
             contain.setCode(entry.getCode());
             contain.setDisplay(entry.getDisplay());
+            if (displayLanguage != null) {
+                contain.setDisplay(displayIn(designations.getOrDefault(entry.getId(), List.of()),
+                        displayLanguage, entry.getDisplay()));
+            }
             contains.add(contain);
         }
         expansion.setContains(contains);
         valueSet.setExpansion(expansion);
+        return valueSet;
+    }
 
-        // Augment with ICD search results if filter is provided
-//        if (filter != null && !filter.trim().isEmpty() && contains.size() < count) {
-//            augmentWithIcdResults(expansion, filter, count - contains.size());
-//        }
+    private static Set<String> descendantsOrSelf(List<ConceptHierarchyEdge> edges, String code) {
+        Map<String, List<String>> children = new HashMap<>();
+        for (ConceptHierarchyEdge edge : edges) {
+            children.computeIfAbsent(edge.getParentCode(), parent -> new ArrayList<>()).add(edge.getChildCode());
+        }
+        Set<String> reached = new HashSet<>();
+        ArrayDeque<String> queue = new ArrayDeque<>();
+        reached.add(code);
+        queue.add(code);
+        while (!queue.isEmpty()) {
+            for (String child : children.getOrDefault(queue.poll(), List.of())) {
+                if (reached.add(child)) {
+                    queue.add(child);
+                }
+            }
+        }
+        return reached;
+    }
 
-        logger.info("Expanded ValueSet with {} entries for filter: {}", contains.size(), filter);
+    /**
+     * Spelling- and transliteration-tolerant expansion: every filter word must match a display
+     * word within the edit distance after phonetic folding. Closest matches come first.
+     */
+    public FhirValueSet expandFuzzy(String url, String filter, int count, int offset, int maxEdits,
+                                    String displayLanguage) {
+        if (count < 1 || offset < 0) {
+            throw new IllegalArgumentException("count must be positive and offset must not be negative");
+        }
+        CodeSystemSnapshot snapshot = codeSystemIndexService.getSnapshot();
+        if (snapshot == null || filter == null || filter.trim().isEmpty()) {
+            return expandLocal(url, filter, count, offset, null, TotalMode.ACCURATE, displayLanguage, rankingEnabled,
+                    generation.current());
+        }
+
+        ConceptTable concepts = snapshot.getConcepts();
+        int[] matches;
+        if (url != null && !url.trim().isEmpty()) {
+            int systemId = concepts.systemId(url);
+            matches = systemId >= 0 ? snapshot.getFuzzyIndex().search(filter, systemId, maxEdits) : new int[0];
+        } else {
+            matches = snapshot.getFuzzyIndex().search(filter, -1, maxEdits);
+        }
+
+        FhirValueSet valueSet = new FhirValueSet();
+        valueSet.setResourceType("ValueSet");
+        valueSet.setUrl(url != null ? url : namasteSystemUri);
+
+        FhirValueSetExpansion expansion = new FhirValueSetExpansion();
+        expansion.setTotal(matches.length);
+        expansion.setOffset(offset);
+
+        List<FhirValueSetContains> contains = new ArrayList<>();
+        int end = (int) Math.min((long) offset + count, matches.length);
+        for (int i = offset; i < end; i++) {
+            contains.add(toContains(concepts, matches[i], displayLanguage));
+        }
+        expansion.setContains(contains);
+        valueSet.setExpansion(expansion);
+
+        logger.info("Fuzzy expanded ValueSet with {} of {} matches for filter: {}", contains.size(), matches.length, filter);
         return valueSet;
     }
 
-    private void augmentWithIcdResults(FhirValueSetExpansion expansion, String filter, int remainingCount) {
+    /**
+     * Prefix completion for typeahead, answered from the precomputed trie without touching JPA.
+     * Falls back to a regular expansion when the trie cannot answer the request.
+     */
+    public FhirValueSet autocomplete(String url, String prefix, int count, String displayLanguage) {
+        CodeSystemSnapshot snapshot = codeSystemIndexService.getSnapshot();
+        if (snapshot == null || prefix == null || !snapshot.getAutocompleteIndex().supports(prefix, count)) {
+            return expandLocal(url, prefix, count, 0, null, TotalMode.NONE, displayLanguage, rankingEnabled,
+                    generation.current());
+        }
+
+        ConceptTable concepts = snapshot.getConcepts();
+        int[] completions;
+        if (url != null && !url.trim().isEmpty()) {
+            int systemId = concepts.systemId(url);
+            completions = systemId >= 0 ? snapshot.getAutocompleteIndex().complete(prefix, systemId, count) : new int[0];
+        } else {
+            completions = snapshot.getAutocompleteIndex().complete(prefix, -1, count);
+        }
+
+        FhirValueSet valueSet = new FhirValueSet();
+        valueSet.setResourceType("ValueSet");
+        valueSet.setUrl(url != null ? url : namasteSystemUri);
+
+        FhirValueSetExpansion expansion = new FhirValueSetExpansion();
+        expansion.setOffset(0);
+
+        List<FhirValueSetContains> contains = new ArrayList<>();
+        for (int ordinal : completions) {
+            contains.add(toContains(concepts, ordinal, displayLanguage));
+        }
+        expansion.setContains(contains);
+        valueSet.setExpansion(expansion);
+
+        logger.debug("Autocompleted {} entries for prefix: {}", contains.size(), prefix);
+        return valueSet;
+    }
+
+    private static FhirValueSetContains toContains(ConceptTable concepts, int ordinal, String displayLanguage) {
+        FhirValueSetContains contain = new FhirValueSetContains();
+        contain.setSystem(concepts.system(ordinal));
+        contain.setCode(concepts.code(ordinal));
+        contain.setDisplay(concepts.display(ordinal, displayLanguage));
+        return contain;
+    }
+
+    /**
+     * Starts an asynchronous ICD-11 search, or answers from the search cache. Returns null
+     * when the circuit to the WHO API is open or too many ICD API calls are in flight.
+     */
+    CompletableFuture<List<FhirValueSetContains>> searchIcd(String filter) {
+        List<FhirValueSetContains> cached = icdSearchCache.get(filter);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        if (!icdCircuitBreaker.allowRequest()) {
+            logger.debug("ICD circuit open, skipping ICD search for filter: {}", filter);
+            return null;
+        }
         try {
-            var icdResults = icdSyncService.searchEntities(filter);
-            int addedCount = 0;
+            return icdSyncService.searchEntitiesAsync(filter)
+                    .thenApply(TerminologyService::toIcdContains)
+                    .whenComplete((results, error) -> {
+                        // searchEntitiesAsync reports failures as an empty list, so only hits are worth keeping
+                        if (results != null && !results.isEmpty()) {
+                            icdSearchCache.put(filter, results);
+                        }
+                    });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Too many ICD API calls in flight, expanding without ICD results for filter: {}", filter);
+            return null;
+        }
+    }
 
-            for (var icdResult : icdResults) {
-                if (addedCount >= remainingCount) break;
+    /**
+     * Returns false when the ICD results were not available in time.
+     */
+    private boolean augmentWithIcdResults(FhirValueSetExpansion expansion,
+                                       CompletableFuture<List<FhirValueSetContains>> icdResults,
+                                       int count, long deadline) {
+        List<FhirValueSetContains> results;
+        try {
+            results = icdResults.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            logger.debug("ICD search missed the federation deadline; results will be cached when they arrive");
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            logger.warn("Failed to augment with ICD results", e.getCause());
+            return false;
+        }
 
-                FhirValueSetContains contain = new FhirValueSetContains();
-                contain.setSystem("http://id.who.int/icd/release/11/mms");
-                contain.setCode(icdResult.get("theCode") != null ? icdResult.get("theCode").asText() : "");
-                contain.setDisplay(icdResult.get("title") != null ? icdResult.get("title").asText() : "");
+        Set<String> seen = new HashSet<>();
+        for (FhirValueSetContains contain : expansion.getContains()) {
+            seen.add(contain.getSystem() + "|" + contain.getCode());
+        }
 
-                expansion.getContains().add(contain);
+        int addedCount = 0;
+        for (FhirValueSetContains icdResult : results) {
+            if (expansion.getContains().size() >= count) break;
+            if (seen.add(icdResult.getSystem() + "|" + icdResult.getCode())) {
+                expansion.getContains().add(icdResult);
                 addedCount++;
             }
+        }
 
-            if (addedCount > 0) {
-                logger.info("Added {} ICD results to ValueSet expansion", addedCount);
-            }
-        } catch (Exception e) {
-            logger.warn("Failed to augment with ICD results", e);
+        // total stays the local count, so it does not change between the first and later pages
+        if (addedCount > 0) {
+            logger.info("Added {} ICD results to ValueSet expansion", addedCount);
         }
+        return true;
     }
 
-    public FhirParameters lookupCode(String system, String code, String version) {
-        Optional<CodeSystemEntry> entryOpt = codeSystemRepository.findBySystemUriAndCode(system, code);
+    private static List<FhirValueSetContains> toIcdContains(List<JsonNode> icdResults) {
+        List<FhirValueSetContains> contains = new ArrayList<>();
+        for (JsonNode icdResult : icdResults) {
+            String code = icdResult.get("theCode") != null ? icdResult.get("theCode").asText() : "";
+            if (code.isEmpty()) {
+                // Chapters and blocks have no code and cannot be selected
+                continue;
+            }
+            String title = icdResult.get("title") != null ? icdResult.get("title").asText() : "";
 
-        if (entryOpt.isPresent()) {
-            CodeSystemEntry entry = entryOpt.get();
-            FhirParameters parameters = new FhirParameters();
-            parameters.setResourceType("Parameters");
+            FhirValueSetContains contain = new FhirValueSetContains();
+            contain.setSystem(ICD_SYSTEM_URI);
+            contain.setCode(code);
+            // Flexisearch highlights matches with <em> markup
+            contain.setDisplay(title.replaceAll("<[^>]+>", ""));
+            contains.add(contain);
+        }
+        return contains;
+    }
 
-            List<FhirParameter> paramList = new ArrayList<>();
+    /**
+     * Served from the snapshot's dictionary when it is built: a hash probe over immutable arrays,
+     * with no JPA session or query. The database (behind the result cache) is only used before then.
+     */
+    public FhirParameters lookupCode(String system, String code, String version, String displayLanguage) {
+        CodeSystemSnapshot snapshot = codeSystemIndexService.getSnapshot();
+        if (snapshot != null) {
+            int ordinal = snapshot.getDictionary().find(system, code);
+            if (ordinal >= 0) {
+                return toLookupParameters(snapshot, ordinal, displayLanguage);
+            }
+            return lookupMissing(system, code);
+        }
 
-            paramList.add(new FhirParameter("name", "display", entry.getDisplay()));
-            if (entry.getDefinition() != null) {
-                paramList.add(new FhirParameter("name", "definition", entry.getDefinition()));
+        // Until the index is built, the mapped snapshot file answers without touching Postgres
+        MappedTerminology mapped = snapshotFileService.getMapped();
+        if (mapped != null) {
+            int ordinal = mapped.find(system, code);
+            if (ordinal >= 0) {
+                return toLookupParameters(mapped, ordinal, displayLanguage);
             }
-            paramList.add(new FhirParameter("name", "version", entry.getVersion()));
+        }
 
-            parameters.setParameter(paramList);
+        if (!knownCodeFilter.mightContainCode(system, code)) {
+            return lookupMissing(system, code);
+        }
+
+        TerminologyResultCache.LookupKey key = new TerminologyResultCache.LookupKey(generation.current(),
+                system, code, version, displayLanguage);
+        FhirParameters cached = resultCache.getLookup(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        Optional<CodeSystemEntry> entryOpt = codeSystemRepository.findBySystemUriAndCode(system, code);
+
+        if (entryOpt.isPresent()) {
+            CodeSystemEntry entry = entryOpt.get();
+            FhirParameters parameters = toLookupParameters(entry.getDisplay(), entry.getDefinition(), entry.getVersion(),
+                    designationsOf(List.of(entry)).getOrDefault(entry.getId(), List.of()), displayLanguage);
+            // Only local concepts are cached; ICD entities are not versioned by the generation
+            resultCache.putLookup(key, parameters);
 
             logger.info("Successfully looked up code: {} in system: {}", code, system);
             return parameters;
         }
 
+        return lookupMissing(system, code);
+    }
+
+    private FhirParameters lookupMissing(String system, String code) {
         // Try ICD lookup if not found locally
         if (system.contains("who.int/icd")) {
             return lookupIcdCode(code);
@@ -134,27 +818,367 @@ public class TerminologyService {
         return null;
     }
 
-    private FhirParameters lookupIcdCode(String entityId) {
-        try {
-            var icdEntity = icdSyncService.resolveEntity(entityId);
-            if (icdEntity != null) {
-                FhirParameters parameters = new FhirParameters();
-                parameters.setResourceType("Parameters");
+    /**
+     * Batch $lookup. Local codes are resolved together, from the snapshot dictionary or else from the
+     * mapped snapshot file and one IN query; ICD-11 codes missing locally are resolved concurrently under a shared deadline.
+     * Results are in input order with a per-item status and duration.
+     */
+    public List<BatchResult> lookupCodes(List<FhirConcept> codings, String displayLanguage) {
+        if (codings.size() > batchMaxSize) {
+            throw new IllegalArgumentException("At most " + batchMaxSize + " codings are accepted per batch");
+        }
+        BatchResult[] results = new BatchResult[codings.size()];
+        double[] localMs = new double[codings.size()];
+
+        CodeSystemSnapshot snapshot = codeSystemIndexService.getSnapshot();
+        if (snapshot != null) {
+            for (int i = 0; i < codings.size(); i++) {
+                long start = System.nanoTime();
+                FhirConcept coding = codings.get(i);
+                int ordinal = snapshot.getDictionary().find(coding.getSystem(), coding.getCode());
+                localMs[i] = elapsedMs(start);
+                if (ordinal >= 0) {
+                    results[i] = new BatchResult(toLookupParameters(snapshot, ordinal, displayLanguage),
+                            "200", localMs[i]);
+                }
+            }
+        } else {
+            MappedTerminology mapped = snapshotFileService.getMapped();
+            if (mapped != null) {
+                for (int i = 0; i < codings.size(); i++) {
+                    long start = System.nanoTime();
+                    FhirConcept coding = codings.get(i);
+                    int ordinal = mapped.find(coding.getSystem(), coding.getCode());
+                    localMs[i] = elapsedMs(start);
+                    if (ordinal >= 0) {
+                        results[i] = new BatchResult(toLookupParameters(mapped, ordinal, displayLanguage), "200", localMs[i]);
+                    }
+                }
+            }
+            lookupFromDatabase(codings, displayLanguage, results, localMs);
+        }
+
+        lookupIcdMisses(codings, results);
+
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] == null) {
+                FhirConcept coding = codings.get(i);
+                boolean valid = coding.getSystem() != null && coding.getCode() != null;
+                results[i] = new BatchResult(null, valid ? "404" : "400", localMs[i]);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Batch $validate-code: a coding is valid when it resolves and, if it carries a display,
+     * that display matches the concept's display or one of its designations.
+     */
+    public List<BatchResult> validateCodes(List<FhirConcept> codings, String displayLanguage) {
+        List<BatchResult> lookups = lookupCodes(codings, displayLanguage);
+        List<BatchResult> results = new ArrayList<>(lookups.size());
+        for (int i = 0; i < lookups.size(); i++) {
+            FhirConcept coding = codings.get(i);
+            BatchResult lookup = lookups.get(i);
+
+            List<FhirParameter> paramList = new ArrayList<>();
+            if (lookup.parameters() == null) {
+                paramList.add(new FhirParameter("name", "result", "false"));
+                paramList.add(new FhirParameter("name", "message", "404".equals(lookup.status())
+                        ? "Code " + coding.getCode() + " was not found in " + coding.getSystem()
+                        : "Code " + coding.getCode() + " could not be looked up in " + coding.getSystem()));
+            } else {
+                List<String> displays = parameterValues(lookup.parameters().getParameter());
+                boolean displayMatches = coding.getDisplay() == null || displays.stream()
+                        .anyMatch(display -> display.equalsIgnoreCase(coding.getDisplay().trim()));
+                paramList.add(new FhirParameter("name", "result", String.valueOf(displayMatches)));
+                if (!displays.isEmpty()) {
+                    paramList.add(new FhirParameter("name", "display", displays.get(0)));
+                }
+                if (!displayMatches) {
+                    paramList.add(new FhirParameter("name", "message",
+                            "Display '" + coding.getDisplay() + "' does not match code " + coding.getCode()));
+                }
+            }
+
+            FhirParameters parameters = new FhirParameters();
+            parameters.setResourceType("Parameters");
+            parameters.setParameter(paramList);
+            // A code that is not found is still a successful validation; any other lookup failure is passed through
+            String status = "404".equals(lookup.status()) ? "200" : lookup.status();
+            results.add(new BatchResult(parameters, status, lookup.durationMs()));
+        }
+        return results;
+    }
+
+    // Display first, then designation values
+    private static List<String> parameterValues(List<FhirParameter> parameters) {
+        List<String> values = new ArrayList<>();
+        for (FhirParameter parameter : parameters) {
+            if ("display".equals(parameter.getName()) && parameter.getValueString() != null) {
+                values.add(0, parameter.getValueString());
+            } else if ("designation".equals(parameter.getName()) && parameter.getPart() != null) {
+                for (FhirParameter part : parameter.getPart()) {
+                    if ("value".equals(part.getName()) && part.getValueString() != null) {
+                        values.add(part.getValueString());
+                    }
+                }
+            }
+        }
+        return values;
+    }
+
+    private void lookupFromDatabase(List<FhirConcept> codings, String displayLanguage,
+                                    BatchResult[] results, double[] localMs) {
+        Set<String> systems = new HashSet<>();
+        Set<String> codes = new HashSet<>();
+        for (int i = 0; i < codings.size(); i++) {
+            FhirConcept coding = codings.get(i);
+            if (results[i] == null && knownCodeFilter.mightContainCode(coding.getSystem(), coding.getCode())) {
+                systems.add(coding.getSystem());
+                codes.add(coding.getCode());
+            }
+        }
+        if (codes.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        Map<String, CodeSystemEntry> entries = new HashMap<>();
+        for (CodeSystemEntry entry : codeSystemRepository.findBySystemUriInAndCodeIn(systems, codes)) {
+            entries.putIfAbsent(entry.getSystemUri() + "|" + entry.getCode(), entry);
+        }
+        Map<Long, List<Designation>> designations = designationsOf(entries.values());
+        // The queries served every item, so each reports the shared query time
+        double queryMs = elapsedMs(start);
+
+        for (int i = 0; i < codings.size(); i++) {
+            if (results[i] != null) {
+                continue;
+            }
+            FhirConcept coding = codings.get(i);
+            localMs[i] += queryMs;
+            CodeSystemEntry entry = entries.get(coding.getSystem() + "|" + coding.getCode());
+            if (entry != null) {
+                results[i] = new BatchResult(toLookupParameters(entry.getDisplay(), entry.getDefinition(),
+                        entry.getVersion(), designations.getOrDefault(entry.getId(), List.of()), displayLanguage),
+                        "200", localMs[i]);
+            }
+        }
+    }
+
+    // First designation in the language, as ConceptTable.display picks it for the snapshot
+    private static String displayIn(List<Designation> designations, String language, String fallback) {
+        for (Designation designation : designations) {
+            if (designation.hasLanguage(language)) {
+                return designation.value();
+            }
+        }
+        return fallback;
+    }
+
+    // Designations of rows read from the database, unpacked by Postgres instead of parsing the JSONB here
+    private Map<Long, List<Designation>> designationsOf(Collection<CodeSystemEntry> entries) {
+        List<Long> ids = new ArrayList<>();
+        for (CodeSystemEntry entry : entries) {
+            if (entry.getDesignations() != null) {
+                ids.add(entry.getId());
+            }
+        }
+        Map<Long, List<Designation>> designations = new HashMap<>();
+        if (ids.isEmpty()) {
+            return designations;
+        }
+        for (DesignationRow row : codeSystemRepository.findDesignations(ids)) {
+            designations.computeIfAbsent(row.getConceptId(), id -> new ArrayList<>())
+                    .add(new Designation(row.getLanguage(), row.getDesignationUse(), row.getValue()));
+        }
+        return designations;
+    }
+
+    private void lookupIcdMisses(List<FhirConcept> codings, BatchResult[] results) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(batchIcdDeadlineMs);
+        Map<Integer, CompletableFuture<BatchResult>> pending = new LinkedHashMap<>();
+
+        for (int i = 0; i < codings.size(); i++) {
+            FhirConcept coding = codings.get(i);
+            if (results[i] != null || coding.getSystem() == null || coding.getCode() == null
+                    || !coding.getSystem().contains("who.int/icd") || icdMissCache.isUnknownEntity(coding.getCode())) {
+                continue;
+            }
+            try {
+                long itemStart = System.nanoTime();
+                pending.put(i, icdSyncService.resolveEntityAsync(coding.getCode()).thenApply(icdEntity -> {
+                    FhirParameters parameters = icdEntity != null ? toIcdLookupParameters(coding.getCode(), icdEntity) : null;
+                    return new BatchResult(parameters, parameters != null ? "200" : "404", elapsedMs(itemStart));
+                }));
+            } catch (RejectedExecutionException e) {
+                results[i] = new BatchResult(null, "503", 0);
+            }
+        }
+
+        for (Map.Entry<Integer, CompletableFuture<BatchResult>> item : pending.entrySet()) {
+            try {
+                results[item.getKey()] = item.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                results[item.getKey()] = new BatchResult(null, "504", elapsedMs(start));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results[item.getKey()] = new BatchResult(null, "504", elapsedMs(start));
+            } catch (ExecutionException e) {
+                logger.error("Error looking up ICD entity: {}", codings.get(item.getKey()).getCode(), e.getCause());
+                results[item.getKey()] = new BatchResult(null, "500", elapsedMs(start));
+            }
+        }
+    }
+
+    private static double elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000.0;
+    }
+
+    private static FhirParameters toLookupParameters(CodeSystemSnapshot snapshot, int ordinal, String displayLanguage) {
+        ConceptTable concepts = snapshot.getConcepts();
+        List<Designation> designations = new ArrayList<>();
+        for (int i = concepts.designationStart(ordinal); i < concepts.designationStart(ordinal + 1); i++) {
+            designations.add(concepts.designation(i));
+        }
+        FhirParameters parameters = toLookupParameters(concepts.display(ordinal), concepts.definition(ordinal),
+                concepts.version(ordinal), designations, displayLanguage);
+
+        HierarchyIndex hierarchy = snapshot.getHierarchy();
+        for (int parent : hierarchy.parents(ordinal)) {
+            parameters.getParameter().add(toPropertyParameter("parent", concepts.code(parent)));
+        }
+        for (int child : hierarchy.children(ordinal)) {
+            parameters.getParameter().add(toPropertyParameter("child", concepts.code(child)));
+        }
+        return parameters;
+    }
+
+    private static FhirParameter toPropertyParameter(String property, String code) {
+        FhirParameter codePart = new FhirParameter();
+        codePart.setName("code");
+        codePart.setValueCode(property);
+
+        FhirParameter valuePart = new FhirParameter();
+        valuePart.setName("value");
+        valuePart.setValueCode(code);
+
+        FhirParameter parameter = new FhirParameter();
+        parameter.setName("property");
+        parameter.setPart(List.of(codePart, valuePart));
+        return parameter;
+    }
 
-                List<FhirParameter> paramList = new ArrayList<>();
+    /**
+     * $subsumes: how codeA relates to codeB in the is-a hierarchy of one code system.
+     * Returns null when either code is not in the system.
+     */
+    public FhirParameters subsumes(String system, String codeA, String codeB) {
+        String outcome;
+        CodeSystemSnapshot snapshot = codeSystemIndexService.getSnapshot();
+        if (snapshot != null) {
+            int a = snapshot.getDictionary().find(system, codeA);
+            int b = snapshot.getDictionary().find(system, codeB);
+            if (a < 0 || b < 0) {
+                return null;
+            }
+            HierarchyIndex hierarchy = snapshot.getHierarchy();
+            outcome = a == b ? "equivalent"
+                    : hierarchy.subsumes(a, b) ? "subsumes"
+                    : hierarchy.subsumes(b, a) ? "subsumed-by"
+                    : "not-subsumed";
+        } else {
+            if (codeSystemRepository.findBySystemUriAndCode(system, codeA).isEmpty()
+                    || codeSystemRepository.findBySystemUriAndCode(system, codeB).isEmpty()) {
+                return null;
+            }
+            List<ConceptHierarchyEdge> edges = hierarchyEdgeRepository.findBySystemUri(system);
+            outcome = codeA.equals(codeB) ? "equivalent"
+                    : descendantsOrSelf(edges, codeA).contains(codeB) ? "subsumes"
+                    : descendantsOrSelf(edges, codeB).contains(codeA) ? "subsumed-by"
+                    : "not-subsumed";
+        }
+
+        FhirParameter outcomeParam = new FhirParameter();
+        outcomeParam.setName("outcome");
+        outcomeParam.setValueCode(outcome);
 
-                String display = icdEntity.get("title") != null ? icdEntity.get("title").asText() : "";
-                paramList.add(new FhirParameter("name", "display", display));
+        FhirParameters parameters = new FhirParameters();
+        parameters.setResourceType("Parameters");
+        parameters.setParameter(new ArrayList<>(List.of(outcomeParam)));
+        return parameters;
+    }
 
-                String definition = icdEntity.get("definition") != null ? icdEntity.get("definition").asText() : "";
-                if (!definition.isEmpty()) {
-                    paramList.add(new FhirParameter("name", "definition", definition));
+    private static FhirParameters toLookupParameters(MappedTerminology mapped, int ordinal, String displayLanguage) {
+        return toLookupParameters(mapped.display(ordinal), mapped.definition(ordinal), mapped.version(ordinal),
+                mapped.designations(ordinal), displayLanguage);
+    }
+
+    private static FhirParameters toLookupParameters(String display, String definition, String version,
+                                                     List<Designation> designations, String displayLanguage) {
+        FhirParameters parameters = new FhirParameters();
+        parameters.setResourceType("Parameters");
+
+        List<FhirParameter> paramList = new ArrayList<>();
+
+        if (displayLanguage != null) {
+            for (Designation designation : designations) {
+                if (designation.hasLanguage(displayLanguage)) {
+                    display = designation.value();
+                    break;
                 }
+            }
+        }
 
-                parameters.setParameter(paramList);
+        paramList.add(new FhirParameter("name", "display", display));
+        if (definition != null) {
+            paramList.add(new FhirParameter("name", "definition", definition));
+        }
+        paramList.add(new FhirParameter("name", "version", version));
+        for (Designation designation : designations) {
+            if (designation.hasLanguage(displayLanguage)) {
+                paramList.add(toDesignationParameter(designation));
+            }
+        }
+
+        parameters.setParameter(paramList);
+        return parameters;
+    }
 
-                logger.info("Successfully looked up ICD entity: {}", entityId);
-                return parameters;
+    private static FhirParameter toDesignationParameter(Designation designation) {
+        List<FhirParameter> parts = new ArrayList<>();
+        if (designation.language() != null) {
+            FhirParameter language = new FhirParameter();
+            language.setName("language");
+            language.setValueCode(designation.language());
+            parts.add(language);
+        }
+        if (designation.use() != null) {
+            FhirConcept useCoding = new FhirConcept();
+            useCoding.setCode(designation.use());
+            FhirParameter use = new FhirParameter();
+            use.setName("use");
+            use.setValueCoding(useCoding);
+            parts.add(use);
+        }
+        parts.add(new FhirParameter("name", "value", designation.value()));
+
+        FhirParameter parameter = new FhirParameter();
+        parameter.setName("designation");
+        parameter.setPart(parts);
+        return parameter;
+    }
+
+    private FhirParameters lookupIcdCode(String entityId) {
+        if (icdMissCache.isUnknownEntity(entityId)) {
+            return null;
+        }
+        try {
+            var icdEntity = icdSyncService.resolveEntity(entityId);
+            if (icdEntity != null) {
+                return toIcdLookupParameters(entityId, icdEntity);
             }
         } catch (Exception e) {
             logger.error("Error looking up ICD entity: {}", entityId, e);
@@ -162,4 +1186,35 @@ public class TerminologyService {
 
         return null;
     }
+
+    private FhirParameters toIcdLookupParameters(String entityId, JsonNode icdEntity) {
+        FhirParameters parameters = new FhirParameters();
+        parameters.setResourceType("Parameters");
+
+        List<FhirParameter> paramList = new ArrayList<>();
+
+        String display = icdEntity.get("title") != null ? icdEntity.get("title").asText() : "";
+        paramList.add(new FhirParameter("name", "display", display));
+
+        String definition = icdEntity.get("definition") != null ? icdEntity.get("definition").asText() : "";
+        if (!definition.isEmpty()) {
+            paramList.add(new FhirParameter("name", "definition", definition));
+        }
+
+        // Hierarchy links are entity URIs; the trailing id is what $lookup accepts as code
+        for (String property : List.of("parent", "child")) {
+            JsonNode links = icdEntity.get(property);
+            if (links != null && links.isArray()) {
+                for (JsonNode link : links) {
+                    String uri = link.asText();
+                    paramList.add(toPropertyParameter(property, uri.substring(uri.lastIndexOf('/') + 1)));
+                }
+            }
+        }
+
+        parameters.setParameter(paramList);
+
+        logger.info("Successfully looked up ICD entity: {}", entityId);
+        return parameters;
+    }
 }
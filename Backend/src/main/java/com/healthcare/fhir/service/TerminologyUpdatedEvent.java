@@ -0,0 +1,31 @@
+// TerminologyUpdatedEvent.java
+package com.healthcare.fhir.service;
+
+/**
+ * Published by UploadService after an import changed terminology content.
+ * Listeners rebuild their in-memory views once the import transaction commits.
+ */
+public class TerminologyUpdatedEvent {
+
+    public enum Scope {
+        CODE_SYSTEMS,
+        CONCEPT_MAPS
+    }
+
+    private final Scope scope;
+    private final int processed;
+
+    public TerminologyUpdatedEvent(Scope scope, int processed) {
+        this.scope = scope;
+        this.processed = processed;
+    }
+
+    public Scope getScope() { return scope; }
+
+    public int getProcessed() { return processed; }
+
+    @Override
+    public String toString() {
+        return "TerminologyUpdatedEvent{scope=" + scope + ", processed=" + processed + '}';
+    }
+}
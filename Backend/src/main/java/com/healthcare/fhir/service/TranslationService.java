@@ -5,41 +5,391 @@ package com.healthcare.fhir.service;
 import com.healthcare.fhir.dto.*;
 import com.healthcare.fhir.entity.ConceptMapEntry;
 import com.healthcare.fhir.entity.Equivalence;
+import com.healthcare.fhir.entity.IcdCandidate;
+import com.healthcare.fhir.index.CodeSystemSnapshot;
+import com.healthcare.fhir.index.ConceptMapIndex;
+import com.healthcare.fhir.index.ConceptMapping;
+import com.healthcare.fhir.index.MappedTerminology;
+import com.healthcare.fhir.index.TransitiveMappings;
+import com.healthcare.fhir.repository.CodeSystemEntryRepository;
 import com.healthcare.fhir.repository.ConceptMapEntryRepository;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.healthcare.fhir.repository.IcdCandidateRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class TranslationService {
 
     private static final Logger logger = LoggerFactory.getLogger(TranslationService.class);
 
+    private static final String ICD_SYSTEM_URI = "http://id.who.int/icd/release/11/mms";
+
     @Autowired
     private ConceptMapEntryRepository conceptMapRepository;
 
     @Autowired
-    private IcdSyncService icdSyncService;
+    private IcdCandidateRepository icdCandidateRepository;
 
-    public FhirParameters translateConcept(TranslateRequest request) {
-        FhirParameters parameters = new FhirParameters();
-        parameters.setResourceType("Parameters");
+    @Autowired
+    private CodeSystemEntryRepository codeSystemRepository;
 
-        List<FhirParameter> paramList = new ArrayList<>();
+    @Autowired
+    private CodeSystemIndexService codeSystemIndexService;
+
+    @Autowired
+    private IcdSimilarityService icdSimilarityService;
+
+    @Autowired
+    private ConceptMapIndexService conceptMapIndexService;
+
+    @Autowired
+    private SnapshotFileService snapshotFileService;
+
+    @Autowired
+    private KnownCodeFilter knownCodeFilter;
+
+    @Autowired
+    private IcdMissCache icdMissCache;
+
+    @Autowired
+    private TerminologyService terminologyService;
+
+    @Value("${terminology.batch.max-size:100}")
+    private int batchMaxSize;
 
+    @Value("${terminology.batch.icd-deadline-ms:2000}")
+    private long batchIcdDeadlineMs;
+
+    @Value("${terminology.translate.icd-timeout-ms:800}")
+    private long icdTimeoutMs;
+
+    /**
+     * Local concept maps first; unmapped codes targeting ICD-11 get the candidates precomputed by
+     * IcdCandidatePrecomputeService, then local similarity candidates from IcdSimilarityService, and only then
+     * live search candidates if the WHO API answers within terminology.translate.icd-timeout-ms. When it does not, or its circuit is open,
+     * the local result is returned with candidatesPending set; a search still running caches its hits for a retry.
+     */
+    public FhirParameters translateConcept(TranslateRequest request) {
         // First try exact match from local concept maps
-        List<ConceptMapEntry> exactMatches = conceptMapRepository.findBySourceSystemAndSourceCode(
-                request.getSystem(), request.getCode());
+        List<FhirParameterMatch> matches = findLocalMatches(request.getSystem(), request.getCode(),
+                request.getTargetSystem(), request.isReverse(), request.isTransitive());
+        boolean found = !matches.isEmpty();
 
-        boolean found = false;
-        List<FhirParameterMatch> matches = new ArrayList<>();
+        // If no exact matches and target is ICD, try ICD search
+        boolean pending = false;
+        if (!found && !request.isReverse() && wantsIcd(request.getTargetSystem())) {
+            List<FhirParameterMatch> candidates = toStoredMatches(icdCandidateRepository
+                    .findBySourceSystemAndSourceCodeOrderByCandidateRankAsc(request.getSystem(), request.getCode()));
+            if (candidates.isEmpty()) {
+                candidates = toSimilarMatches(icdSimilarityService.findCandidates(sourceText(request.getSystem(), request.getCode())));
+            }
+            if (candidates.isEmpty()) {
+                candidates = findIcdCandidates(request.getCode());
+            }
+            if (candidates != null) {
+                matches.addAll(candidates);
+            } else {
+                pending = true;
+            }
+        }
+
+        logger.info("Translation request processed - system: {}, code: {}, reverse: {}, transitive: {}, found: {}, matches: {}, candidates pending: {}",
+                request.getSystem(), request.getCode(), request.isReverse(), request.isTransitive(), found, matches.size(), pending);
+
+        return toParameters(found, matches, pending);
+    }
+
+    /**
+     * Batch $translate. Local mappings for every coding are read at once (in-memory index, mapped
+     * snapshot file, or one IN query); codings without a mapping search ICD-11 concurrently under a shared deadline.
+     * Results are in input order with a per-item status and duration. Reverse translations never search ICD-11.
+     * Items whose search was skipped (503) or ran out of time (504) are marked candidatesPending.
+     */
+    public List<TerminologyService.BatchResult> translateConcepts(List<FhirConcept> codings, String targetSystem,
+                                                                  boolean reverse, boolean transitive) {
+        if (codings.size() > batchMaxSize) {
+            throw new IllegalArgumentException("At most " + batchMaxSize + " codings are accepted per batch");
+        }
+        TerminologyService.BatchResult[] results = new TerminologyService.BatchResult[codings.size()];
+
+        long start = System.nanoTime();
+        ConceptMapIndex index = conceptMapIndexService.getIndex(reverse, transitive);
+        Map<String, List<ConceptMapEntry>> local = index != null ? Map.of() : findLocalMappings(codings, reverse, transitive);
+        double localMs = elapsedMs(start);
+
+        List<Integer> unmapped = new ArrayList<>();
+        for (int i = 0; i < codings.size(); i++) {
+            FhirConcept coding = codings.get(i);
+            if (coding.getSystem() == null || coding.getCode() == null) {
+                results[i] = new TerminologyService.BatchResult(null, "400", localMs);
+                continue;
+            }
+            List<FhirParameterMatch> matches = index != null
+                    ? toMatches(index, coding.getSystem(), coding.getCode(), targetSystem)
+                    : toMatches(local.getOrDefault(key(coding.getSystem(), coding.getCode()), List.of()), targetSystem);
+            if (!matches.isEmpty()) {
+                results[i] = new TerminologyService.BatchResult(toParameters(true, matches), "200", localMs);
+            } else if (!reverse && wantsIcd(targetSystem) && !icdMissCache.isEmptySearch(coding.getCode())) {
+                unmapped.add(i);
+            } else {
+                results[i] = new TerminologyService.BatchResult(toParameters(false, matches), "200", localMs);
+            }
+        }
+
+        unmapped = useStoredCandidates(codings, unmapped, results, localMs);
+        unmapped = useSimilarCandidates(codings, unmapped, results, localMs);
+        searchIcdCandidates(codings, unmapped, results, localMs);
+
+        logger.info("Batch translation processed - {} codings, {} searched in ICD", codings.size(), unmapped.size());
+        return Arrays.asList(results);
+    }
+
+    // Fills in precomputed candidates with one query and returns the codings still needing a live search
+    private List<Integer> useStoredCandidates(List<FhirConcept> codings, List<Integer> unmapped,
+                                              TerminologyService.BatchResult[] results, double localMs) {
+        if (unmapped.isEmpty()) {
+            return unmapped;
+        }
+        long start = System.nanoTime();
+        Set<String> systems = new HashSet<>();
+        Set<String> codes = new HashSet<>();
+        for (int i : unmapped) {
+            systems.add(codings.get(i).getSystem());
+            codes.add(codings.get(i).getCode());
+        }
+        Map<String, List<IcdCandidate>> stored = new HashMap<>();
+        for (IcdCandidate candidate : icdCandidateRepository.findBySourceSystemInAndSourceCodeInOrderByCandidateRankAsc(systems, codes)) {
+            stored.computeIfAbsent(key(candidate.getSourceSystem(), candidate.getSourceCode()), k -> new ArrayList<>())
+                    .add(candidate);
+        }
+
+        List<Integer> remaining = new ArrayList<>();
+        for (int i : unmapped) {
+            List<IcdCandidate> candidates = stored.get(key(codings.get(i).getSystem(), codings.get(i).getCode()));
+            if (candidates != null) {
+                results[i] = new TerminologyService.BatchResult(toParameters(false, toStoredMatches(candidates)),
+                        "200", localMs + elapsedMs(start));
+            } else {
+                remaining.add(i);
+            }
+        }
+        return remaining;
+    }
+
+    // Fills in local similarity candidates and returns the codings still needing a live search
+    private List<Integer> useSimilarCandidates(List<FhirConcept> codings, List<Integer> unmapped,
+                                               TerminologyService.BatchResult[] results, double localMs) {
+        if (unmapped.isEmpty() || !icdSimilarityService.isAvailable()) {
+            return unmapped;
+        }
+        long start = System.nanoTime();
+        Map<String, String> texts = sourceTexts(unmapped.stream().map(codings::get).toList());
+
+        List<Integer> remaining = new ArrayList<>();
+        for (int i : unmapped) {
+            List<FhirParameterMatch> candidates = toSimilarMatches(icdSimilarityService.findCandidates(
+                    texts.get(key(codings.get(i).getSystem(), codings.get(i).getCode()))));
+            if (!candidates.isEmpty()) {
+                results[i] = new TerminologyService.BatchResult(toParameters(false, candidates), "200", localMs + elapsedMs(start));
+            } else {
+                remaining.add(i);
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Display and definition of a source concept, the text matched against ICD-11 titles, or null when it is not stored.
+     */
+    private String sourceText(String system, String code) {
+        if (!icdSimilarityService.isAvailable()) {
+            return null;
+        }
+        CodeSystemSnapshot snapshot = codeSystemIndexService.getSnapshot();
+        if (snapshot != null) {
+            int ordinal = snapshot.getDictionary().find(system, code);
+            return ordinal >= 0 ? joinText(snapshot.getConcepts().display(ordinal), snapshot.getConcepts().definition(ordinal)) : null;
+        }
+        return codeSystemRepository.findBySystemUriAndCode(system, code)
+                .map(entry -> joinText(entry.getDisplay(), entry.getDefinition()))
+                .orElse(null);
+    }
 
-        for (ConceptMapEntry entry : exactMatches) {
-            if (request.getTargetSystem() == null || entry.getTargetSystem().equals(request.getTargetSystem())) {
+    // Source texts keyed by system and code, from the code system index or one IN query
+    private Map<String, String> sourceTexts(List<FhirConcept> codings) {
+        Map<String, String> texts = new HashMap<>();
+        CodeSystemSnapshot snapshot = codeSystemIndexService.getSnapshot();
+        if (snapshot != null) {
+            for (FhirConcept coding : codings) {
+                int ordinal = snapshot.getDictionary().find(coding.getSystem(), coding.getCode());
+                if (ordinal >= 0) {
+                    texts.put(key(coding.getSystem(), coding.getCode()),
+                            joinText(snapshot.getConcepts().display(ordinal), snapshot.getConcepts().definition(ordinal)));
+                }
+            }
+            return texts;
+        }
+        Set<String> systems = new HashSet<>();
+        Set<String> codes = new HashSet<>();
+        for (FhirConcept coding : codings) {
+            systems.add(coding.getSystem());
+            codes.add(coding.getCode());
+        }
+        codeSystemRepository.findBySystemUriInAndCodeIn(systems, codes).forEach(entry ->
+                texts.put(key(entry.getSystemUri(), entry.getCode()), joinText(entry.getDisplay(), entry.getDefinition())));
+        return texts;
+    }
+
+    private static String joinText(String display, String definition) {
+        if (definition == null || definition.isBlank()) {
+            return display;
+        }
+        return display != null ? display + " " + definition : definition;
+    }
+
+    private void searchIcdCandidates(List<FhirConcept> codings, List<Integer> unmapped,
+                                     TerminologyService.BatchResult[] results, double localMs) {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(batchIcdDeadlineMs);
+        Map<Integer, CompletableFuture<List<FhirValueSetContains>>> pending = new LinkedHashMap<>();
+
+        for (int i : unmapped) {
+            CompletableFuture<List<FhirValueSetContains>> search = terminologyService.searchIcd(codings.get(i).getCode());
+            if (search != null) {
+                pending.put(i, search);
+            } else {
+                // ICD circuit open or too many ICD API calls in flight
+                results[i] = new TerminologyService.BatchResult(toParameters(false, new ArrayList<>(), true), "503", localMs);
+            }
+        }
+
+        for (Map.Entry<Integer, CompletableFuture<List<FhirValueSetContains>>> item : pending.entrySet()) {
+            try {
+                List<FhirValueSetContains> hits = item.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                results[item.getKey()] = new TerminologyService.BatchResult(toParameters(false, toCandidateMatches(hits)),
+                        "200", localMs + elapsedMs(start));
+            } catch (TimeoutException e) {
+                // Unmapped, and the candidate search did not finish in time
+                results[item.getKey()] = new TerminologyService.BatchResult(toParameters(false, new ArrayList<>(), true),
+                        "504", localMs + elapsedMs(start));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results[item.getKey()] = new TerminologyService.BatchResult(toParameters(false, new ArrayList<>(), true),
+                        "504", localMs + elapsedMs(start));
+            } catch (ExecutionException e) {
+                logger.error("Error finding ICD candidates for code: {}", codings.get(item.getKey()).getCode(), e.getCause());
+                results[item.getKey()] = new TerminologyService.BatchResult(toParameters(false, new ArrayList<>()),
+                        "500", localMs + elapsedMs(start));
+            }
+        }
+    }
+
+    // Mappings of every coding keyed by system|code: from the mapped file, or else with one query
+    private Map<String, List<ConceptMapEntry>> findLocalMappings(List<FhirConcept> codings, boolean reverse,
+                                                                 boolean transitive) {
+        if (transitive) {
+            Map<String, List<ConceptMapEntry>> mappings = new HashMap<>();
+            for (FhirConcept coding : codings) {
+                if (coding.getSystem() != null && coding.getCode() != null) {
+                    mappings.put(key(coding.getSystem(), coding.getCode()),
+                            findTransitiveMappings(coding.getSystem(), coding.getCode(), reverse));
+                }
+            }
+            return mappings;
+        }
+        if (reverse) {
+            return findReverseMappings(codings);
+        }
+        Map<String, List<ConceptMapEntry>> mappings = new HashMap<>();
+        if (snapshotFileService.getMapped() != null) {
+            for (FhirConcept coding : codings) {
+                if (coding.getSystem() != null && coding.getCode() != null) {
+                    mappings.put(key(coding.getSystem(), coding.getCode()),
+                            findLocalMappings(coding.getSystem(), coding.getCode(), false));
+                }
+            }
+            return mappings;
+        }
+
+        Set<String> systems = new HashSet<>();
+        Set<String> codes = new HashSet<>();
+        for (FhirConcept coding : codings) {
+            if (knownCodeFilter.mightHaveMappings(coding.getSystem(), coding.getCode())) {
+                systems.add(coding.getSystem());
+                codes.add(coding.getCode());
+            }
+        }
+        if (codes.isEmpty()) {
+            return mappings;
+        }
+        // The IN lists cross systems and codes, so rows for other pairs are simply never looked up
+        for (ConceptMapEntry entry : conceptMapRepository.findBySourceSystemInAndSourceCodeIn(systems, codes)) {
+            mappings.computeIfAbsent(key(entry.getSourceSystem(), entry.getSourceCode()), k -> new ArrayList<>()).add(entry);
+        }
+        return mappings;
+    }
+
+    // The snapshot file and Bloom filters cover source concepts only, so reverse lookups always query
+    private Map<String, List<ConceptMapEntry>> findReverseMappings(List<FhirConcept> codings) {
+        Map<String, List<ConceptMapEntry>> mappings = new HashMap<>();
+        Set<String> systems = new HashSet<>();
+        Set<String> codes = new HashSet<>();
+        for (FhirConcept coding : codings) {
+            if (coding.getSystem() != null && coding.getCode() != null) {
+                systems.add(coding.getSystem());
+                codes.add(coding.getCode());
+            }
+        }
+        if (codes.isEmpty()) {
+            return mappings;
+        }
+        for (ConceptMapEntry entry : conceptMapRepository.findByTargetSystemInAndTargetCodeOrUriIn(systems, codes)) {
+            mappings.computeIfAbsent(key(entry.getTargetSystem(), entry.getTargetCodeOrUri()), k -> new ArrayList<>())
+                    .add(reversed(entry));
+        }
+        return mappings;
+    }
+
+    // Detached copy of an entry read from target to source, with the equivalence inverted
+    private static ConceptMapEntry reversed(ConceptMapEntry entry) {
+        ConceptMapEntry reversed = new ConceptMapEntry();
+        reversed.setSourceSystem(entry.getTargetSystem());
+        reversed.setSourceCode(entry.getTargetCodeOrUri());
+        reversed.setTargetSystem(entry.getSourceSystem());
+        reversed.setTargetCodeOrUri(entry.getSourceCode());
+        reversed.setEquivalence(entry.getEquivalence().inverse());
+        reversed.setComment(entry.getComment());
+        return reversed;
+    }
+
+    private static String key(String system, String code) {
+        return system + "|" + code;
+    }
+
+    private static boolean wantsIcd(String targetSystem) {
+        return targetSystem == null || targetSystem.contains("who.int/icd");
+    }
+
+    private static List<FhirParameterMatch> toMatches(List<ConceptMapEntry> entries, String targetSystem) {
+        List<FhirParameterMatch> matches = new ArrayList<>();
+        for (ConceptMapEntry entry : entries) {
+            if (targetSystem == null || entry.getTargetSystem().equals(targetSystem)) {
                 FhirParameterMatch match = new FhirParameterMatch();
                 match.setEquivalence(entry.getEquivalence().name().toLowerCase());
 
@@ -53,15 +403,50 @@ public class TranslationService {
                 }
 
                 matches.add(match);
-                found = true;
             }
         }
+        return matches;
+    }
 
-        // If no exact matches and target is ICD, try ICD search
-        if (!found && (request.getTargetSystem() == null || request.getTargetSystem().contains("who.int/icd"))) {
-            matches.addAll(findIcdCandidates(request));
+    // Reads the edge slice of the source concept straight from the index arrays
+    private static List<FhirParameterMatch> toMatches(ConceptMapIndex index, String system, String code,
+                                                      String targetSystem) {
+        List<FhirParameterMatch> matches = new ArrayList<>();
+        int source = index.find(system, code);
+        if (source < 0) {
+            return matches;
         }
+        int target = targetSystem != null ? index.targetSystemId(targetSystem) : -1;
+        if (targetSystem != null && target < 0) {
+            return matches;
+        }
+        for (int edge = index.edgeStart(source); edge < index.edgeEnd(source); edge++) {
+            if (targetSystem != null && index.targetSystemIdOf(edge) != target) {
+                continue;
+            }
+            FhirParameterMatch match = new FhirParameterMatch();
+            match.setEquivalence(index.equivalence(edge).toLowerCase());
+
+            FhirConcept concept = new FhirConcept();
+            concept.setSystem(index.targetSystem(edge));
+            concept.setCode(index.targetCode(edge));
+            match.setConcept(concept);
+            match.setComment(index.comment(edge));
 
+            matches.add(match);
+        }
+        return matches;
+    }
+
+    private FhirParameters toParameters(boolean found, List<FhirParameterMatch> matches) {
+        return toParameters(found, matches, false);
+    }
+
+    private FhirParameters toParameters(boolean found, List<FhirParameterMatch> matches, boolean candidatesPending) {
+        FhirParameters parameters = new FhirParameters();
+        parameters.setResourceType("Parameters");
+
+        List<FhirParameter> paramList = new ArrayList<>();
         paramList.add(new FhirParameter("name", "result", found ? "true" : "false"));
 
         if (!matches.isEmpty()) {
@@ -71,40 +456,174 @@ public class TranslationService {
             paramList.add(matchParam);
         }
 
+        if (candidatesPending) {
+            paramList.add(new FhirParameter("name", "message", "ICD-11 candidate search is pending; retry later"));
+            paramList.add(new FhirParameter("name", "candidatesPending", "true"));
+        }
+
         parameters.setParameter(paramList);
+        return parameters;
+    }
 
-        logger.info("Translation request processed - system: {}, code: {}, found: {}, matches: {}",
-                request.getSystem(), request.getCode(), found, matches.size());
+    private static double elapsedMs(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000.0;
+    }
 
-        return parameters;
+    /**
+     * Local matches of a code: from the in-memory concept map index when it is built,
+     * otherwise from the snapshot file or the database. In reverse the code is a map target;
+     * transitive matches include paths of up to terminology.translate.max-hops edges.
+     */
+    private List<FhirParameterMatch> findLocalMatches(String system, String code, String targetSystem,
+                                                      boolean reverse, boolean transitive) {
+        ConceptMapIndex index = conceptMapIndexService.getIndex(reverse, transitive);
+        if (index != null) {
+            return toMatches(index, system, code, targetSystem);
+        }
+        if (transitive) {
+            return toMatches(findTransitiveMappings(system, code, reverse), targetSystem);
+        }
+        return toMatches(findLocalMappings(system, code, reverse), targetSystem);
     }
 
-    private List<FhirParameterMatch> findIcdCandidates(TranslateRequest request) {
-        List<FhirParameterMatch> candidates = new ArrayList<>();
+    // Without the materialised paths, walk the concept map graph one lookup per concept reached
+    private List<ConceptMapEntry> findTransitiveMappings(String system, String code, boolean reverse) {
+        TransitiveMappings.Edges edges = (edgeSystem, edgeCode) -> {
+            List<ConceptMapping> mappings = new ArrayList<>();
+            for (ConceptMapEntry entry : findLocalMappings(edgeSystem, edgeCode, reverse)) {
+                mappings.add(new ConceptMapping(entry.getSourceSystem(), entry.getSourceCode(), entry.getTargetSystem(),
+                        entry.getTargetCodeOrUri(), entry.getEquivalence().name(), entry.getComment()));
+            }
+            return mappings;
+        };
+        List<ConceptMapEntry> entries = new ArrayList<>();
+        for (ConceptMapping mapping : TransitiveMappings.expand(system, code, edges,
+                conceptMapIndexService.getMaxHops(), ConceptMapIndexService::compose)) {
+            entries.add(toEntry(mapping));
+        }
+        return entries;
+    }
 
-        try {
-            // Search ICD for potential matches using the source code as search term
-            List<JsonNode> searchResults = icdSyncService.searchEntities(request.getCode());
+    /**
+     * Reads the concept map edges of a source code from the mapped snapshot file when one is
+     * available (it is rewritten after every concept map import), otherwise from the database
+     * unless the Bloom filter rules the source code out. Reverse lookups use the target index in Postgres.
+     */
+    private List<ConceptMapEntry> findLocalMappings(String system, String code, boolean reverse) {
+        if (reverse) {
+            List<ConceptMapEntry> entries = new ArrayList<>();
+            for (ConceptMapEntry entry : conceptMapRepository.findByTargetSystemAndTargetCodeOrUri(system, code)) {
+                entries.add(reversed(entry));
+            }
+            return entries;
+        }
+        MappedTerminology mapped = snapshotFileService.getMapped();
+        if (mapped == null) {
+            if (!knownCodeFilter.mightHaveMappings(system, code)) {
+                return new ArrayList<>();
+            }
+            return conceptMapRepository.findBySourceSystemAndSourceCode(system, code);
+        }
 
-            for (JsonNode result : searchResults.stream().limit(5).toList()) {
-                FhirParameterMatch match = new FhirParameterMatch();
-                match.setEquivalence("relatedto"); // Mark as related, requiring review
+        List<ConceptMapEntry> entries = new ArrayList<>();
+        for (ConceptMapping mapping : mapped.mappings(system, code)) {
+            entries.add(toEntry(mapping));
+        }
+        return entries;
+    }
 
-                FhirConcept concept = new FhirConcept();
-                concept.setSystem("http://id.who.int/icd/release/11/mms");
-                concept.setCode(result.get("theCode") != null ? result.get("theCode").asText() : "");
-                concept.setDisplay(result.get("title") != null ? result.get("title").asText() : "");
-                match.setConcept(concept);
+    // Detached entry for a mapping read from the snapshot file or derived from a path
+    private static ConceptMapEntry toEntry(ConceptMapping mapping) {
+        ConceptMapEntry entry = new ConceptMapEntry();
+        entry.setSourceSystem(mapping.sourceSystem());
+        entry.setSourceCode(mapping.sourceCode());
+        entry.setTargetSystem(mapping.targetSystem());
+        entry.setTargetCodeOrUri(mapping.targetCode());
+        entry.setEquivalence(Equivalence.valueOf(mapping.equivalence()));
+        entry.setComment(mapping.comment());
+        return entry;
+    }
 
-                match.setComment("Candidate match from ICD search - requires review");
-                candidates.add(match);
-            }
+    /**
+     * ICD-11 search candidates for a code, or null when the search was skipped (circuit open,
+     * too many ICD API calls in flight), failed, or did not finish within the per-call timeout.
+     */
+    private List<FhirParameterMatch> findIcdCandidates(String code) {
+        if (icdMissCache.isEmptySearch(code)) {
+            return new ArrayList<>();
+        }
+        CompletableFuture<List<FhirValueSetContains>> search = terminologyService.searchIcd(code);
+        if (search == null) {
+            return null;
+        }
 
-            logger.info("Found {} ICD candidate matches for code: {}", candidates.size(), request.getCode());
-        } catch (Exception e) {
-            logger.error("Error finding ICD candidates for code: {}", request.getCode(), e);
+        try {
+            List<FhirParameterMatch> candidates = toCandidateMatches(search.get(icdTimeoutMs, TimeUnit.MILLISECONDS));
+            logger.info("Found {} ICD candidate matches for code: {}", candidates.size(), code);
+            return candidates;
+        } catch (TimeoutException e) {
+            logger.info("ICD search for code {} exceeded {} ms; candidates will be cached when they arrive", code, icdTimeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("Error finding ICD candidates for code: {}", code, e.getCause());
         }
+        return null;
+    }
 
+    private static List<FhirParameterMatch> toStoredMatches(List<IcdCandidate> stored) {
+        List<FhirParameterMatch> candidates = new ArrayList<>();
+        for (IcdCandidate candidate : stored) {
+            FhirParameterMatch match = new FhirParameterMatch();
+            match.setEquivalence("relatedto"); // Mark as related, requiring review
+
+            FhirConcept concept = new FhirConcept();
+            concept.setSystem(ICD_SYSTEM_URI);
+            concept.setCode(candidate.getIcdCode());
+            concept.setDisplay(candidate.getTitle());
+            match.setConcept(concept);
+
+            match.setComment(candidate.getScore() != null
+                    ? String.format(Locale.ROOT, "Precomputed candidate from ICD search (score %.2f) - requires review", candidate.getScore())
+                    : "Precomputed candidate from ICD search - requires review");
+            candidates.add(match);
+        }
+        return candidates;
+    }
+
+    private static List<FhirParameterMatch> toSimilarMatches(List<IcdSimilarityService.Candidate> similar) {
+        List<FhirParameterMatch> candidates = new ArrayList<>();
+        for (IcdSimilarityService.Candidate candidate : similar) {
+            FhirParameterMatch match = new FhirParameterMatch();
+            match.setEquivalence("relatedto"); // Mark as related, requiring review
+
+            FhirConcept concept = new FhirConcept();
+            concept.setSystem(ICD_SYSTEM_URI);
+            concept.setCode(candidate.code());
+            concept.setDisplay(candidate.title());
+            match.setConcept(concept);
+
+            match.setComment(String.format(Locale.ROOT, "Candidate from local similarity (score %.2f) - requires review", candidate.score()));
+            candidates.add(match);
+        }
+        return candidates;
+    }
+
+    private static List<FhirParameterMatch> toCandidateMatches(List<FhirValueSetContains> hits) {
+        List<FhirParameterMatch> candidates = new ArrayList<>();
+        for (FhirValueSetContains hit : hits.stream().limit(5).toList()) {
+            FhirParameterMatch match = new FhirParameterMatch();
+            match.setEquivalence("relatedto"); // Mark as related, requiring review
+
+            FhirConcept concept = new FhirConcept();
+            concept.setSystem(hit.getSystem());
+            concept.setCode(hit.getCode());
+            concept.setDisplay(hit.getDisplay());
+            match.setConcept(concept);
+
+            match.setComment("Candidate match from ICD search - requires review");
+            candidates.add(match);
+        }
         return candidates;
     }
 
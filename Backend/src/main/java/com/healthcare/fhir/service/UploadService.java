@@ -5,18 +5,24 @@ package com.healthcare.fhir.service;
 import com.healthcare.fhir.dto.CodeCsvRow;
 import com.healthcare.fhir.dto.ConceptMapCsvRow;
 import com.healthcare.fhir.entity.CodeSystemEntry;
+import com.healthcare.fhir.entity.ConceptHierarchyEdge;
 import com.healthcare.fhir.entity.ConceptMapEntry;
 import com.healthcare.fhir.entity.Equivalence;
 import com.healthcare.fhir.repository.CodeSystemEntryRepository;
+import com.healthcare.fhir.repository.ConceptHierarchyEdgeRepository;
 import com.healthcare.fhir.repository.ConceptMapEntryRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 @Transactional
@@ -33,6 +39,15 @@ public class UploadService {
     @Autowired
     private ConceptMapEntryRepository conceptMapRepository;
 
+    @Autowired
+    private ConceptHierarchyEdgeRepository hierarchyEdgeRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private DesignationParser designationParser;
+
     public int upsertCodes(List<CodeCsvRow> rows) {
         int processed = 0;
 
@@ -52,9 +67,21 @@ public class UploadService {
 
                 entry.setDisplay(row.getDisplay());
                 entry.setDefinition(row.getDefinition());
+                // Files without the column keep the designations already stored
+                if (row.getDesignations() != null && !row.getDesignations().isBlank()) {
+                    if (designationParser.isReadable(row.getDesignations())) {
+                        entry.setDesignations(row.getDesignations());
+                    } else {
+                        logger.warn("Skipping malformed designations for code {}", row.getCode());
+                    }
+                }
                 entry.setVersion(namasteVersion);
 
                 codeSystemRepository.save(entry);
+                // Files without the column keep the hierarchy already stored
+                if (row.getParent() != null) {
+                    replaceParents(row.getSystem(), row.getCode(), row.getParent());
+                }
                 processed++;
 
             } catch (Exception e) {
@@ -63,9 +90,40 @@ public class UploadService {
         }
 
         logger.info("Processed {} out of {} code entries", processed, rows.size());
+
+        // Delivered after commit so in-memory indexes never see uncommitted rows
+        if (processed > 0) {
+            eventPublisher.publishEvent(new TerminologyUpdatedEvent(TerminologyUpdatedEvent.Scope.CODE_SYSTEMS, processed));
+        }
         return processed;
     }
 
+    private void replaceParents(String system, String code, String parentColumn) {
+        Set<String> parents = new LinkedHashSet<>();
+        for (String parent : parentColumn.split("\\|")) {
+            if (!parent.isBlank() && !parent.trim().equals(code)) {
+                parents.add(parent.trim());
+            }
+        }
+
+        // Edges that stay are left alone, so the unique index never sees a delete and re-insert
+        List<ConceptHierarchyEdge> removed = new ArrayList<>();
+        for (ConceptHierarchyEdge edge : hierarchyEdgeRepository.findBySystemUriAndChildCode(system, code)) {
+            if (!parents.remove(edge.getParentCode())) {
+                removed.add(edge);
+            }
+        }
+        hierarchyEdgeRepository.deleteAll(removed);
+
+        for (String parent : parents) {
+            ConceptHierarchyEdge edge = new ConceptHierarchyEdge();
+            edge.setSystemUri(system);
+            edge.setParentCode(parent);
+            edge.setChildCode(code);
+            hierarchyEdgeRepository.save(edge);
+        }
+    }
+
     public int upsertConceptMaps(List<ConceptMapCsvRow> rows) {
         int processed = 0;
 
@@ -99,6 +157,10 @@ public class UploadService {
         }
 
         logger.info("Processed {} out of {} concept map entries", processed, rows.size());
+
+        if (processed > 0) {
+            eventPublisher.publishEvent(new TerminologyUpdatedEvent(TerminologyUpdatedEvent.Scope.CONCEPT_MAPS, processed));
+        }
         return processed;
     }
 
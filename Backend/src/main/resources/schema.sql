@@ -0,0 +1,47 @@
+-- Runs after Hibernate has created/updated the tables (spring.jpa.defer-datasource-initialization)
+
+-- Database search mode (terminology.search.mode=database): full-text vector plus trigram indexes
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+ALTER TABLE code_system_entries
+    ADD COLUMN IF NOT EXISTS search_vector tsvector
+        GENERATED ALWAYS AS (to_tsvector('simple', coalesce(code, '') || ' ' || coalesce(display, ''))) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_code_system_entries_search_vector
+    ON code_system_entries USING GIN (search_vector);
+
+CREATE INDEX IF NOT EXISTS idx_code_system_entries_code_trgm
+    ON code_system_entries USING GIN (lower(code) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS idx_code_system_entries_display_trgm
+    ON code_system_entries USING GIN (lower(display) gin_trgm_ops);
+
+-- Keyset pagination for $expand continuation tokens
+CREATE INDEX IF NOT EXISTS idx_code_system_entries_keyset
+    ON code_system_entries (system_uri, code, id);
+
+-- Per-system pruning: the keyset index above leads with system_uri, so url-scoped $expand and
+-- $lookup touch one system's rows only. btree_gin lets the database search mode do the same.
+CREATE EXTENSION IF NOT EXISTS btree_gin;
+
+CREATE INDEX IF NOT EXISTS idx_code_system_entries_system_search_vector
+    ON code_system_entries USING GIN (system_uri, search_vector);
+
+CREATE INDEX IF NOT EXISTS idx_code_system_entries_system_display_trgm
+    ON code_system_entries USING GIN (system_uri, lower(display) gin_trgm_ops);
+
+-- Forward $translate and the unmapped-concept walk of the ICD candidate precompute job
+CREATE INDEX IF NOT EXISTS idx_concept_map_entries_source
+    ON concept_map_entries (source_system, source_code);
+
+-- Reverse $translate: concept map entries by target concept
+CREATE INDEX IF NOT EXISTS idx_concept_map_entries_target
+    ON concept_map_entries (target_system, target_code_or_uri);
+
+-- Hierarchy edges: one row per (child, parent) pair; the closure itself is computed in memory
+CREATE UNIQUE INDEX IF NOT EXISTS idx_concept_hierarchy_edges_child
+    ON concept_hierarchy_edges (system_uri, child_code, parent_code);
+
+-- Precomputed ICD-11 candidates, read by source concept
+CREATE INDEX IF NOT EXISTS idx_icd_candidates_source
+    ON icd_candidates (source_system, source_code, candidate_rank);
@@ -0,0 +1,67 @@
+// EquivalenceTest.java
+package com.healthcare.fhir.entity;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class EquivalenceTest {
+
+    @Test
+    void inverseSwapsDirectionAndIsAnInvolution() {
+        assertEquals(Equivalence.NARROWER, Equivalence.WIDER.inverse());
+        assertEquals(Equivalence.SPECIALIZES, Equivalence.SUBSUMES.inverse());
+        assertEquals(Equivalence.EQUIVALENT, Equivalence.EQUIVALENT.inverse());
+        for (Equivalence equivalence : Equivalence.values()) {
+            assertEquals(equivalence, equivalence.inverse().inverse());
+        }
+    }
+
+    @Test
+    void unmatchedAndDisjointNeverChain() {
+        for (Equivalence equivalence : Equivalence.values()) {
+            assertNull(Equivalence.UNMATCHED.compose(equivalence));
+            assertNull(equivalence.compose(Equivalence.DISJOINT));
+        }
+    }
+
+    @Test
+    void equalAndEquivalentAreIdentities() {
+        for (Equivalence equivalence : Equivalence.values()) {
+            if (equivalence == Equivalence.UNMATCHED || equivalence == Equivalence.DISJOINT) {
+                continue;
+            }
+            assertEquals(equivalence, Equivalence.EQUAL.compose(equivalence));
+            assertEquals(equivalence, equivalence.compose(Equivalence.EQUAL));
+            if (equivalence != Equivalence.EQUAL) {
+                assertEquals(equivalence, equivalence.compose(Equivalence.EQUIVALENT));
+            }
+        }
+        // Equal followed by merely equivalent is only equivalent
+        assertEquals(Equivalence.EQUIVALENT, Equivalence.EQUAL.compose(Equivalence.EQUIVALENT));
+    }
+
+    @Test
+    void directionsCombine() {
+        assertEquals(Equivalence.SUBSUMES, Equivalence.SUBSUMES.compose(Equivalence.SUBSUMES));
+        assertEquals(Equivalence.WIDER, Equivalence.WIDER.compose(Equivalence.SUBSUMES));
+        assertEquals(Equivalence.SPECIALIZES, Equivalence.SPECIALIZES.compose(Equivalence.SPECIALIZES));
+        assertEquals(Equivalence.NARROWER, Equivalence.SPECIALIZES.compose(Equivalence.NARROWER));
+        assertEquals(Equivalence.INEXACT, Equivalence.NARROWER.compose(Equivalence.WIDER));
+        assertEquals(Equivalence.INEXACT, Equivalence.INEXACT.compose(Equivalence.WIDER));
+        assertEquals(Equivalence.RELATEDTO, Equivalence.WIDER.compose(Equivalence.NARROWER));
+        assertEquals(Equivalence.RELATEDTO, Equivalence.RELATEDTO.compose(Equivalence.WIDER));
+    }
+
+    @Test
+    void pathReadBackwardsComposesToTheInverse() {
+        for (Equivalence first : Equivalence.values()) {
+            for (Equivalence second : Equivalence.values()) {
+                Equivalence forward = first.compose(second);
+                Equivalence backward = second.inverse().compose(first.inverse());
+                assertEquals(forward == null ? null : forward.inverse(), backward, first + " then " + second);
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+// BloomFilterTest.java
+package com.healthcare.fhir.index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    private static final String NAMASTE = "http://example.org/namaste|";
+
+    @Test
+    void addedValuesAreNeverReportedAbsent() {
+        BloomFilter filter = BloomFilter.create(50_000, 0.01);
+        for (int i = 0; i < 50_000; i++) {
+            filter.put(NAMASTE + "AAA-" + i);
+        }
+
+        for (int i = 0; i < 50_000; i++) {
+            assertTrue(filter.mightContain(NAMASTE + "AAA-" + i), "false negative for AAA-" + i);
+        }
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTheConfiguredRate() {
+        BloomFilter filter = BloomFilter.create(50_000, 0.01);
+        for (int i = 0; i < 50_000; i++) {
+            filter.put(NAMASTE + "AAA-" + i);
+        }
+
+        int falsePositives = 0;
+        int probes = 200_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain(NAMASTE + "ZZZ-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < probes * 0.02, "false positive rate " + (double) falsePositives / probes);
+    }
+
+    @Test
+    void emptyFilterContainsNothingAndIsSizedAtLeastOneWord() {
+        BloomFilter filter = BloomFilter.create(0, 0.01);
+
+        assertFalse(filter.mightContain(NAMASTE + "AAA-1"));
+        assertFalse(filter.mightContain(""));
+        assertEquals(64L, filter.bitCount());
+        assertTrue(filter.hashCount() >= 1);
+    }
+}
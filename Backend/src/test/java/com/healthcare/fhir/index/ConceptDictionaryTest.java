@@ -0,0 +1,59 @@
+// ConceptDictionaryTest.java
+package com.healthcare.fhir.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConceptDictionaryTest {
+
+    private static final String NAMASTE = "http://example.org/namaste";
+    private static final String ICD = "http://id.who.int/icd/release/11/mms";
+
+    @Test
+    void everyRowIsFoundUnderItsSystemAndCode() {
+        Random random = new Random(3);
+        ConceptTable.Builder builder = ConceptTable.builder();
+        for (int i = 0; i < 20_000; i++) {
+            builder.add(i, random.nextBoolean() ? NAMASTE : ICD, Integer.toString(random.nextInt(1 << 20), 36), "Term " + i);
+        }
+        ConceptTable table = builder.build();
+        ConceptDictionary dictionary = ConceptDictionary.build(table);
+
+        for (int ordinal = 0; ordinal < table.size(); ordinal++) {
+            int found = dictionary.find(table.system(ordinal), table.code(ordinal));
+            // Duplicate codes resolve to their first row, which shares system and code
+            assertEquals(table.system(ordinal), table.system(found));
+            assertEquals(table.code(ordinal), table.code(found));
+            assertTrue(found <= ordinal);
+        }
+    }
+
+    @Test
+    void duplicateCodesResolveToTheLowestId() {
+        ConceptTable table = ConceptTable.builder()
+                .add(9, NAMASTE, "A-1", "Jvara (later)")
+                .add(4, NAMASTE, "A-1", "Jvara")
+                .build();
+
+        assertEquals(4L, table.id(ConceptDictionary.build(table).find(NAMASTE, "A-1")));
+    }
+
+    @Test
+    void unknownCodesAndSystemsAreMisses() {
+        ConceptTable table = ConceptTable.builder()
+                .add(1, NAMASTE, "A-1", "Jvara")
+                .add(2, ICD, "1A00", "Cholera")
+                .build();
+        ConceptDictionary dictionary = ConceptDictionary.build(table);
+
+        assertEquals(-1, dictionary.find(NAMASTE, "1A00"));
+        assertEquals(-1, dictionary.find(NAMASTE, "a-1"));
+        assertEquals(-1, dictionary.find("http://example.org/unknown", "A-1"));
+        assertEquals(-1, dictionary.find(NAMASTE, null));
+        assertEquals(-1, ConceptDictionary.build(ConceptTable.builder().build()).find(NAMASTE, "A-1"));
+    }
+}
@@ -0,0 +1,73 @@
+// ConceptTableTest.java
+package com.healthcare.fhir.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ConceptTableTest {
+
+    private static final String NAMASTE = "http://example.org/namaste";
+    private static final String ICD = "http://id.who.int/icd/release/11/mms";
+
+    private static ConceptTable table() {
+        return ConceptTable.builder()
+                .add(6, NAMASTE, "B-2", "Kasa")
+                .add(2, ICD, "CA23", "Asthma")
+                .add(5, NAMASTE, "A-1", "Jvara")
+                .add(4, NAMASTE, "A-1", "Jvara (duplicate code)")
+                .add(1, ICD, "1A00", "Cholera")
+                .build();
+    }
+
+    @Test
+    void rowsAreOrderedBySystemCodeAndId() {
+        ConceptTable table = table();
+
+        String[] expected = {"A-1", "A-1", "B-2", "1A00", "CA23"};
+        long[] ids = {4, 5, 6, 1, 2};
+        for (int ordinal = 0; ordinal < table.size(); ordinal++) {
+            assertEquals(expected[ordinal], table.code(ordinal));
+            assertEquals(ids[ordinal], table.id(ordinal));
+        }
+        int namaste = table.systemId(NAMASTE);
+        assertEquals(0, table.systemStart(namaste));
+        assertEquals(3, table.systemEnd(namaste));
+        assertEquals(-1, table.systemId("http://example.org/unknown"));
+    }
+
+    @Test
+    void seekResumesStrictlyAfterEveryRow() {
+        ConceptTable table = table();
+        for (int ordinal = 0; ordinal < table.size(); ordinal++) {
+            assertEquals(ordinal + 1, table.seek(table.system(ordinal), table.code(ordinal), table.id(ordinal)));
+        }
+    }
+
+    @Test
+    void seekPositionsRemovedRowsBetweenTheirNeighbours() {
+        ConceptTable table = table();
+
+        // The row a token points at may be gone after a rebuild
+        assertEquals(4, table.seek(ICD, "1A01", 99));
+        assertEquals(1, table.seek(NAMASTE, "A-1", 4));
+        assertEquals(2, table.seek(NAMASTE, "A-1", 5));
+        assertEquals(2, table.seek(NAMASTE, "A-1", 4_000));
+        assertEquals(0, table.seek("", "", 0));
+        assertEquals(5, table.seek("zzz", "", 0));
+    }
+
+    @Test
+    void definitionsAreKeptPerRow() {
+        ConceptTable table = ConceptTable.builder()
+                .add(1, NAMASTE, "A", "Jvara", "Fever", "1.0", List.of())
+                .add(2, NAMASTE, "B", "Kasa")
+                .build();
+
+        assertEquals("Fever", table.definition(0));
+        assertNull(table.definition(1));
+    }
+}
@@ -0,0 +1,96 @@
+// FuzzyIndexTest.java
+package com.healthcare.fhir.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FuzzyIndexTest {
+
+    private static final String NAMASTE = "http://example.org/namaste";
+
+    @Test
+    void everyIndexedTermFindsItselfAtDistanceZero() {
+        Random random = new Random(11);
+        ConceptTable.Builder builder = ConceptTable.builder();
+        for (int i = 0; i < 5000; i++) {
+            builder.add(i, NAMASTE, "C" + i, randomWord(random) + " " + randomWord(random));
+        }
+        ConceptTable table = builder.build();
+        FuzzyIndex index = FuzzyIndex.build(table, 2);
+
+        for (int ordinal = 0; ordinal < table.size(); ordinal++) {
+            for (String word : table.display(ordinal).split(" ")) {
+                int[] matches = index.search(word, -1, 0);
+                assertTrue(contains(matches, ordinal), "no exact match for " + word);
+            }
+        }
+    }
+
+    @Test
+    void typosAndSpellingVariantsMatch() {
+        ConceptTable table = ConceptTable.builder()
+                .add(1, NAMASTE, "A", "Arsha roga")
+                .add(2, NAMASTE, "B", "Vata vyadhi")
+                .add(3, NAMASTE, "C", "Kasa")
+                .build();
+        FuzzyIndex index = FuzzyIndex.build(table, 2);
+
+        assertEquals(0, single(index.search("arsha", -1, 2)));
+        assertEquals(0, single(index.search("arsa roga", -1, 2)));
+        assertEquals(1, single(index.search("waata vyadi", -1, 2)));
+        assertEquals(1, single(index.search("vatta", -1, 2)));
+        // Short words tolerate no edits
+        assertEquals(0, index.search("kas", -1, 2).length);
+        assertEquals(0, index.search("arsha kasa", -1, 2).length);
+    }
+
+    @Test
+    void resultsAreOrderedByTotalDistance() {
+        ConceptTable table = ConceptTable.builder()
+                .add(1, NAMASTE, "A", "Jvaram")
+                .add(2, NAMASTE, "B", "Jvara")
+                .build();
+        FuzzyIndex index = FuzzyIndex.build(table, 2);
+
+        int[] matches = index.search("jvara", -1, 2);
+
+        assertEquals(2, matches.length);
+        assertEquals("B", table.code(matches[0]));
+        assertEquals("A", table.code(matches[1]));
+    }
+
+    @Test
+    void distanceCountsTranspositionsAsOneEdit() {
+        assertEquals(0, FuzzyIndex.distance("jvara", "jvara", 2));
+        assertEquals(1, FuzzyIndex.distance("jvara", "vjara", 2));
+        assertEquals(2, FuzzyIndex.distance("jvara", "jvrx", 2));
+        assertEquals(3, FuzzyIndex.distance("jvara", "kasa", 2));
+    }
+
+    private static boolean contains(int[] matches, int ordinal) {
+        for (int match : matches) {
+            if (match == ordinal) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int single(int[] matches) {
+        assertEquals(1, matches.length);
+        return matches[0];
+    }
+
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = 4 + random.nextInt(8);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.toString();
+    }
+}
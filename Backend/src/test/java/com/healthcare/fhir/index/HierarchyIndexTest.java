@@ -0,0 +1,168 @@
+// HierarchyIndexTest.java
+package com.healthcare.fhir.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HierarchyIndexTest {
+
+    private static final String NAMASTE = "http://example.org/namaste";
+
+    private static HierarchyIndex build(ConceptTable table, List<HierarchyIndex.Edge> edges) {
+        return HierarchyIndex.build(table, ConceptDictionary.build(table), edges);
+    }
+
+    private static HierarchyIndex.Edge edge(String parent, String child) {
+        return new HierarchyIndex.Edge(NAMASTE, parent, child);
+    }
+
+    @Test
+    void isAFollowsASmallTree() {
+        // A
+        // +-- B
+        // |   +-- D
+        // |   +-- E
+        // +-- C
+        ConceptTable table = ConceptTable.builder()
+                .add(1, NAMASTE, "A", "Jvara")
+                .add(2, NAMASTE, "B", "Vataja jvara")
+                .add(3, NAMASTE, "C", "Pittaja jvara")
+                .add(4, NAMASTE, "D", "Santata jvara")
+                .add(5, NAMASTE, "E", "Satata jvara")
+                .add(6, NAMASTE, "F", "Kasa")
+                .build();
+        HierarchyIndex hierarchy = build(table, List.of(edge("A", "B"), edge("A", "C"), edge("B", "D"), edge("B", "E")));
+        int a = 0, b = 1, c = 2, d = 3, e = 4, f = 5;
+
+        assertTrue(hierarchy.subsumes(a, d));
+        assertTrue(hierarchy.subsumes(b, e));
+        assertTrue(hierarchy.subsumes(c, c));
+        assertFalse(hierarchy.subsumes(d, a));
+        assertFalse(hierarchy.subsumes(c, d));
+        assertFalse(hierarchy.subsumes(a, f));
+
+        assertArrayEquals(new int[]{a, b, c, d, e}, hierarchy.descendantsOrSelf(a));
+        assertArrayEquals(new int[]{b, d, e}, hierarchy.descendantsOrSelf(b));
+        assertArrayEquals(new int[]{f}, hierarchy.descendantsOrSelf(f));
+        assertArrayEquals(new int[]{b, e}, hierarchy.retainDescendantsOrSelf(b, new int[]{a, b, c, e, f}));
+        assertArrayEquals(new int[]{b, c}, hierarchy.children(a));
+        assertArrayEquals(new int[]{b}, hierarchy.parents(d));
+        assertEquals(4, hierarchy.edgeCount());
+    }
+
+    @Test
+    void conceptsWithSeveralParentsAreBelowEachOfThem() {
+        ConceptTable table = ConceptTable.builder()
+                .add(1, NAMASTE, "A", "Vata")
+                .add(2, NAMASTE, "B", "Pitta")
+                .add(3, NAMASTE, "C", "Vata-pitta jvara")
+                .add(4, NAMASTE, "D", "Vata-pitta jvara, chronic")
+                .build();
+        HierarchyIndex hierarchy = build(table, List.of(edge("A", "C"), edge("B", "C"), edge("C", "D")));
+
+        assertArrayEquals(new int[]{0, 2, 3}, hierarchy.descendantsOrSelf(0));
+        assertArrayEquals(new int[]{1, 2, 3}, hierarchy.descendantsOrSelf(1));
+        assertTrue(hierarchy.subsumes(1, 3));
+        assertFalse(hierarchy.subsumes(0, 1));
+        int[] parents = hierarchy.parents(2);
+        Arrays.sort(parents);
+        assertArrayEquals(new int[]{0, 1}, parents);
+    }
+
+    @Test
+    void cyclesAreBrokenAndUnknownCodesIgnored() {
+        ConceptTable table = ConceptTable.builder()
+                .add(1, NAMASTE, "A", "Jvara")
+                .add(2, NAMASTE, "B", "Vataja jvara")
+                .add(3, NAMASTE, "C", "Santata jvara")
+                .build();
+        HierarchyIndex hierarchy = build(table, List.of(
+                edge("A", "B"), edge("B", "C"), edge("C", "A"), edge("A", "MISSING"), edge("A", "A")));
+
+        assertEquals(1, hierarchy.droppedEdges());
+        // Whichever link was dropped, the remaining ones still form a chain without a cycle
+        int mutual = 0;
+        for (int x = 0; x < 3; x++) {
+            for (int y = 0; y < 3; y++) {
+                if (x != y && hierarchy.subsumes(x, y) && hierarchy.subsumes(y, x)) {
+                    mutual++;
+                }
+            }
+        }
+        assertEquals(0, mutual);
+    }
+
+    @Test
+    void closureMatchesReachabilityOnARandomDag() {
+        Random random = new Random(5);
+        int size = 300;
+        ConceptTable.Builder builder = ConceptTable.builder();
+        for (int i = 0; i < size; i++) {
+            builder.add(i, NAMASTE, String.format("C%04d", i), "Concept " + i);
+        }
+        ConceptTable table = builder.build();
+
+        // Parents always precede children in code order, so the graph is acyclic
+        List<HierarchyIndex.Edge> edges = new ArrayList<>();
+        List<List<Integer>> children = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            children.add(new ArrayList<>());
+        }
+        for (int child = 1; child < size; child++) {
+            int parentCount = random.nextInt(4);
+            for (int p = 0; p < parentCount; p++) {
+                int parent = random.nextInt(child);
+                edges.add(edge(String.format("C%04d", parent), String.format("C%04d", child)));
+                children.get(parent).add(child);
+            }
+        }
+        HierarchyIndex hierarchy = build(table, edges);
+        assertEquals(0, hierarchy.droppedEdges());
+
+        for (int ancestor = 0; ancestor < size; ancestor++) {
+            boolean[] reachable = reachable(children, ancestor);
+            for (int descendant = 0; descendant < size; descendant++) {
+                assertEquals(reachable[descendant], hierarchy.subsumes(ancestor, descendant));
+            }
+            assertArrayEquals(indexes(reachable), hierarchy.descendantsOrSelf(ancestor));
+        }
+    }
+
+    private static boolean[] reachable(List<List<Integer>> children, int from) {
+        boolean[] seen = new boolean[children.size()];
+        Deque<Integer> queue = new ArrayDeque<>();
+        seen[from] = true;
+        queue.add(from);
+        while (!queue.isEmpty()) {
+            for (int child : children.get(queue.poll())) {
+                if (!seen[child]) {
+                    seen[child] = true;
+                    queue.add(child);
+                }
+            }
+        }
+        return seen;
+    }
+
+    private static int[] indexes(boolean[] flags) {
+        int[] result = new int[flags.length];
+        int n = 0;
+        for (int i = 0; i < flags.length; i++) {
+            if (flags[i]) {
+                result[n++] = i;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+}
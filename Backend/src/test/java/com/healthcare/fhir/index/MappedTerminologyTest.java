@@ -0,0 +1,95 @@
+// MappedTerminologyTest.java
+package com.healthcare.fhir.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedTerminologyTest {
+
+    private static final String NAMASTE = "http://example.org/namaste";
+    private static final String ICD = "http://id.who.int/icd/release/11/mms";
+
+    private static ConceptTable table() {
+        return ConceptTable.builder()
+                .add(3, NAMASTE, "B-2", "Kasa")
+                .add(1, NAMASTE, "A-1", "Jvara", "Fever", "1.0",
+                        List.of(new Designation("hi", null, "ज्वर"), new Designation("ta-IN", "display", "Suram")))
+                .add(2, ICD, "MG26", "Fever of other or unknown origin")
+                .build();
+    }
+
+    private static List<ConceptMapping> mappings() {
+        return List.of(
+                new ConceptMapping(NAMASTE, "B-2", ICD, "CA23", "RELATEDTO", null),
+                new ConceptMapping(NAMASTE, "A-1", ICD, "MG26", "EQUIVALENT", "Reviewed"),
+                new ConceptMapping(NAMASTE, "A-1", ICD, "1D01", "WIDER", null));
+    }
+
+    @Test
+    void writtenSnapshotReadsBackEveryConceptAndMapping() throws Exception {
+        Path dir = Files.createTempDirectory("snapshot");
+        Path path = dir.resolve("terminology.snapshot");
+        ConceptTable table = table();
+        try {
+            MappedTerminology.write(path, table, mappings(), "3/3/2026-01-01T00:00;3/3/2026-01-02T00:00");
+            MappedTerminology mapped = MappedTerminology.open(path);
+
+            assertEquals(table.size(), mapped.size());
+            assertEquals(3, mapped.mappingCount());
+            assertEquals("3/3/2026-01-01T00:00;3/3/2026-01-02T00:00", mapped.stamp());
+            for (int ordinal = 0; ordinal < table.size(); ordinal++) {
+                assertEquals(ordinal, mapped.find(table.system(ordinal), table.code(ordinal)));
+                assertEquals(table.id(ordinal), mapped.id(ordinal));
+                assertEquals(table.system(ordinal), mapped.system(ordinal));
+                assertEquals(table.display(ordinal), mapped.display(ordinal));
+                assertEquals(table.definition(ordinal), mapped.definition(ordinal));
+            }
+            int jvara = mapped.find(NAMASTE, "A-1");
+            assertEquals("Fever", mapped.definition(jvara));
+            assertEquals("1.0", mapped.version(jvara));
+            assertEquals(List.of(new Designation("hi", null, "ज्वर"), new Designation("ta-IN", "display", "Suram")),
+                    mapped.designations(jvara));
+            assertTrue(mapped.designations(mapped.find(ICD, "MG26")).isEmpty());
+            assertNull(mapped.definition(mapped.find(NAMASTE, "B-2")));
+            assertEquals(-1, mapped.find(NAMASTE, "MG26"));
+            assertEquals(-1, mapped.find("http://example.org/unknown", "A-1"));
+
+            List<ConceptMapping> fromJvara = mapped.mappings(NAMASTE, "A-1");
+            assertEquals(2, fromJvara.size());
+            assertEquals(mappings().get(1), fromJvara.get(0));
+            assertEquals(mappings().get(2), fromJvara.get(1));
+            assertEquals(List.of(mappings().get(0)), mapped.mappings(NAMASTE, "B-2"));
+            assertTrue(mapped.mappings(ICD, "MG26").isEmpty());
+        } finally {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    @Test
+    void truncatedOrForeignFilesAreRejected() throws Exception {
+        Path dir = Files.createTempDirectory("snapshot");
+        Path path = dir.resolve("terminology.snapshot");
+        try {
+            MappedTerminology.write(path, table(), mappings(), "stamp");
+            byte[] bytes = Files.readAllBytes(path);
+            Files.write(path, Arrays.copyOf(bytes, bytes.length - 1));
+            assertThrows(IllegalStateException.class, () -> MappedTerminology.open(path));
+
+            Files.write(path, new byte[64]);
+            assertThrows(IllegalStateException.class, () -> MappedTerminology.open(path));
+        } finally {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(dir);
+        }
+    }
+}
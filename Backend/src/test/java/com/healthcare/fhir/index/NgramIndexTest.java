@@ -0,0 +1,70 @@
+// NgramIndexTest.java
+package com.healthcare.fhir.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NgramIndexTest {
+
+    private static final String NAMASTE = "http://example.org/namaste";
+    private static final String ICD = "http://id.who.int/icd/release/11/mms";
+
+    private static ConceptTable table() {
+        return ConceptTable.builder()
+                .add(1, NAMASTE, "AAA-1", "Jvara (fever)")
+                .add(2, NAMASTE, "AAA-2", "Kasa (cough)")
+                .add(3, NAMASTE, "AAB-1", "Arsha roga")
+                .add(4, ICD, "1A00", "Cholera")
+                .add(5, ICD, "CA23", "Asthma")
+                .add(6, ICD, "MG26", "Fever of other or unknown origin")
+                .build();
+    }
+
+    @Test
+    void searchMatchesSubstringScan() {
+        ConceptTable table = table();
+        NgramIndex index = NgramIndex.build(table);
+        for (String filter : List.of("fever", "FEVER", "aa", "a", "aaa-", "roga", "sha r", "ca2", "xyz", "", "of other or")) {
+            assertArrayEquals(scan(table, filter, -1), index.search(filter, -1), filter);
+        }
+    }
+
+    @Test
+    void searchIsRestrictedToOneSystem() {
+        ConceptTable table = table();
+        NgramIndex index = NgramIndex.build(table);
+        int icd = table.systemId(ICD);
+
+        int[] matches = index.search("fever", icd);
+
+        assertEquals(1, matches.length);
+        assertEquals("MG26", table.code(matches[0]));
+        assertArrayEquals(scan(table, "a", icd), index.search("a", icd));
+    }
+
+    @Test
+    void unknownTrigramMatchesNothing() {
+        NgramIndex index = NgramIndex.build(table());
+
+        assertEquals(0, index.search("qqq", -1).length);
+    }
+
+    private static int[] scan(ConceptTable table, String filter, int systemId) {
+        String normalized = ConceptTable.normalize(filter);
+        int from = systemId >= 0 ? table.systemStart(systemId) : 0;
+        int to = systemId >= 0 ? table.systemEnd(systemId) : table.size();
+        int[] result = new int[to - from];
+        int n = 0;
+        for (int ordinal = from; ordinal < to; ordinal++) {
+            if (table.matches(ordinal, normalized)) {
+                result[n++] = ordinal;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+}
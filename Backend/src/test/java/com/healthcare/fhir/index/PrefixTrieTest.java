@@ -0,0 +1,91 @@
+// PrefixTrieTest.java
+package com.healthcare.fhir.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PrefixTrieTest {
+
+    private record Key(String key, int ordinal, int score) {
+    }
+
+    @Test
+    void completionsMatchBruteForceForEveryPrefix() {
+        Random random = new Random(7);
+        List<Key> keys = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            StringBuilder key = new StringBuilder();
+            int length = 1 + random.nextInt(6);
+            for (int j = 0; j < length; j++) {
+                key.append("abc".charAt(random.nextInt(3)));
+            }
+            // Several keys per ordinal, as codes, displays and word starts are
+            keys.add(new Key(key.toString(), random.nextInt(120), random.nextInt(50)));
+        }
+        int topK = 5;
+        PrefixTrie.Builder builder = PrefixTrie.builder(topK);
+        for (Key key : keys) {
+            builder.add(key.key(), key.ordinal(), key.score());
+        }
+        PrefixTrie trie = builder.build();
+
+        for (Key key : keys) {
+            for (int end = 0; end <= key.key().length(); end++) {
+                String prefix = key.key().substring(0, end);
+                assertArrayEquals(expected(keys, prefix, topK), completions(trie, prefix), prefix);
+            }
+        }
+        assertEquals(-1, trie.find("abx"));
+    }
+
+    @Test
+    void autocompleteMergesSystemsInRankOrder() {
+        ConceptTable table = ConceptTable.builder()
+                .add(1, "http://example.org/a", "JV-1", "Jvara")
+                .add(2, "http://example.org/a", "JV-2", "Jvaratisara")
+                .add(3, "http://example.org/b", "X1", "Jvara roga")
+                .add(4, "http://example.org/b", "X2", "Kasa jvara")
+                .build();
+        AutocompleteIndex index = AutocompleteIndex.build(table, 10);
+
+        // Code prefixes outrank displays, which outrank word starts; shorter displays win ties
+        assertArrayEquals(new int[]{0, 1, 2, 3}, index.complete("jv", -1, 10));
+        assertArrayEquals(new int[]{2, 3}, index.complete("JV", table.systemId("http://example.org/b"), 10));
+        assertArrayEquals(new int[]{0, 1}, index.complete("jv", -1, 2));
+        assertArrayEquals(new int[0], index.complete("zz", -1, 10));
+    }
+
+    private static int[] completions(PrefixTrie trie, String prefix) {
+        int node = trie.find(prefix);
+        if (node < 0) {
+            return new int[0];
+        }
+        int[] result = new int[trie.completionCount(node)];
+        for (int rank = 0; rank < result.length; rank++) {
+            result[rank] = trie.completionOrdinal(node, rank);
+        }
+        return result;
+    }
+
+    private static int[] expected(List<Key> keys, String prefix, int topK) {
+        Map<Integer, Integer> best = new HashMap<>();
+        for (Key key : keys) {
+            if (key.key().startsWith(prefix)) {
+                best.merge(key.ordinal(), key.score(), Math::max);
+            }
+        }
+        return best.entrySet().stream()
+                .sorted((a, b) -> PrefixTrie.ranksBefore(a.getValue(), a.getKey(), b.getValue(), b.getKey()) ? -1 : 1)
+                .limit(topK)
+                .mapToInt(Map.Entry::getKey)
+                .toArray();
+    }
+}
@@ -0,0 +1,73 @@
+// RelevanceScorerTest.java
+package com.healthcare.fhir.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RelevanceScorerTest {
+
+    private static final String NAMASTE = "http://example.org/namaste";
+
+    private static ConceptTable table() {
+        return ConceptTable.builder()
+                .add(1, NAMASTE, "A-1", "Kasa jvara")
+                .add(2, NAMASTE, "A-2", "Jvara")
+                .add(3, NAMASTE, "JVARA", "Santata jvara roga")
+                .add(4, NAMASTE, "B-1", "Jvaratisara")
+                .add(5, NAMASTE, "B-2", "Arsha")
+                .build();
+    }
+
+    private static int[] all(ConceptTable table) {
+        int[] candidates = new int[table.size()];
+        for (int i = 0; i < candidates.length; i++) {
+            candidates[i] = i;
+        }
+        return candidates;
+    }
+
+    @Test
+    void exactCodeOutranksExactDisplayAndWordMatches() {
+        ConceptTable table = table();
+        RelevanceScorer scorer = RelevanceScorer.build(table);
+
+        int[] ranked = scorer.rank(all(table), "jvara", 10);
+
+        assertEquals("JVARA", table.code(ranked[0]));
+        assertEquals("A-2", table.code(ranked[1]));
+        assertEquals(table.size(), ranked.length);
+    }
+
+    @Test
+    void rankingIsABoundedPermutationOfTheCandidates() {
+        ConceptTable table = table();
+        RelevanceScorer scorer = RelevanceScorer.build(table);
+        int[] candidates = {4, 0, 2, 1};
+
+        int[] full = scorer.rank(candidates, "jvara", 10);
+        int[] sortedFull = full.clone();
+        Arrays.sort(sortedFull);
+        assertArrayEquals(new int[]{0, 1, 2, 4}, sortedFull);
+
+        // The bounded heap keeps the same head as the full ranking
+        assertArrayEquals(Arrays.copyOf(full, 2), scorer.rank(candidates, "jvara", 2));
+        assertArrayEquals(new int[0], scorer.rank(candidates, "jvara", 0));
+    }
+
+    @Test
+    void blankFilterKeepsCandidateOrder() {
+        ConceptTable table = table();
+        RelevanceScorer scorer = RelevanceScorer.build(table);
+
+        assertArrayEquals(new int[]{3, 1}, scorer.rank(new int[]{3, 1, 0}, "  ", 2));
+    }
+
+    @Test
+    void tokenizeSplitsOnNonWordCharacters() {
+        assertArrayEquals(new String[]{"kasa", "jvara", "2"}, RelevanceScorer.tokenize("kasa-jvara (2)"));
+    }
+}
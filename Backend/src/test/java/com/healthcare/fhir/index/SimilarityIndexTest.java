@@ -0,0 +1,77 @@
+// SimilarityIndexTest.java
+package com.healthcare.fhir.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SimilarityIndexTest {
+
+    @Test
+    void everyDocumentIsItsOwnBestMatch() {
+        Random random = new Random(13);
+        SimilarityIndex.Builder builder = SimilarityIndex.builder();
+        String[] texts = new String[2000];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = randomWord(random) + " " + randomWord(random) + " " + randomWord(random);
+            builder.add("C" + i, "Title " + i, texts[i]);
+        }
+        SimilarityIndex index = builder.build();
+
+        for (int i = 0; i < texts.length; i++) {
+            List<SimilarityIndex.Match> matches = index.search(texts[i], 3, 0.0);
+            assertEquals("C" + i, index.code(matches.get(0).document()));
+            assertEquals(1.0, matches.get(0).score(), 1e-4);
+            for (int m = 1; m < matches.size(); m++) {
+                assertTrue(matches.get(m - 1).score() >= matches.get(m).score());
+            }
+        }
+    }
+
+    @Test
+    void closerTextsRankHigherAndWeakMatchesAreCut() {
+        SimilarityIndex index = SimilarityIndex.builder()
+                .add("MG26", "Fever of other or unknown origin", "Fever of other or unknown origin")
+                .add("1D01", "Dengue fever", "Dengue fever")
+                .add("CA23", "Asthma", "Asthma")
+                .build();
+
+        List<SimilarityIndex.Match> matches = index.search("fever of unknown origin", 10, 0.0);
+        assertEquals("MG26", index.code(matches.get(0).document()));
+        assertEquals("1D01", index.code(matches.get(1).document()));
+        assertEquals(2, matches.size());
+
+        assertEquals(1, index.search("fever of unknown origin", 1, 0.0).size());
+        double second = matches.get(1).score();
+        assertEquals(1, index.search("fever of unknown origin", 10, second + 1e-6).size());
+        assertTrue(index.search("zzqx", 10, 0.0).isEmpty());
+        assertTrue(index.search("", 10, 0.0).isEmpty());
+    }
+
+    @Test
+    void onlyTheFirstDocumentPerCodeIsKept() {
+        SimilarityIndex index = SimilarityIndex.builder()
+                .add("MG26", "Fever", "Fever")
+                .add("MG26", "Asthma", "Asthma")
+                .add(null, "Cough", "Cough")
+                .build();
+
+        assertEquals(1, index.size());
+        assertEquals("Fever", index.title(0));
+        assertTrue(index.search("asthma", 10, 0.0).isEmpty());
+        assertTrue(SimilarityIndex.builder().build().search("fever", 10, 0.0).isEmpty());
+    }
+
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = 5 + random.nextInt(6);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.toString();
+    }
+}
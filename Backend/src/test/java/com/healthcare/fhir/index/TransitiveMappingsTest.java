@@ -0,0 +1,82 @@
+// TransitiveMappingsTest.java
+package com.healthcare.fhir.index;
+
+import com.healthcare.fhir.entity.Equivalence;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.BinaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TransitiveMappingsTest {
+
+    private static final String NAMASTE = "http://example.org/namaste";
+    private static final String TM2 = "http://id.who.int/icd/release/11/tm2";
+    private static final String MMS = "http://id.who.int/icd/release/11/mms";
+
+    private static final BinaryOperator<String> COMPOSE = (first, second) -> {
+        Equivalence composed = Equivalence.valueOf(first).compose(Equivalence.valueOf(second));
+        return composed != null ? composed.name() : null;
+    };
+
+    private static ConceptMapping map(String sourceSystem, String sourceCode, String targetSystem, String targetCode,
+                                      String equivalence) {
+        return new ConceptMapping(sourceSystem, sourceCode, targetSystem, targetCode, equivalence, null);
+    }
+
+    @Test
+    void pathsAreChainedWithComposedEquivalence() {
+        List<ConceptMapping> mappings = List.of(
+                map(NAMASTE, "A-1", TM2, "SM01", "EQUIVALENT"),
+                map(TM2, "SM01", MMS, "MG26", "WIDER"),
+                map(MMS, "MG26", MMS, "MG2", "SUBSUMES"));
+
+        List<ConceptMapping> expanded = TransitiveMappings.expandAll(mappings, 3, COMPOSE).stream()
+                .filter(mapping -> mapping.sourceCode().equals("A-1"))
+                .toList();
+
+        assertEquals(3, expanded.size());
+        assertEquals(mappings.get(0), expanded.get(0));
+        assertEquals("MG26", expanded.get(1).targetCode());
+        assertEquals("WIDER", expanded.get(1).equivalence());
+        assertEquals("Transitive mapping via " + TM2 + "|SM01", expanded.get(1).comment());
+        assertEquals("MG2", expanded.get(2).targetCode());
+        assertEquals("WIDER", expanded.get(2).equivalence());
+        assertEquals("Transitive mapping via " + TM2 + "|SM01, " + MMS + "|MG26", expanded.get(2).comment());
+    }
+
+    @Test
+    void hopLimitAndUndefinedCompositionsStopThePath() {
+        List<ConceptMapping> mappings = List.of(
+                map(NAMASTE, "A-1", TM2, "SM01", "EQUIVALENT"),
+                map(TM2, "SM01", MMS, "MG26", "EQUIVALENT"),
+                map(MMS, "MG26", MMS, "MG2", "WIDER"),
+                map(NAMASTE, "B-1", TM2, "SM02", "DISJOINT"),
+                map(TM2, "SM02", MMS, "CA23", "EQUIVALENT"));
+        TransitiveMappings.Edges edges = (system, code) -> mappings.stream()
+                .filter(mapping -> mapping.sourceSystem().equals(system) && mapping.sourceCode().equals(code))
+                .toList();
+
+        assertEquals(2, TransitiveMappings.expand(NAMASTE, "A-1", edges, 2, COMPOSE).size());
+        assertEquals(3, TransitiveMappings.expand(NAMASTE, "A-1", edges, 3, COMPOSE).size());
+        assertEquals(1, TransitiveMappings.expand(NAMASTE, "A-1", edges, 1, COMPOSE).size());
+        assertEquals(List.of(mappings.get(3)), TransitiveMappings.expand(NAMASTE, "B-1", edges, 3, COMPOSE));
+    }
+
+    @Test
+    void shortestPathWinsAndTheSourceSystemIsNeverReentered() {
+        List<ConceptMapping> mappings = List.of(
+                map(NAMASTE, "A-1", TM2, "SM01", "EQUIVALENT"),
+                map(NAMASTE, "A-1", MMS, "MG26", "NARROWER"),
+                map(TM2, "SM01", MMS, "MG26", "EQUIVALENT"),
+                map(TM2, "SM01", NAMASTE, "A-2", "EQUIVALENT"));
+
+        List<ConceptMapping> expanded = TransitiveMappings.expandAll(mappings, 3, COMPOSE).stream()
+                .filter(mapping -> mapping.sourceCode().equals("A-1"))
+                .toList();
+
+        // Both MG26 and A-2 are only reachable through paths the walk must not take
+        assertEquals(List.of(mappings.get(0), mappings.get(1)), expanded);
+    }
+}
@@ -0,0 +1,47 @@
+// ExpansionCursorTest.java
+package com.healthcare.fhir.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ExpansionCursorTest {
+
+    @Test
+    void tokenRoundTripsPositionAndOrder() {
+        for (ExpansionCursor.Order order : new ExpansionCursor.Order[]{ExpansionCursor.Order.INDEX, ExpansionCursor.Order.DATABASE}) {
+            ExpansionCursor cursor = ExpansionCursor.decode(
+                    new ExpansionCursor(order, "http://example.org/namaste", "AAA-1 / ज्वर", 42).encode());
+
+            assertEquals(order, cursor.getOrder());
+            assertEquals("http://example.org/namaste", cursor.getSystemUri());
+            assertEquals("AAA-1 / ज्वर", cursor.getCode());
+            assertEquals(42L, cursor.getId());
+        }
+    }
+
+    @Test
+    void rankedTokenRoundTripsGenerationAndPosition() {
+        ExpansionCursor cursor = ExpansionCursor.decode(ExpansionCursor.ranked(7, 40).encode());
+
+        assertEquals(ExpansionCursor.Order.RANKED, cursor.getOrder());
+        assertEquals(7L, cursor.getGeneration());
+        assertEquals(40, cursor.getRankPosition());
+        // A ranked token carrying a keyset position instead of a generation is not accepted
+        assertThrows(IllegalArgumentException.class, () -> ExpansionCursor.decode(
+                new ExpansionCursor(ExpansionCursor.Order.RANKED, "system", "code", 1).encode()));
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ExpansionCursor.decode("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> ExpansionCursor.decode("eA"));
+        // A token without an order tag, as issued before orders were recorded
+        assertThrows(IllegalArgumentException.class, () -> ExpansionCursor.decode(
+                Base64.getUrlEncoder().withoutPadding().encodeToString("42\u0000system\u0000code".getBytes(StandardCharsets.UTF_8))));
+    }
+}
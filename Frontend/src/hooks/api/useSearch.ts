@@ -18,7 +18,9 @@ export const useSearch = (
     queryFn: () => apiClient.expandValueSet({
       filter,
       count: options.count || 10,
-      offset: options.offset || 0
+      offset: options.offset || 0,
+      total: 'none', // typeahead never shows the total, so skip the count query
+      autocomplete: !options.offset
     }),
     enabled: options.enabled !== false && filter.length >= 2,
     staleTime: 0, // Always fresh for search
@@ -70,6 +70,8 @@ export class ApiClient {
     if (params.count) searchParams.set('count', params.count.toString());
     if (params.offset) searchParams.set('offset', params.offset.toString());
     if (params.url) searchParams.set('url', params.url);
+    if (params.total) searchParams.set('_total', params.total);
+    if (params.autocomplete) searchParams.set('autocomplete', 'true');
 
     return this.fetch<ValueSetExpansion>(
       `/fhir/ValueSet/$expand?${searchParams.toString()}`
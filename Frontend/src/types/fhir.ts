@@ -7,9 +7,10 @@ export interface ValueSetExpansion extends FhirResource {
   resourceType: "ValueSet";
   url?: string;
   expansion: {
-    total: number;
+    total?: number;
     offset: number;
     contains: ValueSetContains[];
+    next?: string;
   };
 }
 
@@ -105,6 +106,8 @@ export interface SearchRequest {
   count?: number;
   offset?: number;
   url?: string;
+  total?: 'none' | 'estimate' | 'accurate';
+  autocomplete?: boolean;
 }
 
 export interface LookupRequest {